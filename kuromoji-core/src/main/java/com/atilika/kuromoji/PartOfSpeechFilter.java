@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+import com.atilika.kuromoji.dict.Dictionary;
+import com.atilika.kuromoji.dict.TokenInfoDictionary;
+import com.atilika.kuromoji.viterbi.ViterbiNode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Token filter that keeps or drops words by their 1st level part of speech, comparing feature ids rather than strings
+ * <p>
+ * A tokenizer built with this filter looks up the parts of speech once in its system dictionary, which all its
+ * dictionaries share the feature ids of, and then filters a word by testing its part of speech id in a bit set.
+ * The dictionary modules provide ready-made filters for their parts of speech, see {@link PartOfSpeechFilterPresets}.
+ */
+public class PartOfSpeechFilter implements TokenFilter {
+
+    private static final int PART_OF_SPEECH_FIELD = 0;
+
+    private final List<String> partsOfSpeech;
+
+    private final boolean keep;
+
+    // Ids of the parts of speech in the system dictionary of a tokenizer, or null until resolved
+    private final BitSet ids;
+
+    private PartOfSpeechFilter(List<String> partsOfSpeech, boolean keep, BitSet ids) {
+        this.partsOfSpeech = partsOfSpeech;
+        this.keep = keep;
+        this.ids = ids;
+    }
+
+    /**
+     * Creates a filter keeping only words with one of the given parts of speech
+     *
+     * @param partsOfSpeech  1st level parts of speech to keep, such as 名詞
+     * @return filter, not null
+     */
+    public static PartOfSpeechFilter keep(String... partsOfSpeech) {
+        return new PartOfSpeechFilter(Arrays.asList(partsOfSpeech.clone()), true, null);
+    }
+
+    /**
+     * Creates a filter dropping words with one of the given parts of speech
+     *
+     * @param partsOfSpeech  1st level parts of speech to drop, such as 助詞
+     * @return filter, not null
+     */
+    public static PartOfSpeechFilter drop(String... partsOfSpeech) {
+        return new PartOfSpeechFilter(Arrays.asList(partsOfSpeech.clone()), false, null);
+    }
+
+    /**
+     * @return the 1st level parts of speech this filter keeps or drops
+     */
+    public List<String> getPartsOfSpeech() {
+        return partsOfSpeech;
+    }
+
+    /**
+     * Creates a filter with the parts of speech of this filter looked up in a system dictionary
+     * <p>
+     * Called when building a tokenizer with this filter. The filter created holds no reference to the dictionary.
+     *
+     * @param systemDictionary  system dictionary of the tokenizer
+     * @return filter for words of the system dictionary and of the dictionaries sharing its feature ids, not null
+     */
+    public PartOfSpeechFilter resolve(TokenInfoDictionary systemDictionary) {
+        return new PartOfSpeechFilter(partsOfSpeech, keep, getIds(systemDictionary));
+    }
+
+    /**
+     * Tests the part of speech of a word
+     * <p>
+     * A filter that has not been resolved looks up its parts of speech in the given dictionary on every call
+     */
+    @Override
+    public boolean accept(int wordId, ViterbiNode.Type type, Dictionary dictionary) {
+        int featureId = dictionary.getFeatureId(wordId, PART_OF_SPEECH_FIELD);
+        boolean matches = featureId >= 0 && (ids != null ? ids : getIds(dictionary)).get(featureId);
+
+        return matches == keep;
+    }
+
+    private BitSet getIds(Dictionary dictionary) {
+        BitSet dictionaryIds = new BitSet();
+
+        for (String partOfSpeech : partsOfSpeech) {
+            int featureId = dictionary.featureId(PART_OF_SPEECH_FIELD, partOfSpeech);
+
+            if (featureId >= 0) {
+                dictionaryIds.set(featureId);
+            }
+        }
+
+        return dictionaryIds;
+    }
+}
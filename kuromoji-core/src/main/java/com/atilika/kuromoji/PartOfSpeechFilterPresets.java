@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+/**
+ * Ready-made part of speech filters of a dictionary, created from the 1st level parts of speech of its function words
+ * <p>
+ * Each dictionary module holds the presets for its parts of speech in its {@code PartOfSpeechFilters} class
+ *
+ * @see TokenizerBase.Builder#tokenFilter(TokenFilter)
+ */
+public final class PartOfSpeechFilterPresets {
+
+    private static final String NOUN = "名詞";
+
+    private final String[] functionWords;
+
+    /**
+     * Constructor
+     *
+     * @param functionWords  1st level parts of speech of the function words of the dictionary
+     */
+    public PartOfSpeechFilterPresets(String... functionWords) {
+        this.functionWords = functionWords.clone();
+    }
+
+    /**
+     * Creates a filter dropping function words, as commonly done when indexing text for search
+     *
+     * @return filter, not null
+     */
+    public PartOfSpeechFilter dropFunctionWords() {
+        return PartOfSpeechFilter.drop(functionWords);
+    }
+
+    /**
+     * Creates a filter keeping only nouns (名詞)
+     *
+     * @return filter, not null
+     */
+    public PartOfSpeechFilter keepNouns() {
+        return PartOfSpeechFilter.keep(NOUN);
+    }
+}
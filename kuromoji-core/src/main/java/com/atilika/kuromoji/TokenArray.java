@@ -0,0 +1,260 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+import com.atilika.kuromoji.io.IntegerArrayIO;
+import com.atilika.kuromoji.viterbi.ViterbiNode;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Tokens stored column by column in primitive arrays
+ * <p>
+ * Only the word ids, types, positions and lengths of the tokens are stored together with the tokenized text.
+ * Token objects are created when they are retrieved from the list, so holding on to a token array is much cheaper
+ * than holding on to a list of tokens. The list cannot be modified.
+ *
+ * @param <T>  token type
+ * @see TokenizerBase#tokenizeToArray(String)
+ */
+public class TokenArray<T extends TokenBase> extends AbstractList<T> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final ViterbiNode.Type[] TYPES = ViterbiNode.Type.values();
+
+    private final TokenizerBase tokenizer;
+
+    private final TokenizerBase.Snapshot snapshot;
+
+    private final String text;
+
+    private int size;
+
+    private int[] wordIds;
+
+    private byte[] types;
+
+    private int[] positions;
+
+    private int[] lengths;
+
+    TokenArray(TokenizerBase tokenizer, TokenizerBase.Snapshot snapshot, String text) {
+        this(tokenizer, snapshot, text, 0, new int[INITIAL_CAPACITY], new byte[INITIAL_CAPACITY], new int[INITIAL_CAPACITY], new int[INITIAL_CAPACITY]);
+    }
+
+    private TokenArray(TokenizerBase tokenizer, TokenizerBase.Snapshot snapshot, String text, int size, int[] wordIds, byte[] types, int[] positions, int[] lengths) {
+        this.tokenizer = tokenizer;
+        this.snapshot = snapshot;
+        this.text = text;
+        this.size = size;
+        this.wordIds = wordIds;
+        this.types = types;
+        this.positions = positions;
+        this.lengths = lengths;
+    }
+
+    void add(int wordId, ViterbiNode.Type type, int position, int length) {
+        if (size == wordIds.length) {
+            resize(size * 2);
+        }
+
+        wordIds[size] = wordId;
+        types[size] = (byte) type.ordinal();
+        positions[size] = position;
+        lengths[size] = length;
+        size++;
+    }
+
+    void trimToSize() {
+        if (size < wordIds.length) {
+            resize(size);
+        }
+    }
+
+    private void resize(int capacity) {
+        wordIds = Arrays.copyOf(wordIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    /**
+     * Creates a token object for a token in the array
+     *
+     * @param index  index of the token
+     * @return token, not null
+     */
+    @Override
+    public T get(int index) {
+        checkIndex(index);
+
+        ViterbiNode.Type type = TYPES[types[index]];
+
+        @SuppressWarnings("unchecked")
+        T token = (T) tokenizer.tokenFactory.createToken(
+            wordIds[index],
+            getSurface(index),
+            type,
+            positions[index],
+            snapshot.dictionaryMap.get(type)
+        );
+        return token;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the tokenized text
+     *
+     * @return text, not null
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the word id of a token
+     *
+     * @param index  index of the token
+     * @return word id
+     */
+    public int getWordId(int index) {
+        checkIndex(index);
+        return wordIds[index];
+    }
+
+    /**
+     * Gets the type of a token
+     *
+     * @param index  index of the token
+     * @return type, not null
+     */
+    public ViterbiNode.Type getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index]];
+    }
+
+    /**
+     * Gets the position of a token in the text
+     *
+     * @param index  index of the token
+     * @return position
+     */
+    public int getPosition(int index) {
+        checkIndex(index);
+        return positions[index];
+    }
+
+    /**
+     * Gets the length of the surface of a token
+     *
+     * @param index  index of the token
+     * @return length
+     */
+    public int getLength(int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    /**
+     * Gets the surface of a token
+     *
+     * @param index  index of the token
+     * @return surface, not null
+     */
+    public String getSurface(int index) {
+        checkIndex(index);
+        return text.substring(positions[index], positions[index] + lengths[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Writes the text and the token columns to an output stream
+     *
+     * @param output  output stream to write to
+     * @throws IOException if an error occurs when writing
+     * @see #read(InputStream, TokenizerBase)
+     */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+
+        dataOutput.writeInt(textBytes.length);
+        dataOutput.write(textBytes);
+        dataOutput.writeInt(size);
+        dataOutput.write(types, 0, size);
+
+        IntegerArrayIO.writeArray(dataOutput, Arrays.copyOf(wordIds, size));
+        IntegerArrayIO.writeArray(dataOutput, Arrays.copyOf(positions, size));
+        IntegerArrayIO.writeArray(dataOutput, Arrays.copyOf(lengths, size));
+        dataOutput.flush();
+    }
+
+    /**
+     * Reads a token array written by {@link #write(OutputStream)}
+     *
+     * @param input  input stream to read from
+     * @param tokenizer  tokenizer with the dictionaries used when the tokens were written, not null
+     * @param <T>  token type
+     * @return token array, not null
+     * @throws IOException if an error occurs when reading
+     */
+    public static <T extends TokenBase> TokenArray<T> read(InputStream input, TokenizerBase tokenizer) throws IOException {
+        Objects.requireNonNull(tokenizer, "tokenizer");
+
+        DataInputStream dataInput = new DataInputStream(input);
+        byte[] textBytes = new byte[dataInput.readInt()];
+
+        dataInput.readFully(textBytes);
+
+        int size = dataInput.readInt();
+        byte[] types = new byte[size];
+
+        dataInput.readFully(types);
+
+        int[][] columns = IntegerArrayIO.readArrays(dataInput, 3);
+
+        return new TokenArray<>(
+            tokenizer,
+            tokenizer.getSnapshot(),
+            new String(textBytes, StandardCharsets.UTF_8),
+            size,
+            columns[0],
+            types,
+            columns[1],
+            columns[2]
+        );
+    }
+}
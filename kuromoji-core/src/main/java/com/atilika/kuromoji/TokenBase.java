@@ -19,6 +19,9 @@ package com.atilika.kuromoji;
 import com.atilika.kuromoji.dict.Dictionary;
 import com.atilika.kuromoji.viterbi.ViterbiNode.Type;
 
+import java.io.IOException;
+import java.util.BitSet;
+
 /**
  * Abstract token class with features shared by all tokens produced by all tokenizers
  */
@@ -96,6 +99,54 @@ public abstract class TokenBase {
         return dictionary.getAllFeaturesArray(wordId);
     }
 
+    /**
+     * Appends all features for this token as a comma-separated String without creating intermediate strings
+     * <p>
+     * The appended text is identical to {@link #getAllFeatures()}
+     *
+     * @param output  output to append the features to
+     * @throws IOException if appending to output fails
+     */
+    public void appendAllFeatures(Appendable output) throws IOException {
+        dictionary.appendAllFeatures(wordId, output);
+    }
+
+    /**
+     * Gets the id of a feature of this token
+     * <p>
+     * Equal values of a field have equal ids, so tokens can be filtered by comparing ids obtained from
+     * {@link TokenizerBase#featureId(int, String)} rather than strings
+     *
+     * @param field  feature number, as an index in {@link #getAllFeaturesArray()}
+     * @return feature id, or -1 if the value is not in the system dictionary
+     */
+    public int getFeatureId(int field) {
+        return dictionary.getFeatureId(wordId, field);
+    }
+
+    /**
+     * Predicate indicating whether a feature of this token has a specific id
+     *
+     * @param field  feature number, as an index in {@link #getAllFeaturesArray()}
+     * @param featureId  feature id to compare with
+     * @return true if the feature has the id, otherwise false
+     */
+    public boolean hasFeatureId(int field, int featureId) {
+        return featureId >= 0 && getFeatureId(field) == featureId;
+    }
+
+    /**
+     * Predicate indicating whether the id of a feature of this token is in a set of ids
+     *
+     * @param field  feature number, as an index in {@link #getAllFeaturesArray()}
+     * @param featureIds  set of feature ids, such as from {@link TokenizerBase#featureIds(int, String...)}
+     * @return true if the feature id is in the set, otherwise false
+     */
+    public boolean hasFeatureIdIn(int field, BitSet featureIds) {
+        int featureId = getFeatureId(field);
+        return featureId >= 0 && featureIds.get(featureId);
+    }
+
     @Override
     public String toString() {
         return "Token{" +
@@ -117,4 +168,15 @@ public abstract class TokenBase {
         return dictionary.getFeature(wordId, feature - META_DATA_SIZE);
     }
 
+    /**
+     * Appends a numbered feature for this token without creating intermediate strings
+     *
+     * @param feature  feature number
+     * @param output  output to append the feature to
+     * @throws IOException if appending to output fails
+     */
+    protected void appendFeature(int feature, Appendable output) throws IOException {
+        dictionary.appendFeature(wordId, feature - META_DATA_SIZE, output);
+    }
+
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+import com.atilika.kuromoji.dict.Dictionary;
+import com.atilika.kuromoji.viterbi.ViterbiNode;
+
+/**
+ * Decides which words become tokens before token objects are created
+ * <p>
+ * Filters are evaluated on the words of the best path, so words that are dropped are never turned into tokens and
+ * their features are never decoded unless the filter asks for them. Filters must be thread safe when the tokenizer
+ * is used from several threads.
+ *
+ * @see TokenizerBase.Builder#tokenFilter(TokenFilter)
+ * @see PartOfSpeechFilter
+ */
+public interface TokenFilter {
+
+    /**
+     * Called for every word on the best path, in the order they appear in the text
+     *
+     * @param wordId  word id in the dictionary
+     * @param type  type of the word
+     * @param dictionary  dictionary to get the features of the word from
+     * @return true to create a token for the word, false to drop it
+     */
+    boolean accept(int wordId, ViterbiNode.Type type, Dictionary dictionary);
+}
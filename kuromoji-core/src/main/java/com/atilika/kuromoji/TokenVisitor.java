@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+import com.atilika.kuromoji.dict.Dictionary;
+import com.atilika.kuromoji.viterbi.ViterbiNode;
+
+/**
+ * Receives the words found when tokenizing without creating token objects
+ * <p>
+ * Features are only looked up if the visitor asks the dictionary for them, and the surface can be read from the
+ * tokenized text using the start index and length
+ *
+ * @see TokenizerBase#tokenize(CharSequence, TokenVisitor)
+ */
+public interface TokenVisitor {
+
+    /**
+     * Called for every token in the order they appear in the text
+     *
+     * @param wordId  word id in the dictionary
+     * @param type  type of the word
+     * @param start  start index of the word in the text
+     * @param length  length of the word
+     * @param dictionary  dictionary to get the features of the word from
+     */
+    void visit(int wordId, ViterbiNode.Type type, int start, int length, Dictionary dictionary);
+}
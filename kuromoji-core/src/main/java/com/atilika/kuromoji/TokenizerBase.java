@@ -16,15 +16,24 @@
  */
 package com.atilika.kuromoji;
 
+import com.atilika.kuromoji.compile.UserDictionaryCompiler;
 import com.atilika.kuromoji.dict.CharacterDefinitions;
+import com.atilika.kuromoji.dict.CompiledUserDictionary;
 import com.atilika.kuromoji.dict.ConnectionCosts;
 import com.atilika.kuromoji.dict.Dictionary;
+import com.atilika.kuromoji.dict.DictionaryOverlay;
+import com.atilika.kuromoji.dict.DictionaryRegistry;
 import com.atilika.kuromoji.dict.InsertedDictionary;
+import com.atilika.kuromoji.dict.SystemDictionary;
+import com.atilika.kuromoji.dict.SystemDictionaryLoader;
 import com.atilika.kuromoji.dict.TokenInfoDictionary;
 import com.atilika.kuromoji.dict.UnknownDictionary;
 import com.atilika.kuromoji.dict.UserDictionary;
+import com.atilika.kuromoji.dict.UserDictionaryBase;
+import com.atilika.kuromoji.dict.UserDictionaryHolder;
 import com.atilika.kuromoji.fst.FST;
 import com.atilika.kuromoji.util.ResourceResolver;
+import com.atilika.kuromoji.viterbi.ArrayViterbiLattice;
 import com.atilika.kuromoji.viterbi.MultiSearchMerger;
 import com.atilika.kuromoji.viterbi.MultiSearchResult;
 import com.atilika.kuromoji.viterbi.TokenFactory;
@@ -35,15 +44,31 @@ import com.atilika.kuromoji.viterbi.ViterbiNode;
 import com.atilika.kuromoji.viterbi.ViterbiSearcher;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * TokenizerBase main class
@@ -54,7 +79,25 @@ public abstract class TokenizerBase {
         NORMAL, SEARCH, EXTENDED
     }
 
-    private ViterbiBuilder viterbiBuilder;
+    /**
+     * Number of characters read from a reader at a time when streaming
+     */
+    private static final int STREAM_READ_SIZE = 4096;
+
+    /**
+     * Number of characters without a sentence boundary that are buffered before committing tokens when streaming
+     */
+    private static final int STREAM_WINDOW_SIZE = 16384;
+
+    /**
+     * Number of characters at the end of the buffer in which tokens are not committed when streaming
+     */
+    private static final int STREAM_LOOKAHEAD = 1024;
+
+    /**
+     * Minimum number of characters in a chunk of sentences tokenized as a separate task
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 8192;
 
     private ViterbiSearcher viterbiSearcher;
 
@@ -62,36 +105,59 @@ public abstract class TokenizerBase {
 
     private boolean split;
 
+    // Keeps the dictionary registered in the DictionaryRegistry reachable while this tokenizer uses its components
+    private SystemDictionary systemDictionary;
+
     private TokenInfoDictionary tokenInfoDictionary;
 
     private UnknownDictionary unknownDictionary;
 
-    private UserDictionary userDictionary;
-
     private InsertedDictionary insertedDictionary;
 
+    private FST fst;
+
+    private DictionaryOverlay dictionaryOverlay;
+
+    private Mode mode;
+
+    private UserDictionaryHolder userDictionaries;
+
+    private volatile Snapshot snapshot;
+
     protected TokenFactory tokenFactory;
 
-    protected EnumMap<ViterbiNode.Type, Dictionary> dictionaryMap = new EnumMap<>(ViterbiNode.Type.class);
+    private TokenFilter tokenFilter;
+
+    private Map<String, Long> dictionaryLoadTimes;
 
     protected void configure(Builder builder) {
 
         builder.loadDictionaries();
 
+        this.dictionaryLoadTimes = builder.dictionaryLoadTimes;
+
         this.tokenFactory = builder.tokenFactory;
+        this.tokenFilter = builder.tokenFilter;
 
+        this.systemDictionary = builder.systemDictionary;
         this.tokenInfoDictionary = builder.tokenInfoDictionary;
         this.unknownDictionary = builder.unknownDictionary;
-        this.userDictionary = builder.userDictionary;
         this.insertedDictionary = builder.insertedDictionary;
+        this.fst = builder.fst;
+        this.dictionaryOverlay = builder.dictionaryOverlay;
+        this.mode = builder.mode;
+        this.userDictionaries = builder.userDictionaryHolder;
+
+        // Part of speech filters compare feature ids, which are looked up once in the system dictionary
+        if (tokenFilter instanceof PartOfSpeechFilter) {
+            this.tokenFilter = ((PartOfSpeechFilter) tokenFilter).resolve(tokenInfoDictionary);
+        }
 
-        this.viterbiBuilder = new ViterbiBuilder(
-            builder.fst,
-            tokenInfoDictionary,
-            unknownDictionary,
-            userDictionary,
-            builder.mode
-        );
+        if (userDictionaries != null) {
+            this.snapshot = newSnapshot(userDictionaries.get());
+        } else {
+            this.snapshot = newSnapshot(builder.userDictionary);
+        }
 
         this.viterbiSearcher = new ViterbiSearcher(
             builder.mode,
@@ -102,21 +168,104 @@ public abstract class TokenizerBase {
 
         this.viterbiFormatter = new ViterbiFormatter(builder.connectionCosts);
         this.split = builder.split;
+    }
 
-        initDictionaryMap();
+    /**
+     * Gets the lattice builder and dictionaries to use for a tokenize call
+     * <p>
+     * A new snapshot is created when the user dictionary held by the {@link UserDictionaryHolder} of this tokenizer
+     * has been replaced. Otherwise this is a volatile read of the current snapshot and of the current dictionary.
+     *
+     * @return current snapshot, not null
+     */
+    Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (userDictionaries != null) {
+            UserDictionaryBase userDictionary = userDictionaries.get();
+
+            if (userDictionary != current.userDictionary) {
+                // Threads may race to create the snapshot, and a stale one written last is replaced on the next call
+                current = newSnapshot(userDictionary);
+                snapshot = current;
+            }
+        }
+
+        return current;
     }
 
-    private void initDictionaryMap() {
+    private Snapshot newSnapshot(UserDictionaryBase userDictionary) {
+        EnumMap<ViterbiNode.Type, Dictionary> dictionaryMap = new EnumMap<>(ViterbiNode.Type.class);
+
         dictionaryMap.put(ViterbiNode.Type.KNOWN, tokenInfoDictionary);
         dictionaryMap.put(ViterbiNode.Type.UNKNOWN, unknownDictionary);
-        dictionaryMap.put(ViterbiNode.Type.USER, userDictionary);
+        // Feature ids are looked up through a view, as the user dictionary may be shared with other system dictionaries
+        dictionaryMap.put(
+            ViterbiNode.Type.USER, userDictionary == null ? null : userDictionary.withSystemDictionary(tokenInfoDictionary)
+        );
         dictionaryMap.put(ViterbiNode.Type.INSERTED, insertedDictionary);
+
+        return new Snapshot(
+            userDictionary,
+            new ViterbiBuilder(fst, tokenInfoDictionary, dictionaryOverlay, unknownDictionary, userDictionary, mode),
+            dictionaryMap
+        );
+    }
+
+    /**
+     * Gets the user dictionary holder of this tokenizer
+     *
+     * @return user dictionary holder, or null if the tokenizer was not built with one
+     * @see Builder#userDictionary(UserDictionaryHolder)
+     */
+    public UserDictionaryHolder getUserDictionaryHolder() {
+        return userDictionaries;
     }
 
     public List<? extends TokenBase> tokenize(String text) {
         return createTokenList(text);
     }
 
+    /**
+     * Tokenizes the provided text and returns the tokens stored in primitive arrays
+     * <p>
+     * Token objects are only created when they are retrieved from the returned list.
+     * <p>
+     * This method is thread safe
+     *
+     * @param text  text to tokenize
+     * @param <T>  token type
+     * @return token array, not null
+     */
+    public <T extends TokenBase> TokenArray<T> tokenizeToArray(String text) {
+        Snapshot snapshot = getSnapshot();
+        final TokenArray<T> tokens = new TokenArray<>(this, snapshot, text);
+
+        tokenize(snapshot, text, 0, text.length(), new TokenVisitor() {
+            @Override
+            public void visit(int wordId, ViterbiNode.Type type, int start, int length, Dictionary dictionary) {
+                tokens.add(wordId, type, start, length);
+            }
+        }, new ArrayViterbiLattice());
+        tokens.trimToSize();
+
+        return tokens;
+    }
+
+    /**
+     * Creates a new tokenization session
+     * <p>
+     * A session reuses its lattice buffers and result list across calls, which avoids most of the per call
+     * allocation done by {@link #tokenize(String)}. Sessions are not thread safe and should be confined to a single
+     * thread, but any number of sessions can share this tokenizer and its dictionaries.
+     *
+     * @param <T>  token type
+     * @return new session, not null
+     */
+    public <T extends TokenBase> TokenizerSession<T> newSession() {
+        return new TokenizerSession<>(this);
+    }
+
     public <T extends TokenBase> List<List<T>> multiTokenize(String text, int maxCount, int costSlack) {
 
         return createMultiTokenList(text, maxCount, costSlack);
@@ -130,6 +279,74 @@ public abstract class TokenizerBase {
         return multiTokenize(text, Integer.MAX_VALUE, costSlack);
     }
 
+    /**
+     * Gets how long loading each component of the system dictionary used by this tokenizer took
+     * <p>
+     * If the dictionary is shared with other tokenizers, these are the times of the tokenizer that loaded it
+     *
+     * @return load times in nanoseconds by component name, see {@link SystemDictionaryLoader}
+     */
+    public Map<String, Long> getDictionaryLoadTimes() {
+        return dictionaryLoadTimes;
+    }
+
+    /**
+     * Gets the id of a feature value in the system dictionary, for comparison with {@link TokenBase#getFeatureId(int)}
+     *
+     * @param field  feature number, as an index in {@link TokenBase#getAllFeaturesArray()}
+     * @param value  feature value, such as 名詞
+     * @return feature id, or -1 if the value is not in the system dictionary
+     */
+    public int featureId(int field, String value) {
+        return tokenInfoDictionary.featureId(field, value);
+    }
+
+    /**
+     * Gets the ids of feature values in the system dictionary as a set, for use with
+     * {@link TokenBase#hasFeatureIdIn(int, BitSet)}
+     * <p>
+     * Values not in the system dictionary are ignored
+     *
+     * @param field  feature number, as an index in {@link TokenBase#getAllFeaturesArray()}
+     * @param values  feature values
+     * @return set of feature ids, not null
+     */
+    public BitSet featureIds(int field, String... values) {
+        BitSet ids = new BitSet();
+
+        for (String value : values) {
+            int id = featureId(field, value);
+
+            if (id >= 0) {
+                ids.set(id);
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Gets how many feature values were found in the feature cache of the system dictionary
+     * <p>
+     * The cache is shared by all tokenizers sharing the dictionary
+     *
+     * @return number of cache hits
+     * @see Builder#featureCacheSize(int)
+     */
+    public long getFeatureCacheHits() {
+        return tokenInfoDictionary.getFeatureCacheHits();
+    }
+
+    /**
+     * Gets how many feature values were decoded because they were not in the feature cache of the system dictionary
+     *
+     * @return number of cache misses
+     * @see Builder#featureCacheSize(int)
+     */
+    public long getFeatureCacheMisses() {
+        return tokenInfoDictionary.getFeatureCacheMisses();
+    }
+
     /**
      * Tokenizes the provided text and returns a list of tokens with various feature information
      * <p>
@@ -140,33 +357,285 @@ public abstract class TokenizerBase {
      * @return list of Token, not null
      */
     protected <T extends TokenBase> List<T> createTokenList(String text) {
+        ArrayList<T> result = new ArrayList<>();
+        createTokenList(result, new ArrayViterbiLattice(), text);
+        return result;
+    }
+
+    /**
+     * Tokenizes the provided text and adds the tokens to the result list
+     * <p>
+     * The lattice is used as working storage and can be reused once this method returns
+     *
+     * @param result  list to add the tokens to
+     * @param lattice  lattice to build the sentences into
+     * @param text  text to tokenize
+     * @param <T>  token type
+     */
+    <T extends TokenBase> void createTokenList(List<T> result, ArrayViterbiLattice lattice, String text) {
+        tokenize(text, new TokenCollector<>(result, text, 0), lattice);
+    }
+
+    /**
+     * Tokenizes the provided text and passes each token to a visitor without creating token objects
+     * <p>
+     * This method is thread safe
+     *
+     * @param text  text to tokenize
+     * @param visitor  visitor to pass the tokens to in the order they appear in the text
+     */
+    public void tokenize(CharSequence text, TokenVisitor visitor) {
+        tokenize(text, visitor, new ArrayViterbiLattice());
+    }
+
+    void tokenize(CharSequence text, TokenVisitor visitor, ArrayViterbiLattice lattice) {
+        tokenize(getSnapshot(), text, 0, text.length(), visitor, lattice);
+    }
 
+    /**
+     * Tokenizes a region of the provided text
+     * <p>
+     * The region is split into sentences the same way as the whole text would be, so it must start at the
+     * beginning of a sentence and end at the end of one
+     *
+     * @param snapshot  lattice builder and dictionaries to use
+     * @param text  text containing the region
+     * @param start  start of the region
+     * @param end  end of the region (exclusive)
+     * @param visitor  visitor to pass the tokens to, with start indices in the text
+     * @param lattice  lattice to build the sentences into
+     */
+    private void tokenize(Snapshot snapshot, CharSequence text, int start, int end, TokenVisitor visitor, ArrayViterbiLattice lattice) {
         if (!split) {
-            return createTokenList(0, text);
+            visitTokens(snapshot, visitor, lattice, text, start, end - start);
+            return;
         }
 
-        List<Integer> splitPositions = getSplitPositions(text);
+        int offset = start;
+        int position;
 
-        if (splitPositions.size() == 0) {
-            return createTokenList(0, text);
+        while ((position = getNextSplitPosition(text, offset)) >= 0 && position < end) {
+            visitTokens(snapshot, visitor, lattice, text, offset, position + 1 - offset);
+            offset = position + 1;
         }
 
-        ArrayList<T> result = new ArrayList<>();
+        if (offset < end) {
+            visitTokens(snapshot, visitor, lattice, text, offset, end - offset);
+        }
+    }
 
-        int offset = 0;
+    /**
+     * Tokenizes the provided text, tokenizing its sentences in parallel using the provided executor
+     * <p>
+     * The text is divided into chunks of sentences that are tokenized as separate tasks, and the tokens are the
+     * same as when tokenizing the text on a single thread. Short texts are tokenized on the calling thread. The
+     * calling thread also tokenizes the first chunk, and any chunk the executor has not started on when the
+     * calling thread needs it, so the executor may well be busy or even be the one calling this method.
+     * <p>
+     * This method is thread safe
+     *
+     * @param text  text to tokenize
+     * @param executor  executor to run tasks on, e.g. a {@link java.util.concurrent.ForkJoinPool}
+     * @param <T>  token type
+     * @return list of tokens, not null
+     */
+    public <T extends TokenBase> List<T> tokenize(String text, Executor executor) {
+        return tokenize(getSnapshot(), text, executor);
+    }
 
-        for (int position : splitPositions) {
-            result.addAll(this.<T>createTokenList(offset, text.substring(offset, position + 1)));
-            offset = position + 1;
+    private <T extends TokenBase> List<T> tokenize(final Snapshot snapshot, final String text, Executor executor) {
+        if (!split || text.length() < 2 * PARALLEL_CHUNK_SIZE) {
+            List<T> tokens = new ArrayList<>();
+            tokenize(snapshot, text, 0, text.length(), new TokenCollector<>(tokens, text, 0), new ArrayViterbiLattice());
+            return tokens;
         }
 
-        if (offset < text.length()) {
-            result.addAll(this.<T>createTokenList(offset, text.substring(offset)));
+        List<FutureTask<List<T>>> tasks = new ArrayList<>();
+        int start = 0;
+
+        while (start < text.length()) {
+            final int chunkStart = start;
+            final int chunkEnd = getChunkEnd(text, chunkStart);
+
+            tasks.add(new FutureTask<>(new Callable<List<T>>() {
+                @Override
+                public List<T> call() {
+                    List<T> tokens = new ArrayList<>();
+                    tokenize(snapshot, text, chunkStart, chunkEnd, new TokenCollector<>(tokens, text, 0), new ArrayViterbiLattice());
+                    return tokens;
+                }
+            }));
+            start = chunkEnd;
+        }
+
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (RejectedExecutionException e) {
+                break; // The remaining tasks are run on this thread below
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+
+        for (FutureTask<List<T>> task : tasks) {
+            task.run(); // Does nothing if the task has been started by the executor
+            result.addAll(getTaskResult(task));
         }
 
         return result;
     }
 
+    /**
+     * Tokenizes the provided texts in parallel using the common fork-join pool
+     *
+     * @param texts  texts to tokenize
+     * @param <T>  token type
+     * @return list of tokens for each text in the same order as the texts, not null
+     * @see #tokenizeAll(List, ForkJoinPool)
+     */
+    public <T extends TokenBase> List<List<T>> tokenizeAll(List<String> texts) {
+        return tokenizeAll(texts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Tokenizes the provided texts in parallel using the provided fork-join pool
+     * <p>
+     * The texts are divided into batches with about the same number of characters, which are split further and
+     * stolen by idle workers as needed. Texts that are large enough are also tokenized in parallel sentence by
+     * sentence. Each worker reuses the same lattice buffers for all texts it tokenizes.
+     * <p>
+     * This method is thread safe
+     *
+     * @param texts  texts to tokenize
+     * @param pool  pool to run the tokenization in
+     * @param <T>  token type
+     * @return list of tokens for each text in the same order as the texts, not null
+     */
+    public <T extends TokenBase> List<List<T>> tokenizeAll(List<String> texts, ForkJoinPool pool) {
+        String[] textArray = texts.toArray(new String[texts.size()]);
+        long[] offsets = new long[textArray.length + 1];
+
+        for (int i = 0; i < textArray.length; i++) {
+            offsets[i + 1] = offsets[i] + textArray[i].length();
+        }
+
+        // Tasks only replace the elements of their own texts, so the list is never structurally modified
+        List<List<T>> results = new ArrayList<>(Collections.<List<T>>nCopies(textArray.length, null));
+
+        pool.invoke(new TokenizeAllTask<>(getSnapshot(), textArray, offsets, results, new ConcurrentLinkedQueue<ArrayViterbiLattice>(), pool, 0, textArray.length));
+
+        return results;
+    }
+
+    /**
+     * Finds the end of a chunk of whole sentences to tokenize in parallel
+     *
+     * @param text  text to tokenize
+     * @param start  start of the chunk
+     * @return end of the chunk (exclusive)
+     */
+    private int getChunkEnd(String text, int start) {
+        if (text.length() - start < 2 * PARALLEL_CHUNK_SIZE) {
+            return text.length();
+        }
+
+        int position = getNextSplitPosition(text, start + PARALLEL_CHUNK_SIZE - 1);
+
+        return position < 0 ? text.length() : position + 1;
+    }
+
+    private static <V> V getTaskResult(FutureTask<V> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for tokenization to complete.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not tokenize text.", e.getCause());
+        }
+    }
+
+    /**
+     * Tokenizes text read from a reader and passes the tokens to a consumer as they are found
+     * <p>
+     * Only a bounded window of the input is kept in memory. The tokens are the same as when tokenizing the whole
+     * input as a string, and their positions are relative to the start of the input. Sentences are committed when
+     * their ending 。 or 、 is read. Longer runs of text are committed up to the point where all candidate paths
+     * through the lattice converge and no word spans the point, including user dictionary words, assuming no word
+     * is longer than a thousand characters. In extended mode, the unigrams of unknown words are passed after the
+     * other tokens of the committed part rather than after all tokens of the input.
+     * <p>
+     * This method is thread safe
+     *
+     * @param reader  reader to tokenize, not closed by this method
+     * @param consumer  consumer to pass the tokens to
+     * @param <T>  token type
+     * @throws IOException if an error occurs when reading
+     */
+    public <T extends TokenBase> void tokenize(Reader reader, TokenConsumer<T> consumer) throws IOException {
+        tokenize(reader, consumer, new ArrayViterbiLattice());
+    }
+
+    <T extends TokenBase> void tokenize(Reader reader, TokenConsumer<T> consumer, ArrayViterbiLattice lattice) throws IOException {
+        Snapshot snapshot = getSnapshot();
+        ViterbiBuilder viterbiBuilder = snapshot.viterbiBuilder;
+        char[] buffer = new char[STREAM_READ_SIZE];
+        StringBuilder window = new StringBuilder();
+        List<T> tokens = new ArrayList<>();
+
+        int position = 0; // position of the window in the input
+        int leftContextId = 0; // right id of the last token committed in the current sentence
+        int read;
+
+        while ((read = reader.read(buffer)) != -1) {
+            window.append(buffer, 0, read);
+
+            TokenCollector<T> collector = new TokenCollector<>(tokens, window, position);
+            int committed = 0;
+            int splitPosition;
+
+            while (split && (splitPosition = getNextSplitPosition(window, committed)) >= 0) {
+                viterbiBuilder.buildAndSearch(window, committed, splitPosition + 1 - committed, leftContextId, lattice, viterbiSearcher);
+                visitBestPath(snapshot, collector, lattice);
+                leftContextId = 0;
+                committed = splitPosition + 1;
+            }
+
+            while (window.length() - committed >= STREAM_WINDOW_SIZE) {
+                int length = window.length() - committed;
+                int last = viterbiBuilder.buildAndSearchConverged(
+                    window, committed, length, length - STREAM_LOOKAHEAD, leftContextId, lattice, viterbiSearcher
+                );
+
+                if (last == -1) {
+                    throw new IllegalStateException("Could not tokenize the input at position " + (position + committed));
+                }
+
+                visitBestPath(snapshot, collector, lattice);
+                leftContextId = lattice.getRightId(last);
+                committed += lattice.getStartIndex(last) + lattice.getLength(last);
+            }
+
+            for (T token : tokens) {
+                consumer.accept(token);
+            }
+            tokens.clear();
+
+            window.delete(0, committed);
+            position += committed;
+        }
+
+        if (window.length() > 0) {
+            viterbiBuilder.buildAndSearch(window, 0, window.length(), leftContextId, lattice, viterbiSearcher);
+            visitBestPath(snapshot, new TokenCollector<>(tokens, window, position), lattice);
+
+            for (T token : tokens) {
+                consumer.accept(token);
+            }
+        }
+    }
+
     /**
      * Tokenizes the provided text and returns up to maxCount lists of tokens with various feature information.
      * Each list corresponds to a possible tokenization with cost at most OPT + costSlack, where OPT is the optimal solution.
@@ -180,36 +649,37 @@ public abstract class TokenizerBase {
      * @return list of Token, not null
      */
     protected <T extends TokenBase> List<List<T>> createMultiTokenList(String text, int maxCount, int costSlack) {
+        Snapshot snapshot = getSnapshot();
 
         if (!split) {
-            return convertMultiSearchResultToList(createMultiSearchResult(text, maxCount, costSlack));
+            return convertMultiSearchResultToList(snapshot, createMultiSearchResult(snapshot, text, 0, text.length(), maxCount, costSlack));
         }
 
         List<Integer> splitPositions = getSplitPositions(text);
 
         if (splitPositions.size() == 0) {
-            return convertMultiSearchResultToList(createMultiSearchResult(text, maxCount, costSlack));
+            return convertMultiSearchResultToList(snapshot, createMultiSearchResult(snapshot, text, 0, text.length(), maxCount, costSlack));
         }
 
         List<MultiSearchResult> results = new ArrayList<>();
         int offset = 0;
 
         for (int position : splitPositions) {
-            results.add(createMultiSearchResult(text.substring(offset, position + 1), maxCount, costSlack));
+            results.add(createMultiSearchResult(snapshot, text, offset, position + 1 - offset, maxCount, costSlack));
             offset = position + 1;
         }
 
         if (offset < text.length()) {
-            results.add(createMultiSearchResult(text.substring(offset), maxCount, costSlack));
+            results.add(createMultiSearchResult(snapshot, text, offset, text.length() - offset, maxCount, costSlack));
         }
 
         MultiSearchMerger merger = new MultiSearchMerger(maxCount, costSlack);
         MultiSearchResult mergedResult = merger.merge(results);
 
-        return convertMultiSearchResultToList(mergedResult);
+        return convertMultiSearchResultToList(snapshot, mergedResult);
     }
 
-    private <T extends TokenBase> List<List<T>> convertMultiSearchResultToList(MultiSearchResult multiSearchResult) {
+    private <T extends TokenBase> List<List<T>> convertMultiSearchResultToList(Snapshot snapshot, MultiSearchResult multiSearchResult) {
         List<List<T>> result = new ArrayList<>();
 
         List<List<ViterbiNode>> paths = multiSearchResult.getTokenizedResultsList();
@@ -221,13 +691,16 @@ public abstract class TokenizerBase {
                 if (node.getType() == ViterbiNode.Type.KNOWN && wordId == -1) { // Do not include BOS/EOS
                     continue;
                 }
+                if (tokenFilter != null && !tokenFilter.accept(wordId, node.getType(), snapshot.dictionaryMap.get(node.getType()))) {
+                    continue;
+                }
                 @SuppressWarnings("unchecked")
                 T token = (T) tokenFactory.createToken(
                         wordId,
                         node.getSurface(),
                         node.getType(),
                         node.getStartIndex(),
-                        dictionaryMap.get(node.getType())
+                        snapshot.dictionaryMap.get(node.getType())
                 );
                 tokens.add(token);
             }
@@ -249,7 +722,7 @@ public abstract class TokenizerBase {
      * @throws java.io.IOException if an error occurs when writing the lattice and path
      */
     public void debugTokenize(OutputStream outputStream, String text) throws IOException {
-        ViterbiLattice lattice = viterbiBuilder.build(text);
+        ViterbiLattice lattice = getSnapshot().viterbiBuilder.build(text);
         List<ViterbiNode> bestPath = viterbiSearcher.search(lattice);
 
         outputStream.write(
@@ -270,7 +743,7 @@ public abstract class TokenizerBase {
      * @throws java.io.IOException if an error occurs when writing the lattice
      */
     public void debugLattice(OutputStream outputStream, String text) throws IOException {
-        ViterbiLattice lattice = viterbiBuilder.build(text);
+        ViterbiLattice lattice = getSnapshot().viterbiBuilder.build(text);
 
         outputStream.write(
             viterbiFormatter.format(lattice).getBytes(StandardCharsets.UTF_8)
@@ -278,6 +751,24 @@ public abstract class TokenizerBase {
         outputStream.flush();
     }
 
+    /**
+     * Finds the next position to split the input text at
+     *
+     * @param text  input text
+     * @param from  index to start searching from
+     * @return index of the next 。 or 、 at or after from, or -1 if there is none
+     */
+    private int getNextSplitPosition(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c == '。' || c == '、') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Split input text at 句読点, which is 。 and 、
      *
@@ -312,61 +803,233 @@ public abstract class TokenizerBase {
 
     /**
      * Tokenize input sentence.
+     * <p>
+     * The sentence is a region of the input text that is not copied
      *
-     * @param offset   offset of sentence in original input text
-     * @param text sentence to tokenize
-     * @return list of Token
+     * @param snapshot  lattice builder and dictionaries to use
+     * @param visitor  visitor to pass the tokens to
+     * @param lattice  lattice to build the sentence into
+     * @param text  input text containing the sentence
+     * @param offset  offset of sentence in input text
+     * @param length  length of sentence
      */
-    private <T extends TokenBase> List<T> createTokenList(int offset, String text) {
-        ArrayList<T> result = new ArrayList<>();
+    private void visitTokens(Snapshot snapshot, TokenVisitor visitor, ArrayViterbiLattice lattice, CharSequence text, int offset, int length) {
+        snapshot.viterbiBuilder.buildAndSearch(text, offset, length, lattice, viterbiSearcher);
+        visitBestPath(snapshot, visitor, lattice);
+    }
 
-        ViterbiLattice lattice = viterbiBuilder.build(text);
-        List<ViterbiNode> bestPath = viterbiSearcher.search(lattice);
+    /**
+     * Passes the tokens on the best path found in a lattice to a visitor
+     *
+     * @param snapshot  dictionaries the lattice was built with
+     * @param visitor  visitor to pass the tokens to, with start indices in the lattice text
+     * @param lattice  searched lattice
+     */
+    private void visitBestPath(Snapshot snapshot, TokenVisitor visitor, ArrayViterbiLattice lattice) {
+        int offset = lattice.getOffset();
+
+        for (int i = 0; i < lattice.getBestPathLength(); i++) {
+            int node = lattice.getBestPathNode(i);
+            int wordId = lattice.getWordId(node);
+            ViterbiNode.Type type = lattice.getType(node);
+            Dictionary dictionary = snapshot.dictionaryMap.get(type);
 
-        for (ViterbiNode node : bestPath) {
-            int wordId = node.getWordId();
-            if (node.getType() == ViterbiNode.Type.KNOWN && wordId == -1) { // Do not include BOS/EOS
+            if (tokenFilter != null && !tokenFilter.accept(wordId, type, dictionary)) {
                 continue;
             }
-            @SuppressWarnings("unchecked")
-            T token = (T) tokenFactory.createToken(
+
+            visitor.visit(
                 wordId,
-                node.getSurface(),
-                node.getType(),
-                offset + node.getStartIndex(),
-                dictionaryMap.get(node.getType())
+                type,
+                offset + lattice.getStartIndex(node),
+                lattice.getLength(node),
+                dictionary
             );
-            result.add(token);
         }
-
-        return result;
     }
 
     /**
      * Tokenize input sentence. Up to maxCount different paths of cost at most OPT + costSlack are returned ordered in ascending order by cost, where OPT is the optimal solution.
      *
-     * @param text sentence to tokenize
+     * @param snapshot  lattice builder and dictionaries to use
+     * @param text  input text containing the sentence
+     * @param offset  offset of sentence in input text
+     * @param length  length of sentence
      * @param maxCount  maximum number of paths
      * @param costSlack  maximum cost slack of a path
      * @return  instance of MultiSearchResult containing the tokenizations
      */
-    private MultiSearchResult createMultiSearchResult(String text, int maxCount, int costSlack) {
-        ViterbiLattice lattice = viterbiBuilder.build(text);
+    private MultiSearchResult createMultiSearchResult(Snapshot snapshot, CharSequence text, int offset, int length, int maxCount, int costSlack) {
+        ViterbiLattice lattice = snapshot.viterbiBuilder.build(text, offset, length);
         MultiSearchResult multiSearchResult = viterbiSearcher.searchMultiple(lattice, maxCount, costSlack);
         return multiSearchResult;
     }
 
+    /**
+     * Tokenizes a range of texts, splitting it in two halves by character count if it is large
+     *
+     * @param <T>  token type
+     */
+    private class TokenizeAllTask<T extends TokenBase> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Snapshot snapshot;
+        private final String[] texts;
+        private final long[] offsets;
+        private final List<List<T>> results;
+        private final Queue<ArrayViterbiLattice> lattices;
+        private final Executor executor;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor
+         *
+         * @param snapshot  lattice builder and dictionaries to use for all texts
+         * @param texts  all texts to tokenize
+         * @param offsets  number of characters in all texts before each text
+         * @param results  list to store the tokens for each text in
+         * @param lattices  lattices not in use by any worker
+         * @param executor  executor to tokenize large texts in parallel with
+         * @param from  first text to tokenize
+         * @param to  end of the range of texts to tokenize (exclusive)
+         */
+        TokenizeAllTask(Snapshot snapshot, String[] texts, long[] offsets, List<List<T>> results, Queue<ArrayViterbiLattice> lattices, Executor executor, int from, int to) {
+            this.snapshot = snapshot;
+            this.texts = texts;
+            this.offsets = offsets;
+            this.results = results;
+            this.lattices = lattices;
+            this.executor = executor;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1 && texts[from].length() >= 2 * PARALLEL_CHUNK_SIZE) {
+                results.set(from, tokenize(snapshot, texts[from], executor));
+            } else if (to - from == 1 || offsets[to] - offsets[from] <= PARALLEL_CHUNK_SIZE) {
+                tokenizeRange();
+            } else {
+                int middle = findMiddle();
+
+                invokeAll(
+                    new TokenizeAllTask<>(snapshot, texts, offsets, results, lattices, executor, from, middle),
+                    new TokenizeAllTask<>(snapshot, texts, offsets, results, lattices, executor, middle, to)
+                );
+            }
+        }
+
+        private void tokenizeRange() {
+            ArrayViterbiLattice lattice = lattices.poll();
+
+            if (lattice == null) {
+                lattice = new ArrayViterbiLattice();
+            }
+
+            for (int i = from; i < to; i++) {
+                List<T> tokens = new ArrayList<>();
+                tokenize(snapshot, texts[i], 0, texts[i].length(), new TokenCollector<>(tokens, texts[i], 0), lattice);
+                results.set(i, tokens);
+            }
+
+            lattices.offer(lattice);
+        }
+
+        /**
+         * Finds the text that splits the range in two halves with about the same number of characters
+         *
+         * @return first text of the second half, always after the first text and before the end of the range
+         */
+        private int findMiddle() {
+            long half = offsets[from] + (offsets[to] - offsets[from]) / 2;
+            int index = Arrays.binarySearch(offsets, from + 1, to, half);
+
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return Math.max(from + 1, Math.min(index, to - 1));
+        }
+    }
+
+    /**
+     * Creates tokens for the visited words and adds them to a list
+     *
+     * @param <T>  token type
+     */
+    private class TokenCollector<T extends TokenBase> implements TokenVisitor {
+
+        private final List<T> result;
+        private final CharSequence text;
+        private final int position;
+
+        /**
+         * Constructor
+         *
+         * @param result  list to add the tokens to
+         * @param text  text visited
+         * @param position  position of the text in the input
+         */
+        TokenCollector(List<T> result, CharSequence text, int position) {
+            this.result = result;
+            this.text = text;
+            this.position = position;
+        }
+
+        @Override
+        public void visit(int wordId, ViterbiNode.Type type, int start, int length, Dictionary dictionary) {
+            @SuppressWarnings("unchecked")
+            T token = (T) tokenFactory.createToken(
+                wordId,
+                text.subSequence(start, start + length).toString(),
+                type,
+                position + start,
+                dictionary
+            );
+            result.add(token);
+        }
+    }
+
+    /**
+     * Lattice builder and dictionaries used together by a tokenize call
+     * <p>
+     * A tokenize call gets the current snapshot once and uses it throughout, so replacing the user dictionary does
+     * not affect calls that are already running, nor token arrays created before the replacement
+     */
+    static final class Snapshot {
+
+        final UserDictionaryBase userDictionary;
+        final ViterbiBuilder viterbiBuilder;
+        final EnumMap<ViterbiNode.Type, Dictionary> dictionaryMap;
+
+        Snapshot(UserDictionaryBase userDictionary, ViterbiBuilder viterbiBuilder, EnumMap<ViterbiNode.Type, Dictionary> dictionaryMap) {
+            this.userDictionary = userDictionary;
+            this.viterbiBuilder = viterbiBuilder;
+            this.dictionaryMap = dictionaryMap;
+        }
+    }
+
     /**
      * Abstract Builder shared by all tokenizers
      */
     public abstract static class Builder {
+        // Threads used in addition to the building thread, which loads the token info dictionary, when loading in parallel
+        private static final int PARALLEL_LOADING_THREADS = 3;
+
+        private static final int DEFAULT_FEATURE_CACHE_SIZE = 4096;
+
+        protected SystemDictionary systemDictionary;
         protected FST fst;
         protected ConnectionCosts connectionCosts;
         protected TokenInfoDictionary tokenInfoDictionary;
         protected UnknownDictionary unknownDictionary;
         protected CharacterDefinitions characterDefinitions;
         protected InsertedDictionary insertedDictionary;
-        protected UserDictionary userDictionary = null;
+        protected DictionaryOverlay dictionaryOverlay;
+        protected UserDictionaryBase userDictionary = null;
+        protected UserDictionaryHolder userDictionaryHolder = null;
 
         protected Mode mode = Mode.NORMAL;
         protected boolean split = true;
@@ -378,23 +1041,123 @@ public abstract class TokenizerBase {
 
         protected ResourceResolver resolver;
 
+        protected ResourceResolver overlayResolver;
+
         protected TokenFactory tokenFactory;
 
+        protected TokenFilter tokenFilter;
+
+        protected boolean shareDictionaries = true;
+
+        protected boolean parallelLoading = false;
+
+        protected int featureCacheSize = DEFAULT_FEATURE_CACHE_SIZE;
+
+        protected Map<String, Long> dictionaryLoadTimes = Collections.emptyMap();
+
         protected void loadDictionaries() {
             try {
-                fst = FST.newInstance(resolver);
-                connectionCosts = ConnectionCosts.newInstance(resolver);
-                tokenInfoDictionary = TokenInfoDictionary.newInstance(resolver);
-                characterDefinitions = CharacterDefinitions.newInstance(resolver);
-                unknownDictionary = UnknownDictionary.newInstance(
-                    resolver, characterDefinitions, totalFeatures
+                SystemDictionary dictionary = getSystemDictionary(
+                    dictionaryKey(),
+                    new DictionaryRegistry.Loader() {
+                        @Override
+                        public SystemDictionary load() throws IOException {
+                            return loadSystemDictionary();
+                        }
+                    }
                 );
+
+                if (overlayResolver != null) {
+                    final SystemDictionary base = dictionary;
+
+                    // The base dictionary is registered on its own, so that it is shared with tokenizers without the overlay
+                    dictionary = getSystemDictionary(
+                        Arrays.asList(dictionaryKey(), overlayResolver),
+                        new DictionaryRegistry.Loader() {
+                            @Override
+                            public SystemDictionary load() throws IOException {
+                                return base.withOverlay(loadDictionaryOverlay(base));
+                            }
+                        }
+                    );
+                }
+
+                systemDictionary = dictionary;
+                fst = dictionary.getFst();
+                dictionaryOverlay = dictionary.getOverlay();
+                connectionCosts = dictionary.getConnectionCosts();
+                tokenInfoDictionary = dictionary.getTokenInfoDictionary();
+                characterDefinitions = dictionary.getCharacterDefinitions();
+                unknownDictionary = dictionary.getUnknownDictionary();
                 insertedDictionary = new InsertedDictionary(totalFeatures);
+                insertedDictionary.setSystemDictionary(tokenInfoDictionary);
+                dictionaryLoadTimes = dictionary.getLoadTimes();
             } catch (Exception ouch) {
                 throw new RuntimeException("Could not load dictionaries.", ouch);
             }
         }
 
+        private SystemDictionary getSystemDictionary(Object key, DictionaryRegistry.Loader loader) throws IOException {
+            if (shareDictionaries) {
+                return DictionaryRegistry.getInstance().get(key, loader);
+            }
+            return loader.load();
+        }
+
+        /**
+         * Loads the dictionary overlay using the overlay resolver of this builder
+         *
+         * @param base  system dictionary the overlay is for
+         * @return dictionary overlay, not null
+         * @throws IOException if an error occurs loading the overlay, or it was compiled for a different system dictionary
+         */
+        protected DictionaryOverlay loadDictionaryOverlay(SystemDictionary base) throws IOException {
+            DictionaryOverlay overlay = DictionaryOverlay.newInstance(overlayResolver, base);
+
+            overlay.getTokenInfoDictionary().setFeatureCacheSize(featureCacheSize);
+
+            return overlay;
+        }
+
+        /**
+         * Loads the system dictionary using the resolver of this builder
+         *
+         * @return system dictionary, not null
+         * @throws IOException if an error occurs loading the dictionary
+         */
+        protected SystemDictionary loadSystemDictionary() throws IOException {
+            SystemDictionaryLoader loader = new SystemDictionaryLoader(resolver, totalFeatures);
+            SystemDictionary dictionary;
+
+            if (parallelLoading) {
+                ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_LOADING_THREADS);
+
+                try {
+                    dictionary = loader.load(executor);
+                } finally {
+                    executor.shutdown();
+                }
+            } else {
+                dictionary = loader.load();
+            }
+
+            dictionary.getTokenInfoDictionary().setFeatureCacheSize(featureCacheSize);
+
+            return dictionary;
+        }
+
+        /**
+         * Gets the key identifying the system dictionary loaded by this builder in the {@link DictionaryRegistry}
+         * <p>
+         * Builders that load a dictionary differently, for example by modifying its character definitions, must
+         * include their settings in the key
+         *
+         * @return key, compared using equals
+         */
+        protected Object dictionaryKey() {
+            return Arrays.asList(resolver, totalFeatures, featureCacheSize);
+        }
+
         /**
          * Creates a Tokenizer instance defined by this Builder
          *
@@ -403,6 +1166,100 @@ public abstract class TokenizerBase {
          */
         public abstract <T extends TokenizerBase> T build();
 
+        /**
+         * Sets the resolver used to load the compiled dictionary
+         * <p>
+         * By default, a dictionary is loaded from the classpath resources of its module. Use a
+         * {@link com.atilika.kuromoji.util.FileChannelResourceResolver} to memory-map a compiled dictionary in a
+         * directory instead of copying it to the heap, or a {@link com.atilika.kuromoji.util.PackedResourceResolver}
+         * to map a packed dictionary image
+         *
+         * @param resolver  resolver to load the dictionary with
+         * @return this builder
+         */
+        public Builder resourceResolver(ResourceResolver resolver) {
+            this.resolver = resolver;
+            return this;
+        }
+
+        /**
+         * Sets the resolver used to load a dictionary overlay, which adds words to the system dictionary
+         * <p>
+         * An overlay holds only the words it adds, such as the NEologd words, and uses the connection costs and
+         * feature values of the system dictionary it was compiled for with
+         * {@link com.atilika.kuromoji.compile.DictionaryCompilerBase#buildOverlay(String, String, String, String)}.
+         * When dictionaries are shared, tokenizers with and without the overlay share one copy of the system
+         * dictionary.
+         *
+         * @param overlayResolver  resolver to load the overlay with, or null to use no overlay
+         * @return this builder
+         */
+        public Builder dictionaryOverlay(ResourceResolver overlayResolver) {
+            this.overlayResolver = overlayResolver;
+            return this;
+        }
+
+        /**
+         * Sets whether tokenizers share loaded system dictionaries
+         * <p>
+         * By default, tokenizers built with the same dictionary settings share one copy of the system dictionary
+         * through the {@link DictionaryRegistry}, regardless of their mode, penalties or user dictionary. Disable
+         * sharing to load a separate copy for the tokenizer built.
+         *
+         * @param shareDictionaries  whether to share system dictionaries
+         * @return this builder
+         */
+        public Builder shareDictionaries(boolean shareDictionaries) {
+            this.shareDictionaries = shareDictionaries;
+            return this;
+        }
+
+        /**
+         * Sets whether to load the components of the system dictionary in parallel
+         * <p>
+         * The FST, connection costs, token info dictionary and unknown word definitions are then loaded at the same
+         * time on a few short-lived threads, which reduces the time to build a tokenizer for a large dictionary. Use
+         * {@link TokenizerBase#getDictionaryLoadTimes()} to see how long each component took.
+         *
+         * @param parallelLoading  whether to load dictionary components in parallel
+         * @return this builder
+         */
+        public Builder loadDictionariesInParallel(boolean parallelLoading) {
+            this.parallelLoading = parallelLoading;
+            return this;
+        }
+
+        /**
+         * Sets the number of decoded feature values, such as base forms and readings, kept in a cache
+         * <p>
+         * Cached values are decoded once and returned as the same instance, which reduces allocation when the same
+         * words occur repeatedly. Part of speech values are always decoded once when the dictionary is loaded. The
+         * default is 4096. Use {@link TokenizerBase#getFeatureCacheHits()} and
+         * {@link TokenizerBase#getFeatureCacheMisses()} to see how well the cache works for your input.
+         *
+         * @param featureCacheSize  maximum number of cached feature values, or 0 to disable the cache
+         * @return this builder
+         */
+        public Builder featureCacheSize(int featureCacheSize) {
+            this.featureCacheSize = featureCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets a filter deciding which words become tokens
+         * <p>
+         * The filter is evaluated before tokens are created, so dropped words cost neither a token object nor any
+         * feature decoding. It applies to all ways of tokenizing, including visitors, streams and multiple
+         * tokenizations. The dictionary modules provide ready-made {@link PartOfSpeechFilter}s.
+         *
+         * @param tokenFilter  filter to apply, or null to keep all tokens
+         * @return this builder
+         */
+        public Builder tokenFilter(TokenFilter tokenFilter) {
+            this.tokenFilter = tokenFilter;
+            return this;
+        }
+
         /**
          * Sets an optional user dictionary as an input stream
          * <p>
@@ -435,5 +1292,73 @@ public abstract class TokenizerBase {
             input.close();
             return this;
         }
+
+        /**
+         * Sets an optional user dictionary compiled by {@link #compileUserDictionary(InputStream, OutputStream)}
+         * <p>
+         * The compiled image is memory-mapped and used as is, so loading it takes neither parsing nor heap
+         * proportional to the number of entries
+         *
+         * @param filename  compiled user dictionary filename
+         * @return this builder
+         * @throws java.io.IOException if the file can not be mapped, is not a compiled user dictionary, or was compiled
+         * for a different number of features
+         */
+        public Builder compiledUserDictionary(String filename) throws IOException {
+            CompiledUserDictionary dictionary = CompiledUserDictionary.newInstance(new File(filename));
+
+            if (dictionary.getTotalFeatures() != totalFeatures) {
+                throw new IOException(
+                    "Compiled user dictionary has " + dictionary.getTotalFeatures() + " features, expected " + totalFeatures
+                );
+            }
+
+            this.userDictionary = dictionary;
+            return this;
+        }
+
+        /**
+         * Sets a holder of a user dictionary that can be replaced while the tokenizer is in use
+         * <p>
+         * The holder is used instead of any user dictionary set directly, and can be shared by several tokenizers.
+         * Each tokenize call uses the dictionary held when it starts.
+         *
+         * @param holder  user dictionary holder, see {@link #newUserDictionaryHolder()}
+         * @return this builder
+         */
+        public Builder userDictionary(UserDictionaryHolder holder) {
+            this.userDictionaryHolder = holder;
+            return this;
+        }
+
+        /**
+         * Creates a user dictionary holder for the features of the tokenizer built by this builder
+         * <p>
+         * The holder holds the user dictionary set on this builder, if any
+         *
+         * @return new user dictionary holder, not null
+         */
+        public UserDictionaryHolder newUserDictionaryHolder() {
+            UserDictionaryHolder holder = new UserDictionaryHolder(totalFeatures, readingFeature, partOfSpeechFeature);
+
+            holder.set(userDictionary);
+            return holder;
+        }
+
+        /**
+         * Compiles a user dictionary in CSV format for use with {@link #compiledUserDictionary(String)}
+         * <p>
+         * The dictionary is compiled for the features of the tokenizer built by this builder. Neither stream is
+         * closed by this method.
+         *
+         * @param input  user dictionary in CSV format
+         * @param output  output to write the compiled user dictionary to
+         * @return this builder
+         * @throws java.io.IOException if an error occurs reading or writing
+         */
+        public Builder compileUserDictionary(InputStream input, OutputStream output) throws IOException {
+            new UserDictionaryCompiler(input, output, totalFeatures, readingFeature, partOfSpeechFeature).compile();
+            return this;
+        }
     }
 }
@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+import com.atilika.kuromoji.viterbi.ArrayViterbiLattice;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tokenization session that reuses its working buffers across calls
+ * <p>
+ * The session owns the lattice and result list used when tokenizing, and these grow to fit the largest input seen
+ * so far. The dictionaries are shared with the tokenizer that created the session.
+ * <p>
+ * This class is not thread safe. Create one session per thread using {@link TokenizerBase#newSession()}.
+ *
+ * @param <T>  token type
+ */
+public class TokenizerSession<T extends TokenBase> {
+
+    private final TokenizerBase tokenizer;
+
+    private final ArrayViterbiLattice lattice = new ArrayViterbiLattice();
+
+    private final ArrayList<T> tokens = new ArrayList<>();
+
+    private final List<T> unmodifiableTokens = Collections.unmodifiableList(tokens);
+
+    TokenizerSession(TokenizerBase tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Tokenizes the provided text
+     * <p>
+     * The returned list is owned by the session and is only valid until the next call to this session. Copy the
+     * list if the tokens need to be kept.
+     *
+     * @param text  text to tokenize
+     * @return unmodifiable list of tokens, not null
+     */
+    public List<T> tokenize(String text) {
+        tokens.clear();
+        tokenizer.createTokenList(tokens, lattice, text);
+        return unmodifiableTokens;
+    }
+
+    /**
+     * Tokenizes the provided text and adds the tokens to the end of a list supplied by the caller
+     *
+     * @param text  text to tokenize
+     * @param result  list to add the tokens to
+     */
+    public void tokenize(String text, List<T> result) {
+        tokenizer.createTokenList(result, lattice, text);
+    }
+
+    /**
+     * Tokenizes text read from a reader and passes the tokens to a consumer as they are found
+     *
+     * @param reader  reader to tokenize, not closed by this method
+     * @param consumer  consumer to pass the tokens to
+     * @throws IOException if an error occurs when reading
+     * @see TokenizerBase#tokenize(Reader, TokenConsumer)
+     */
+    public void tokenize(Reader reader, TokenConsumer<T> consumer) throws IOException {
+        tokenizer.tokenize(reader, consumer, lattice);
+    }
+
+    /**
+     * Tokenizes the provided text and passes each token to a visitor without creating token objects
+     *
+     * @param text  text to tokenize
+     * @param visitor  visitor to pass the tokens to
+     * @see TokenizerBase#tokenize(CharSequence, TokenVisitor)
+     */
+    public void tokenize(CharSequence text, TokenVisitor visitor) {
+        tokenizer.tokenize(text, visitor, lattice);
+    }
+}
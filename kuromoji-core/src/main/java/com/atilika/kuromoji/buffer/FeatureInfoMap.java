@@ -28,6 +28,27 @@ public class FeatureInfoMap {
 
     private int maxValue = 0;
 
+    private int baseEntryCount = 0;
+
+    public FeatureInfoMap() {
+    }
+
+    /**
+     * Creates a map extending the values of a compiled dictionary, for compiling a dictionary overlay
+     * <p>
+     * Values of the base dictionary keep their ids, and new values get ids following them
+     *
+     * @param base  values of the base dictionary
+     */
+    public FeatureInfoMap(StringValueMapBuffer base) {
+        for (int key = base.size() - 1; key >= 0; key--) {
+            featureMap.put(base.get(key), key); // The lowest key of a duplicate value is kept
+        }
+
+        maxValue = base.size();
+        baseEntryCount = maxValue;
+    }
+
     public List<Integer> mapFeatures(String[] features) {
         List<Integer> posFeatureIds = new ArrayList<>();
         for (String feature : features) {
@@ -42,11 +63,20 @@ public class FeatureInfoMap {
         return posFeatureIds;
     }
 
+    /**
+     * Gets the values by id, leaving out the values taken from a base dictionary
+     *
+     * @return values by id, not null
+     */
     public TreeMap<Integer, String> invert() {
         TreeMap<Integer, String> features = new TreeMap<>();
 
         for (String key : featureMap.keySet()) {
-            features.put(featureMap.get(key), key);
+            int value = featureMap.get(key);
+
+            if (value >= baseEntryCount) {
+                features.put(value, key);
+            }
         }
 
         return features;
@@ -56,6 +86,13 @@ public class FeatureInfoMap {
         return maxValue;
     }
 
+    /**
+     * @return number of values taken from a base dictionary, which are not written with this map
+     */
+    public int getBaseEntryCount() {
+        return baseEntryCount;
+    }
+
     @Override
     public String toString() {
         return "FeatureInfoMap{" +
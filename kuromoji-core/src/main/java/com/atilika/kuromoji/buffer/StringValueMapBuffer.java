@@ -25,7 +25,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class StringValueMapBuffer {
 
@@ -39,20 +42,200 @@ public class StringValueMapBuffer {
 
     private static final char KATAKANA_BASE = '\u3000'; // Katakana start at U+30A0
 
+    private static final char BYTE_ORDER_MARK = '\ufeff'; // Values are big-endian UTF-16 starting with a BOM
+
+    private static final char QUOTE = '"';
+
+    private static final char COMMA = ',';
+
     private ByteBuffer buffer;
 
     private int size;
 
+    // Map holding the values of the keys below baseSize, if this map extends another map
+    private StringValueMapBuffer base;
+
+    private int baseSize;
+
+    private String[] values;
+
+    private CachedValue[] cache;
+
+    private int cacheMask;
+
+    private volatile Map<String, Integer> keys;
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
     public StringValueMapBuffer(TreeMap<Integer, String> features) {
         put(features);
     }
 
     public StringValueMapBuffer(InputStream is) throws IOException {
-        buffer = ByteBufferIO.read(new BufferedInputStream(is));
-        size = buffer.getInt();
+        this(ByteBufferIO.read(new BufferedInputStream(is)));
+    }
+
+    /**
+     * Creates a string value map reading its values directly from a buffer, such as a memory-mapped file
+     *
+     * @param buffer  buffer as read by {@link ByteBufferIO#read(InputStream)}
+     */
+    public StringValueMapBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        size = buffer.getInt(0);
+    }
+
+    /**
+     * Creates a string value map extending another map, such as the feature values of a dictionary overlay
+     * <p>
+     * Keys below the size of the base map get their values from the base map, and the values in the buffer follow
+     * with keys starting at that size. The base map is shared, not copied.
+     *
+     * @param base  map with the values of the lowest keys
+     * @param buffer  buffer as read by {@link ByteBufferIO#read(InputStream)}, with the values following the base map
+     */
+    public StringValueMapBuffer(StringValueMapBuffer base, ByteBuffer buffer) {
+        this(buffer);
+        this.base = base;
+        this.baseSize = base.size();
+    }
+
+    /**
+     * @return number of values in this map, including the values of any map it extends
+     */
+    public int size() {
+        return baseSize + size;
+    }
+
+    /**
+     * Decodes all values once and keeps them, so that getting a value returns the same instance every time
+     * <p>
+     * Intended for small maps such as the part of speech values. Must be called before the map is shared between
+     * threads.
+     */
+    public void materialize() {
+        String[] decoded = new String[size];
+
+        for (int key = 0; key < size; key++) {
+            decoded[key] = decode(key);
+        }
+
+        values = decoded;
+        cache = null;
+    }
+
+    /**
+     * Keeps recently decoded values in a bounded cache, so that repeated values are decoded once and returned as the
+     * same instance
+     * <p>
+     * The cache maps each key to one of a fixed number of slots, and a value replaces the value in its slot. It is
+     * safe for concurrent use without locking. Must be called before the map is shared between threads.
+     *
+     * @param capacity  maximum number of cached values, rounded up to a power of two, or 0 to disable caching
+     */
+    public void cache(int capacity) {
+        if (capacity <= 0) {
+            cache = null;
+            return;
+        }
+
+        int slots = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+
+        cache = new CachedValue[slots];
+        cacheMask = slots - 1;
+    }
+
+    /**
+     * @return number of values found in the cache, see {@link #cache(int)}
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return number of values decoded because they were not in the cache, see {@link #cache(int)}
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
     }
 
     public String get(int key) {
+        if (key < baseSize) {
+            return base.get(key);
+        }
+
+        key -= baseSize;
+
+        if (values != null) {
+            return values[key];
+        }
+
+        CachedValue[] cache = this.cache;
+
+        if (cache == null) {
+            return decode(key);
+        }
+
+        int slot = key & cacheMask;
+        CachedValue cached = cache[slot];
+
+        if (cached != null && cached.key == key) {
+            cacheHits.increment();
+            return cached.value;
+        }
+
+        cacheMisses.increment();
+
+        String value = decode(key);
+        cache[slot] = new CachedValue(key, value);
+
+        return value;
+    }
+
+    /**
+     * Gets the key of a value
+     * <p>
+     * The first lookup indexes all values, which is cheap for small maps such as the part of speech values
+     *
+     * @param value  value to get the key for
+     * @return key, or -1 if the value is not in this map
+     */
+    public int keyOf(String value) {
+        if (base != null) {
+            int key = base.keyOf(value);
+
+            if (key >= 0) {
+                return key;
+            }
+        }
+
+        Map<String, Integer> keys = this.keys;
+
+        if (keys == null) {
+            keys = new HashMap<>(size * 2);
+
+            for (int key = baseSize + size - 1; key >= baseSize; key--) {
+                keys.put(get(key), key); // The lowest key of a duplicate value is kept
+            }
+
+            this.keys = keys;
+        }
+
+        Integer key = keys.get(value);
+
+        if (key == null) {
+            return -1;
+        }
+        return key;
+    }
+
+    private String decode(int key) {
         assert key >= 0 && key < size;
 
         final int keyIndex = (key + 1) * INTEGER_BYTES;
@@ -67,19 +250,111 @@ public class StringValueMapBuffer {
         }
     }
 
+    /**
+     * Appends a value to an appendable without creating a string
+     *
+     * @param key  value key
+     * @param output  appendable to append the value to
+     * @throws IOException if an error occurs appending
+     */
+    public void append(int key, Appendable output) throws IOException {
+        append(key, output, false);
+    }
+
+    /**
+     * Appends a value to an appendable without creating a string, escaped like
+     * {@link com.atilika.kuromoji.util.DictionaryEntryLineParser#escape(String)}
+     *
+     * @param key  value key
+     * @param output  appendable to append the value to
+     * @throws IOException if an error occurs appending
+     */
+    public void appendEscaped(int key, Appendable output) throws IOException {
+        append(key, output, true);
+    }
+
+    private void append(int key, Appendable output, boolean escape) throws IOException {
+        if (key < baseSize) {
+            base.append(key, output, escape);
+            return;
+        }
+
+        key -= baseSize;
+
+        assert key >= 0 && key < size;
+
+        final int keyIndex = (key + 1) * INTEGER_BYTES;
+        final int valueIndex = buffer.getInt(keyIndex);
+        int length = buffer.getShort(valueIndex);
+
+        if ((length & KATAKANA_FLAG) != 0) {
+            length &= KATAKANA_LENGTH_MASK;
+
+            // Katakana values have no characters to escape
+            for (int i = 0; i < length; i++) {
+                output.append((char) (KATAKANA_BASE + (buffer.get(valueIndex + SHORT_BYTES + i) & 0xff)));
+            }
+            return;
+        }
+
+        int start = valueIndex + SHORT_BYTES;
+        int end = start + length;
+
+        if (length >= SHORT_BYTES && buffer.getChar(start) == BYTE_ORDER_MARK) {
+            start += SHORT_BYTES;
+        }
+
+        boolean hasQuote = false;
+        boolean hasComma = false;
+
+        if (escape) {
+            for (int i = start; i < end; i += SHORT_BYTES) {
+                char c = buffer.getChar(i);
+                hasQuote |= c == QUOTE;
+                hasComma |= c == COMMA;
+            }
+        }
+
+        if (hasComma) {
+            output.append(QUOTE);
+        }
+
+        for (int i = start; i < end; i += SHORT_BYTES) {
+            char c = buffer.getChar(i);
+
+            if (hasQuote && c == QUOTE) {
+                output.append(QUOTE);
+            }
+            output.append(c);
+        }
+
+        if (hasComma) {
+            output.append(QUOTE);
+        }
+    }
+
     private String getKatakanaString(final int valueIndex, final int length) {
         final char[] string = new char[length];
-        final byte[] array = buffer.array();
 
         for (int i = 0; i < length; i++) {
-            string[i] = (char) (KATAKANA_BASE + (array[valueIndex + i] & 0xff));
+            string[i] = (char) (KATAKANA_BASE + (buffer.get(valueIndex + i) & 0xff));
         }
 
         return new String(string);
     }
 
     private String getString(final int valueIndex, final int length) {
-        return new String(buffer.array(), valueIndex, length, StandardCharsets.UTF_16);
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + valueIndex, length, StandardCharsets.UTF_16);
+        }
+
+        final byte[] bytes = new byte[length];
+        final ByteBuffer value = buffer.duplicate();
+
+        value.position(valueIndex);
+        value.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_16);
     }
 
     public void write(OutputStream output) throws IOException {
@@ -162,4 +437,16 @@ public class StringValueMapBuffer {
     private byte[] getBytes(String string) {
         return string.getBytes(StandardCharsets.UTF_16);
     }
+
+    private static final class CachedValue {
+
+        private final int key;
+
+        private final String value;
+
+        CachedValue(int key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
 }
@@ -28,8 +28,14 @@ public class TokenInfoBuffer {
     private static final int INTEGER_BYTES = Integer.SIZE / Byte.SIZE;
     private static final int SHORT_BYTES = Short.SIZE / Byte.SIZE;
 
+    // Left id, right id and word cost
+    private static final int CONNECTION_INFO_COUNT = 3;
+
     private ByteBuffer buffer;
 
+    // Connection infos of all entries, kept apart from the features for the Viterbi lattice, built on first use
+    private volatile short[] connectionInfos;
+
     private final int tokenInfoCount;
     private final int posInfoCount;
     private final int featureCount;
@@ -37,7 +43,20 @@ public class TokenInfoBuffer {
     private final int entrySize;
 
     public TokenInfoBuffer(InputStream is) throws IOException {
-        buffer = ByteBufferIO.read(new BufferedInputStream(is));
+        this(ByteBufferIO.read(new BufferedInputStream(is)));
+    }
+
+    /**
+     * Creates a token info buffer reading its entries directly from a buffer, such as a memory-mapped file
+     * <p>
+     * The buffer is used as is, so creating a token info buffer does not scan its entries. The left ids, right ids
+     * and word costs of all entries are copied to a dense array when they are first looked up, so that looking them
+     * up when building a lattice does not stride through the features of the entries.
+     *
+     * @param buffer  buffer as read by {@link ByteBufferIO#read(InputStream)}
+     */
+    public TokenInfoBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
         tokenInfoCount = getTokenInfoCount();
         posInfoCount = getPosInfoCount();
         featureCount = getFeatureCount();
@@ -72,10 +91,26 @@ public class TokenInfoBuffer {
     }
 
     public int lookupTokenInfo(int offset, int i) {
+        if (i < CONNECTION_INFO_COUNT) {
+            return getConnectionInfos()[offset * CONNECTION_INFO_COUNT + i];
+        }
+
         int position = getPosition(offset, entrySize);
         return buffer.getShort(position + i * SHORT_BYTES);
     }
 
+    public int lookupLeftId(int offset) {
+        return getConnectionInfos()[offset * CONNECTION_INFO_COUNT];
+    }
+
+    public int lookupRightId(int offset) {
+        return getConnectionInfos()[offset * CONNECTION_INFO_COUNT + 1];
+    }
+
+    public int lookupWordCost(int offset) {
+        return getConnectionInfos()[offset * CONNECTION_INFO_COUNT + 2];
+    }
+
     public int lookupPartOfSpeechFeature(int offset, int i) {
         int position = getPosition(offset, entrySize);
 
@@ -88,11 +123,112 @@ public class TokenInfoBuffer {
         return buffer.getInt(position + tokenInfoCount * SHORT_BYTES + posInfoCount + (i - posInfoCount) * INTEGER_BYTES);
     }
 
+    /**
+     * Gets the number of part of speech features of each entry
+     * <p>
+     * Part of speech features are stored as bytes when there are few distinct values, and as shorts after the word
+     * cost otherwise
+     *
+     * @return number of part of speech features
+     */
+    public int getPartOfSpeechFeatureCount() {
+        if (posInfoCount > 0) {
+            return posInfoCount;
+        }
+        return tokenInfoCount - CONNECTION_INFO_COUNT;
+    }
+
+    /**
+     * @return number of features of each entry, including part of speech features
+     */
+    public int getTotalFeatureCount() {
+        return getPartOfSpeechFeatureCount() + featureCount;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int getEntryCount() {
+        return buffer.getInt(INTEGER_BYTES);
+    }
+
+    /**
+     * Looks up the id of a feature of an entry
+     *
+     * @param offset  entry offset
+     * @param field  feature field, from 0 to {@link #getTotalFeatureCount()}
+     * @return key in the part of speech values for part of speech features, otherwise the key in the feature values
+     */
+    public int lookupFeatureId(int offset, int field) {
+        int position = getPosition(offset, entrySize);
+        int posCount = getPartOfSpeechFeatureCount();
+
+        if (field >= posCount) {
+            return buffer.getInt(position + tokenInfoCount * SHORT_BYTES + posInfoCount + (field - posCount) * INTEGER_BYTES);
+        }
+
+        if (posInfoCount > 0) {
+            return 0xff & buffer.get(position + tokenInfoCount * SHORT_BYTES + field);
+        }
+
+        return 0xffff & buffer.getShort(position + (CONNECTION_INFO_COUNT + field) * SHORT_BYTES);
+    }
+
+    /**
+     * Looks up the ids of all features of an entry without allocating
+     *
+     * @param offset  entry offset
+     * @param ids  array to write the ids to, with room for {@link #getTotalFeatureCount()} ids
+     * @return number of ids written
+     * @see #lookupFeatureId(int, int)
+     */
+    public int lookupFeatureIds(int offset, int[] ids) {
+        int count = getTotalFeatureCount();
+
+        for (int field = 0; field < count; field++) {
+            ids[field] = lookupFeatureId(offset, field);
+        }
+
+        return count;
+    }
+
     public boolean isPartOfSpeechFeature(int i) {
         int posInfoCount = getPosInfoCount();
         return (i < posInfoCount);
     }
 
+    private short[] getConnectionInfos() {
+        short[] infos = connectionInfos;
+
+        if (infos == null) {
+            synchronized (this) {
+                infos = connectionInfos;
+
+                if (infos == null) {
+                    infos = readConnectionInfos();
+                    connectionInfos = infos;
+                }
+            }
+        }
+
+        return infos;
+    }
+
+    private short[] readConnectionInfos() {
+        int entryCount = getEntryCount();
+        short[] connectionInfos = new short[entryCount * CONNECTION_INFO_COUNT];
+
+        for (int i = 0; i < entryCount; i++) {
+            int position = getPosition(i, entrySize);
+
+            for (int j = 0; j < CONNECTION_INFO_COUNT; j++) {
+                connectionInfos[i * CONNECTION_INFO_COUNT + j] = buffer.getShort(position + j * SHORT_BYTES);
+            }
+        }
+
+        return connectionInfos;
+    }
+
     private int getTokenInfoCount() {
         return buffer.getInt(INTEGER_BYTES * 2);
     }
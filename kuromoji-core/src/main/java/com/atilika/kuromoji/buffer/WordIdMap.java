@@ -20,29 +20,50 @@ import com.atilika.kuromoji.io.IntegerArrayIO;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 public class WordIdMap {
 
-    private final int[] indices;
+    private final IntBuffer indices;
 
-    private final int[] wordIds;
+    private final IntBuffer wordIds;
 
     private final int[] empty = new int[]{};
 
     public WordIdMap(InputStream input) throws IOException {
-        int arrays[][] = IntegerArrayIO.readArrays(input, 2);
+        this(IntegerArrayIO.readArrays(input, 2));
+    }
+
+    /**
+     * Creates a word id map reading its arrays directly from a buffer, such as a memory-mapped file
+     *
+     * @param buffer  buffer holding the arrays as written by {@link IntegerArrayIO#writeArray}
+     */
+    public WordIdMap(ByteBuffer buffer) {
+        IntBuffer[] arrays = IntegerArrayIO.readArrays(buffer, 2);
         indices = arrays[0];
         wordIds = arrays[1];
     }
 
+    private WordIdMap(int[][] arrays) {
+        indices = IntBuffer.wrap(arrays[0]);
+        wordIds = IntBuffer.wrap(arrays[1]);
+    }
+
     public int[] lookUp(int sourceId) {
-        int index = indices[sourceId];
+        int index = indices.get(sourceId);
 
         if (index == -1) {
             return empty;
         }
 
-        return Arrays.copyOfRange(wordIds, index + 1, index + 1 + wordIds[index]);
+        int[] result = new int[wordIds.get(index)];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = wordIds.get(index + 1 + i);
+        }
+
+        return result;
     }
 }
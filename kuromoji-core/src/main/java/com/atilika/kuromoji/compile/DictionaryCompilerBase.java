@@ -16,10 +16,15 @@
  */
 package com.atilika.kuromoji.compile;
 
+import com.atilika.kuromoji.buffer.StringValueMapBuffer;
+import com.atilika.kuromoji.buffer.TokenInfoBuffer;
 import com.atilika.kuromoji.dict.CharacterDefinitions;
 import com.atilika.kuromoji.dict.ConnectionCosts;
+import com.atilika.kuromoji.dict.DictionaryOverlay;
+import com.atilika.kuromoji.dict.TokenInfoDictionary;
 import com.atilika.kuromoji.dict.UnknownDictionary;
 import com.atilika.kuromoji.fst.FST;
+import com.atilika.kuromoji.util.PackedResourceResolver;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -27,21 +32,90 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class DictionaryCompilerBase {
 
     public void build(String inputDirname, String outputDirname, String encoding) throws IOException {
+        build(inputDirname, outputDirname, encoding, false);
+    }
+
+    /**
+     * Compiles a dictionary, optionally also packing the compiled resources into a single image
+     *
+     * @param inputDirname  directory with the dictionary sources
+     * @param outputDirname  directory to write the compiled resources to
+     * @param encoding  encoding of the dictionary sources
+     * @param packed  whether to also write {@link PackedResourceResolver#PACKED_DICTIONARY_FILENAME} to the output
+     *                directory
+     * @throws IOException if an error occurs compiling the dictionary
+     */
+    public void build(String inputDirname, String outputDirname, String encoding, boolean packed) throws IOException {
         File outputDir = new File(outputDirname);
         outputDir.mkdirs();
-        buildTokenInfoDictionary(inputDirname, outputDirname, encoding);
+        buildTokenInfoDictionary(getTokenInfoDictionaryCompiler(encoding), inputDirname, outputDirname);
         buildUnknownWordDictionary(inputDirname, outputDirname, encoding);
         buildConnectionCosts(inputDirname, outputDirname);
+
+        if (packed) {
+            buildPackedDictionary(outputDirname);
+        }
+    }
+
+    /**
+     * Compiles a dictionary overlay, which adds the words in the dictionary sources to a compiled dictionary
+     * <p>
+     * Only the words of the overlay and the feature values not in the base dictionary are written, and the overlay
+     * uses the connection costs, character definitions and unknown words of the base dictionary. The sources hold
+     * only the CSV files with the words to add, in the format of the base dictionary.
+     *
+     * @param inputDirname  directory with the CSV files of the overlay words
+     * @param baseDirname  directory with the compiled base dictionary
+     * @param outputDirname  directory to write the compiled overlay to
+     * @param encoding  encoding of the CSV files
+     * @throws IOException if an error occurs compiling the overlay
+     * @see com.atilika.kuromoji.TokenizerBase.Builder#dictionaryOverlay(com.atilika.kuromoji.util.ResourceResolver)
+     */
+    public void buildOverlay(String inputDirname, String baseDirname, String outputDirname, String encoding) throws IOException {
+        File outputDir = new File(outputDirname);
+        outputDir.mkdirs();
+
+        TokenInfoBuffer baseTokenInfo;
+        StringValueMapBuffer basePartOfSpeechValues;
+        StringValueMapBuffer baseFeatureValues;
+
+        try (InputStream tokenInfoInput = new FileInputStream(new File(baseDirname, TokenInfoDictionary.TOKEN_INFO_DICTIONARY_FILENAME));
+             InputStream partOfSpeechInput = new FileInputStream(new File(baseDirname, TokenInfoDictionary.POS_MAP_FILENAME));
+             InputStream featureInput = new FileInputStream(new File(baseDirname, TokenInfoDictionary.FEATURE_MAP_FILENAME))) {
+            baseTokenInfo = new TokenInfoBuffer(tokenInfoInput);
+            basePartOfSpeechValues = new StringValueMapBuffer(partOfSpeechInput);
+            baseFeatureValues = new StringValueMapBuffer(featureInput);
+        }
+
+        TokenInfoDictionaryCompilerBase<?> tokenInfoCompiler = getTokenInfoDictionaryCompiler(encoding);
+        tokenInfoCompiler.extend(basePartOfSpeechValues, baseFeatureValues);
+
+        buildTokenInfoDictionary(tokenInfoCompiler, inputDirname, outputDirname);
+
+        OutputStream output = new FileOutputStream(new File(outputDirname, DictionaryOverlay.OVERLAY_FILENAME));
+
+        try {
+            DictionaryOverlay.writeHeader(
+                output,
+                baseTokenInfo.getEntryCount(),
+                basePartOfSpeechValues.size(),
+                baseFeatureValues.size()
+            );
+        } finally {
+            output.close();
+        }
     }
 
-    private void buildTokenInfoDictionary(String inputDirname, String outputDirname, String encoding) throws IOException {
+    private void buildTokenInfoDictionary(TokenInfoDictionaryCompilerBase<?> tokenInfoCompiler, String inputDirname, String outputDirname) throws IOException {
         ProgressLog.begin("compiling tokeninfo dict");
-        TokenInfoDictionaryCompilerBase tokenInfoCompiler = getTokenInfoDictionaryCompiler(encoding);
 
         ProgressLog.println("analyzing dictionary features");
         tokenInfoCompiler.analyzeTokenInfo(
@@ -53,7 +127,6 @@ public abstract class DictionaryCompilerBase {
         );
         tokenInfoCompiler.compile();
 
-        @SuppressWarnings("unchecked")
         List<String> surfaces = tokenInfoCompiler.getSurfaces();
 
         ProgressLog.begin("compiling fst");
@@ -157,18 +230,67 @@ public abstract class DictionaryCompilerBase {
         ProgressLog.end();
     }
 
+    private void buildPackedDictionary(String outputDirname) throws IOException {
+        ProgressLog.begin("packing dictionary");
+
+        List<String> resourceNames = Arrays.asList(
+            FST.FST_FILENAME,
+            ConnectionCosts.CONNECTION_COSTS_FILENAME,
+            TokenInfoDictionary.TOKEN_INFO_DICTIONARY_FILENAME,
+            TokenInfoDictionary.FEATURE_MAP_FILENAME,
+            TokenInfoDictionary.POS_MAP_FILENAME,
+            TokenInfoDictionary.TARGETMAP_FILENAME,
+            CharacterDefinitions.CHARACTER_DEFINITIONS_FILENAME,
+            UnknownDictionary.UNKNOWN_DICTIONARY_FILENAME
+        );
+
+        OutputStream output = new FileOutputStream(
+            new File(outputDirname, PackedResourceResolver.PACKED_DICTIONARY_FILENAME)
+        );
+
+        try {
+            new PackedDictionaryCompiler(output, new File(outputDirname), resourceNames).compile();
+        } finally {
+            output.close();
+        }
+
+        ProgressLog.end();
+    }
+
+    /**
+     * Compiles a dictionary overlay from command line arguments
+     *
+     * @param args  directory with the CSV files of the overlay words, directory with the compiled base dictionary,
+     *              output directory and encoding of the CSV files
+     * @throws IOException if an error occurs compiling the overlay
+     * @see #buildOverlay(String, String, String, String)
+     */
+    protected void buildOverlay(String[] args) throws IOException {
+        ProgressLog.println("dictionary overlay compiler");
+        ProgressLog.println("");
+        ProgressLog.println("input directory: " + args[0]);
+        ProgressLog.println("base directory: " + args[1]);
+        ProgressLog.println("output directory: " + args[2]);
+        ProgressLog.println("input encoding: " + args[3]);
+        ProgressLog.println("");
+
+        buildOverlay(args[0], args[1], args[2], args[3]);
+    }
+
     protected void build(String[] args) throws IOException {
         String inputDirname = args[0];
         String outputDirname = args[1];
         String inputEncoding = args[2];
+        boolean packed = args.length > 3 && Boolean.parseBoolean(args[3]);
 
         ProgressLog.println("dictionary compiler");
         ProgressLog.println("");
         ProgressLog.println("input directory: " + inputDirname);
         ProgressLog.println("output directory: " + outputDirname);
         ProgressLog.println("input encoding: " + inputEncoding);
+        ProgressLog.println("packed: " + packed);
         ProgressLog.println("");
 
-        build(inputDirname, outputDirname, inputEncoding);
+        build(inputDirname, outputDirname, inputEncoding, packed);
     }
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.compile;
+
+import com.atilika.kuromoji.util.PackedResourceResolver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Packs compiled dictionary resources in a directory into a single image read by {@link PackedResourceResolver}
+ */
+public class PackedDictionaryCompiler implements Compiler {
+
+    private final OutputStream output;
+
+    private final File directory;
+
+    private final List<String> resourceNames;
+
+    public PackedDictionaryCompiler(OutputStream output, File directory, List<String> resourceNames) {
+        this.output = output;
+        this.directory = directory;
+        this.resourceNames = resourceNames;
+    }
+
+    @Override
+    public void compile() throws IOException {
+        int count = resourceNames.size();
+        byte[][] names = new byte[count][];
+        int position = 3 * 4;
+
+        for (int i = 0; i < count; i++) {
+            names[i] = resourceNames.get(i).getBytes(StandardCharsets.UTF_8);
+            position += 2 + names[i].length + 4 + 4 + 8;
+        }
+
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        long[] checksums = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            File file = new File(directory, resourceNames.get(i));
+
+            if (file.length() > Integer.MAX_VALUE - position) {
+                throw new IOException("Dictionary resource too large to pack: " + file);
+            }
+
+            position = align(position);
+            offsets[i] = position;
+            lengths[i] = (int) file.length();
+            checksums[i] = checksum(file);
+            position += lengths[i];
+        }
+
+        DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(output));
+
+        dataOutput.writeInt(PackedResourceResolver.MAGIC);
+        dataOutput.writeInt(PackedResourceResolver.VERSION);
+        dataOutput.writeInt(count);
+
+        for (int i = 0; i < count; i++) {
+            dataOutput.writeShort(names[i].length);
+            dataOutput.write(names[i]);
+            dataOutput.writeInt(offsets[i]);
+            dataOutput.writeInt(lengths[i]);
+            dataOutput.writeLong(checksums[i]);
+        }
+
+        for (int i = 0; i < count; i++) {
+            while (dataOutput.size() < offsets[i]) {
+                dataOutput.writeByte(0);
+            }
+
+            try (InputStream input = new BufferedInputStream(new FileInputStream(new File(directory, resourceNames.get(i))))) {
+                copy(input, dataOutput);
+            }
+        }
+
+        dataOutput.flush();
+    }
+
+    private int align(int position) {
+        int alignment = PackedResourceResolver.ALIGNMENT;
+        return (position + alignment - 1) / alignment * alignment;
+    }
+
+    private long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[65536];
+
+        try (InputStream input = new FileInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    private void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[65536];
+        int read;
+
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+    }
+}
@@ -60,6 +60,20 @@ public abstract class TokenInfoDictionaryCompilerBase<T extends DictionaryEntryB
         this.encoding = encoding;
     }
 
+    /**
+     * Extends the feature values of a compiled dictionary, for compiling an overlay of that dictionary
+     * <p>
+     * Must be called before reading any entries. Values of the base dictionary keep their ids and are not written
+     * again, and new values get ids following them.
+     *
+     * @param partOfSpeechValues  part of speech values of the base dictionary
+     * @param featureValues  other feature values of the base dictionary
+     */
+    public void extend(StringValueMapBuffer partOfSpeechValues, StringValueMapBuffer featureValues) {
+        posInfo = new FeatureInfoMap(partOfSpeechValues);
+        otherInfo = new FeatureInfoMap(featureValues);
+    }
+
     public void analyzeTokenInfo(InputStream input) throws IOException {
         BufferedReader reader = new BufferedReader(new InputStreamReader(input, encoding));
         String line;
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.compile;
+
+import com.atilika.kuromoji.dict.CompiledUserDictionary;
+import com.atilika.kuromoji.dict.UserDictionary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compiles a user dictionary in CSV format into a binary image read by {@link CompiledUserDictionary}
+ * <p>
+ * The feature settings must be those of the tokenizer the dictionary is used with
+ */
+public class UserDictionaryCompiler implements Compiler {
+
+    private final InputStream input;
+
+    private final OutputStream output;
+
+    private final int totalFeatures;
+
+    private final int readingFeature;
+
+    private final int partOfSpeechFeature;
+
+    public UserDictionaryCompiler(InputStream input,
+                                  OutputStream output,
+                                  int totalFeatures,
+                                  int readingFeature,
+                                  int partOfSpeechFeature) {
+        this.input = input;
+        this.output = output;
+        this.totalFeatures = totalFeatures;
+        this.readingFeature = readingFeature;
+        this.partOfSpeechFeature = partOfSpeechFeature;
+    }
+
+    @Override
+    public void compile() throws IOException {
+        UserDictionary dictionary = new UserDictionary(input, totalFeatures, readingFeature, partOfSpeechFeature);
+        CompiledUserDictionary.write(dictionary, output);
+    }
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.buffer.StringValueMapBuffer;
+import com.atilika.kuromoji.io.ByteBufferIO;
+import com.atilika.kuromoji.io.IntegerArrayIO;
+import com.atilika.kuromoji.trie.AhoCorasickAutomaton;
+import com.atilika.kuromoji.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * User dictionary read from a compiled binary image rather than parsed from CSV
+ * <p>
+ * The image holds the same entries as the user dictionary it was compiled from. All values are big-endian:
+ * <pre>
+ * int     magic ({@link #MAGIC})
+ * int     version ({@link #VERSION})
+ * int     total features
+ * int     reading feature
+ * int     part of speech feature
+ * buffer  int arrays: costs (left id, right id and word cost of each word), feature ids (total features per word),
+ *         surface offsets and surface details (word id and lengths of the words of each surface)
+ * buffer  surface automaton, see {@link AhoCorasickAutomaton}
+ * buffer  feature values, see {@link StringValueMapBuffer}
+ * </pre>
+ * Each buffer is preceded by its size in bytes. Feature values are interned, so each distinct value is stored once.
+ * The entries are used directly from the image, so a memory-mapped image is loaded without parsing or copying it.
+ *
+ * @see com.atilika.kuromoji.compile.UserDictionaryCompiler
+ */
+public class CompiledUserDictionary extends UserDictionaryBase {
+
+    public static final int MAGIC = 0x4b4d5544; // "KMUD"
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 5 * Integer.SIZE / Byte.SIZE;
+
+    private static final int COSTS_PER_WORD = 3;
+
+    private static final String FEATURE_SEPARATOR = ",";
+
+    private final IntBuffer costs;
+
+    private final IntBuffer featureIds;
+
+    private final SurfaceIndex surfaceIndex;
+
+    private final StringValueMapBuffer featureValues;
+
+    private final int imageSize;
+
+    /**
+     * Reads a compiled user dictionary from a buffer without copying it
+     *
+     * @param image  buffer holding the image from index 0
+     * @throws IOException if the buffer does not hold a compiled user dictionary
+     */
+    public CompiledUserDictionary(ByteBuffer image) throws IOException {
+        this(Image.read(image));
+    }
+
+    private CompiledUserDictionary(Image image) {
+        super(image.totalFeatures, image.readingFeature, image.partOfSpeechFeature);
+
+        costs = image.costs;
+        featureIds = image.featureIds;
+        surfaceIndex = new BufferSurfaceIndex(image.automaton, image.surfaceOffsets, image.surfaceDetails);
+        featureValues = image.featureValues;
+        imageSize = image.size;
+    }
+
+    /**
+     * Memory-maps a compiled user dictionary
+     *
+     * @param file  compiled user dictionary image
+     * @return user dictionary, not null
+     * @throws IOException if the image can not be mapped or is not a compiled user dictionary
+     */
+    public static CompiledUserDictionary newInstance(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new CompiledUserDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a user dictionary as a compiled image
+     * <p>
+     * A layered user dictionary is flattened, so the image holds the words of all its layers and matches the same
+     * words as the layered dictionary
+     *
+     * @param dictionary  user dictionary of any kind
+     * @param output  output to write the image to
+     * @throws IOException if an error occurs writing
+     */
+    public static void write(UserDictionaryBase dictionary, OutputStream output) throws IOException {
+        int totalFeatures = dictionary.getTotalFeatures();
+        int wordCount = dictionary.getWordCount();
+        int[] costs = new int[wordCount * COSTS_PER_WORD];
+        int[] featureIds = new int[wordCount * totalFeatures];
+        Map<String, Integer> valueIds = new HashMap<>();
+        TreeMap<Integer, String> values = new TreeMap<>();
+
+        for (int wordId = 0; wordId < wordCount; wordId++) {
+            costs[wordId * COSTS_PER_WORD] = dictionary.getLeftId(wordId);
+            costs[wordId * COSTS_PER_WORD + 1] = dictionary.getRightId(wordId);
+            costs[wordId * COSTS_PER_WORD + 2] = dictionary.getWordCost(wordId);
+
+            String[] features = dictionary.getAllFeaturesArray(wordId);
+
+            for (int field = 0; field < totalFeatures; field++) {
+                Integer valueId = valueIds.get(features[field]);
+
+                if (valueId == null) {
+                    valueId = values.size();
+                    valueIds.put(features[field], valueId);
+                    values.put(valueId, features[field]);
+                }
+
+                featureIds[wordId * totalFeatures + field] = valueId;
+            }
+        }
+
+        SurfaceIndex index = dictionary.getSurfaceIndex();
+        int[] surfaceOffsets = new int[index.size() + 1];
+
+        for (int i = 0; i < index.size(); i++) {
+            surfaceOffsets[i + 1] = surfaceOffsets[i] + index.getDetails(i).length;
+        }
+
+        int[] surfaceDetails = new int[surfaceOffsets[index.size()]];
+
+        for (int i = 0; i < index.size(); i++) {
+            int[] details = index.getDetails(i);
+            System.arraycopy(details, 0, surfaceDetails, surfaceOffsets[i], details.length);
+        }
+
+        ByteArrayOutputStream arrays = new ByteArrayOutputStream();
+        IntegerArrayIO.writeArray(arrays, costs);
+        IntegerArrayIO.writeArray(arrays, featureIds);
+        IntegerArrayIO.writeArray(arrays, surfaceOffsets);
+        IntegerArrayIO.writeArray(arrays, surfaceDetails);
+
+        ByteArrayOutputStream automaton = new ByteArrayOutputStream();
+        index.automaton.write(automaton);
+
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeInt(MAGIC);
+        dataOutput.writeInt(VERSION);
+        dataOutput.writeInt(totalFeatures);
+        dataOutput.writeInt(dictionary.getReadingFeature());
+        dataOutput.writeInt(dictionary.getPartOfSpeechFeature());
+
+        ByteBufferIO.write(dataOutput, ByteBuffer.wrap(arrays.toByteArray()));
+        ByteBufferIO.write(dataOutput, ByteBuffer.wrap(automaton.toByteArray()));
+        new StringValueMapBuffer(values).write(dataOutput);
+
+        dataOutput.flush();
+    }
+
+    @Override
+    public int getLeftId(int wordId) {
+        return costs.get(wordId * COSTS_PER_WORD);
+    }
+
+    @Override
+    public int getRightId(int wordId) {
+        return costs.get(wordId * COSTS_PER_WORD + 1);
+    }
+
+    @Override
+    public int getWordCost(int wordId) {
+        return costs.get(wordId * COSTS_PER_WORD + 2);
+    }
+
+    @Override
+    public String getAllFeatures(int wordId) {
+        return StringUtils.join(getAllFeaturesArray(wordId), FEATURE_SEPARATOR);
+    }
+
+    @Override
+    public String[] getAllFeaturesArray(int wordId) {
+        String[] features = new String[getTotalFeatures()];
+
+        for (int field = 0; field < features.length; field++) {
+            features[field] = getFeatureValue(wordId, field);
+        }
+
+        return features;
+    }
+
+    @Override
+    public String getFeature(int wordId, int... fields) {
+        if (fields.length == 1) {
+            return getFeatureValue(wordId, fields[0]);
+        }
+
+        String[] features = new String[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            features[i] = getFeatureValue(wordId, fields[i]);
+        }
+
+        return StringUtils.join(features, FEATURE_SEPARATOR);
+    }
+
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        for (int field = 0; field < getTotalFeatures(); field++) {
+            if (field > 0) {
+                output.append(FEATURE_SEPARATOR);
+            }
+            featureValues.append(featureIds.get(wordId * getTotalFeatures() + field), output);
+        }
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        featureValues.append(featureIds.get(wordId * getTotalFeatures() + field), output);
+    }
+
+    @Override
+    public int getWordCount() {
+        return costs.limit() / COSTS_PER_WORD;
+    }
+
+    /**
+     * Gets the size of the image holding the entries of this dictionary
+     * <p>
+     * The entries are used from the image as is, so a memory-mapped dictionary takes hardly any heap
+     *
+     * @return image size in bytes
+     */
+    @Override
+    public long getMemoryUsage() {
+        return imageSize;
+    }
+
+    @Override
+    SurfaceIndex getSurfaceIndex() {
+        return surfaceIndex;
+    }
+
+    private String getFeatureValue(int wordId, int field) {
+        return featureValues.get(featureIds.get(wordId * getTotalFeatures() + field));
+    }
+
+    /**
+     * The sections of a compiled image, read and checked before a dictionary is constructed from them
+     */
+    private static class Image {
+
+        private int totalFeatures;
+
+        private int readingFeature;
+
+        private int partOfSpeechFeature;
+
+        private IntBuffer costs;
+
+        private IntBuffer featureIds;
+
+        private IntBuffer surfaceOffsets;
+
+        private IntBuffer surfaceDetails;
+
+        private AhoCorasickAutomaton automaton;
+
+        private StringValueMapBuffer featureValues;
+
+        private int size;
+
+        static Image read(ByteBuffer buffer) throws IOException {
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a compiled user dictionary");
+            }
+
+            int version = buffer.getInt(4);
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported compiled user dictionary version: " + version);
+            }
+
+            Image image = new Image();
+            image.totalFeatures = buffer.getInt(8);
+            image.readingFeature = buffer.getInt(12);
+            image.partOfSpeechFeature = buffer.getInt(16);
+            image.size = buffer.limit();
+
+            if (image.totalFeatures <= 0 ||
+                image.readingFeature < 0 || image.readingFeature >= image.totalFeatures ||
+                image.partOfSpeechFeature < 0 || image.partOfSpeechFeature >= image.totalFeatures) {
+                throw new IOException("Corrupt compiled user dictionary: invalid feature fields");
+            }
+
+            try {
+                ByteBuffer arrays = ByteBufferIO.slice(buffer, HEADER_SIZE);
+                int position = HEADER_SIZE + Integer.SIZE / Byte.SIZE + arrays.limit();
+                ByteBuffer automaton = ByteBufferIO.slice(buffer, position);
+                position += Integer.SIZE / Byte.SIZE + automaton.limit();
+
+                IntBuffer[] intArrays = IntegerArrayIO.readArrays(arrays, 4);
+                image.costs = intArrays[0];
+                image.featureIds = intArrays[1];
+                image.surfaceOffsets = intArrays[2];
+                image.surfaceDetails = intArrays[3];
+                image.automaton = new AhoCorasickAutomaton(automaton);
+                image.featureValues = new StringValueMapBuffer(ByteBufferIO.slice(buffer, position));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IOException("Corrupt compiled user dictionary", e);
+            }
+
+            int wordCount = image.costs.limit() / COSTS_PER_WORD;
+
+            if (image.costs.limit() % COSTS_PER_WORD != 0 ||
+                image.featureIds.limit() != (long) wordCount * image.totalFeatures ||
+                image.surfaceOffsets.limit() != image.automaton.size() + 1) {
+                throw new IOException("Corrupt compiled user dictionary: inconsistent sections");
+            }
+
+            return image;
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.atilika.kuromoji.dict;
 
+import com.atilika.kuromoji.util.MappedResourceResolver;
 import com.atilika.kuromoji.util.ResourceResolver;
 import com.atilika.kuromoji.io.ByteBufferIO;
 
@@ -30,6 +31,8 @@ public class ConnectionCosts {
 
     public static final String CONNECTION_COSTS_FILENAME = "connectionCosts.bin";
 
+    private static final int INTEGER_BYTES = Integer.SIZE / Byte.SIZE;
+
     private int size;
 
     private ShortBuffer costs;
@@ -44,9 +47,20 @@ public class ConnectionCosts {
     }
 
     public static ConnectionCosts newInstance(ResourceResolver resolver) throws IOException {
+        if (resolver instanceof MappedResourceResolver) {
+            return read(((MappedResourceResolver) resolver).map(CONNECTION_COSTS_FILENAME));
+        }
+
         return read(resolver.resolve(CONNECTION_COSTS_FILENAME));
     }
 
+    private static ConnectionCosts read(ByteBuffer buffer) {
+        int size = buffer.getInt(0);
+        ShortBuffer costs = ByteBufferIO.slice(buffer, INTEGER_BYTES).asShortBuffer();
+
+        return new ConnectionCosts(size, costs);
+    }
+
     private static ConnectionCosts read(InputStream input) throws IOException {
         DataInputStream dataInput = new DataInputStream(
             new BufferedInputStream(input)
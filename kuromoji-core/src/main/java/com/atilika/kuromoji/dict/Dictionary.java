@@ -16,6 +16,8 @@
  */
 package com.atilika.kuromoji.dict;
 
+import java.io.IOException;
+
 public interface Dictionary {
 
     /**
@@ -68,4 +70,48 @@ public interface Dictionary {
      * @return Array with specified features
      */
     public String getFeature(int wordId, int... fields);
+
+    /**
+     * Appends all features of the specified word id as returned by {@link #getAllFeatures(int)}
+     * <p>
+     * Features are appended without creating intermediate strings or arrays where possible
+     *
+     * @param wordId  word id to get features for
+     * @param output  appendable to append the features to
+     * @throws IOException if an error occurs appending
+     */
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException;
+
+    /**
+     * Appends a specific feature of the specified word id as returned by {@link #getFeature(int, int...)}
+     *
+     * @param wordId  word id to get the feature for
+     * @param field  feature id
+     * @param output  appendable to append the feature to
+     * @throws IOException if an error occurs appending
+     */
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException;
+
+    /**
+     * Gets the id of a specific feature of the specified word id
+     * <p>
+     * Ids are keys of the feature values in the system dictionary, see {@link #featureId(int, String)}, so equal
+     * values of a field have equal ids regardless of the dictionary a word is from. Part of speech fields share one
+     * id space and the remaining fields share another.
+     *
+     * @param wordId  word id to get the feature id for
+     * @param field  feature number
+     * @return feature id, or -1 if the value is not in the system dictionary
+     */
+    public int getFeatureId(int wordId, int field);
+
+    /**
+     * Gets the id of a value of a feature in the system dictionary, for comparison with
+     * {@link #getFeatureId(int, int)}
+     *
+     * @param field  feature number
+     * @param value  feature value
+     * @return feature id, or -1 if the value is not in the system dictionary
+     */
+    public int featureId(int field, String value);
 }
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.fst.FST;
+import com.atilika.kuromoji.io.IntegerArrayIO;
+import com.atilika.kuromoji.util.ResourceResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The loaded components of a dictionary overlay, which adds words to a system dictionary without copying it
+ * <p>
+ * An overlay holds only its own words: an FST with their surfaces and a token info dictionary with their features.
+ * It uses the connection costs, character definitions and unknown words of the system dictionary it was compiled for,
+ * and extends its feature values, so feature values shared with the system dictionary have the same ids. Overlay words
+ * have the word ids following the words of the system dictionary.
+ * <p>
+ * Overlays are compiled by {@link com.atilika.kuromoji.compile.DictionaryCompilerBase#buildOverlay(String, String, String, String)}
+ *
+ * @see SystemDictionary#withOverlay(DictionaryOverlay)
+ */
+public final class DictionaryOverlay {
+
+    public static final String OVERLAY_FILENAME = "dictionaryOverlay.bin";
+
+    // The overlay file holds the word count, part of speech value count and feature value count of its base dictionary
+    private static final int HEADER_SIZE = 3;
+
+    private final FST fst;
+
+    private final TokenInfoDictionary tokenInfoDictionary;
+
+    private final int wordIdOffset;
+
+    private DictionaryOverlay(FST fst, TokenInfoDictionary tokenInfoDictionary, int wordIdOffset) {
+        this.fst = fst;
+        this.tokenInfoDictionary = tokenInfoDictionary;
+        this.wordIdOffset = wordIdOffset;
+    }
+
+    /**
+     * @return FST with the surfaces of the overlay words
+     */
+    public FST getFst() {
+        return fst;
+    }
+
+    /**
+     * @return token info dictionary with the overlay words, with word ids starting at 0
+     */
+    public TokenInfoDictionary getTokenInfoDictionary() {
+        return tokenInfoDictionary;
+    }
+
+    /**
+     * @return id of the first overlay word in the system dictionary, which is the number of words of the base dictionary
+     */
+    public int getWordIdOffset() {
+        return wordIdOffset;
+    }
+
+    /**
+     * Loads an overlay
+     *
+     * @param resolver  resolver to load the overlay with
+     * @param base  system dictionary the overlay was compiled for, without an overlay
+     * @return dictionary overlay, not null
+     * @throws IOException if an error occurs loading the overlay, or it was compiled for a different system dictionary
+     * @throws IllegalArgumentException if the system dictionary already has an overlay
+     */
+    public static DictionaryOverlay newInstance(ResourceResolver resolver, SystemDictionary base) throws IOException {
+        if (base.getOverlay() != null) {
+            throw new IllegalArgumentException("System dictionary already has an overlay");
+        }
+
+        TokenInfoDictionary baseDictionary = base.getTokenInfoDictionary();
+        int[] header;
+
+        try (InputStream input = resolver.resolve(OVERLAY_FILENAME)) {
+            header = IntegerArrayIO.readArrays(input, 1)[0];
+        }
+
+        if (header.length != HEADER_SIZE ||
+            header[0] != baseDictionary.getWordCount() ||
+            header[1] != baseDictionary.posValues.size() ||
+            header[2] != baseDictionary.stringValues.size()) {
+            throw new IOException("Dictionary overlay was compiled for a different system dictionary");
+        }
+
+        return new DictionaryOverlay(
+            FST.newInstance(resolver),
+            TokenInfoDictionary.newOverlayInstance(resolver, baseDictionary),
+            baseDictionary.getWordCount()
+        );
+    }
+
+    /**
+     * Writes the overlay file identifying the system dictionary an overlay is compiled for
+     *
+     * @param output  output to write to, not closed by this method
+     * @param wordCount  number of words of the system dictionary
+     * @param partOfSpeechValueCount  number of part of speech values of the system dictionary
+     * @param featureValueCount  number of other feature values of the system dictionary
+     * @throws IOException if an error occurs writing
+     */
+    public static void writeHeader(OutputStream output, int wordCount, int partOfSpeechValueCount, int featureValueCount) throws IOException {
+        IntegerArrayIO.writeArray(output, new int[]{wordCount, partOfSpeechValueCount, featureValueCount});
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Process-wide registry of loaded system dictionaries
+ * <p>
+ * Tokenizers built with the same dictionary configuration, such as tokenizers that only differ in their mode,
+ * penalties or user dictionary, get the same {@link SystemDictionary} from the registry instead of loading their own
+ * copy. Dictionaries are held weakly. Each tokenizer keeps a reference to the dictionary it was built with, so a
+ * dictionary stays registered as long as a tokenizer using it is reachable, and is reclaimed by the garbage
+ * collector once no tokenizer is.
+ * <p>
+ * This class is thread-safe
+ */
+public final class DictionaryRegistry {
+
+    private static final DictionaryRegistry INSTANCE = new DictionaryRegistry();
+
+    private final Map<Object, WeakReference<SystemDictionary>> dictionaries = new HashMap<>();
+
+    private DictionaryRegistry() {
+    }
+
+    public static DictionaryRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads a system dictionary
+     */
+    public interface Loader {
+
+        SystemDictionary load() throws IOException;
+    }
+
+    /**
+     * Gets the system dictionary registered for a key, loading and registering it if there is none
+     *
+     * @param key  key identifying the dictionary configuration, compared using equals
+     * @param loader  loader used if no dictionary is registered for the key
+     * @return system dictionary, not null
+     * @throws IOException if an error occurs loading the dictionary
+     */
+    public synchronized SystemDictionary get(Object key, Loader loader) throws IOException {
+        expungeReclaimed();
+
+        WeakReference<SystemDictionary> reference = dictionaries.get(key);
+        SystemDictionary dictionary = reference == null ? null : reference.get();
+
+        if (dictionary == null) {
+            dictionary = loader.load();
+            dictionaries.put(key, new WeakReference<>(dictionary));
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * @return the number of registered dictionaries that are still in use
+     */
+    public synchronized int size() {
+        expungeReclaimed();
+        return dictionaries.size();
+    }
+
+    /**
+     * Removes all registered dictionaries
+     * <p>
+     * Tokenizers already built keep using their dictionaries, but tokenizers built afterwards load new copies
+     */
+    public synchronized void clear() {
+        dictionaries.clear();
+    }
+
+    private void expungeReclaimed() {
+        Iterator<WeakReference<SystemDictionary>> iterator = dictionaries.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+}
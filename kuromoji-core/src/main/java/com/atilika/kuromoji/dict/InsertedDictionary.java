@@ -18,6 +18,8 @@ package com.atilika.kuromoji.dict;
 
 import com.atilika.kuromoji.util.StringUtils;
 
+import java.io.IOException;
+
 public class InsertedDictionary implements Dictionary {
 
     private static final String DEFAULT_FEATURE = "*";
@@ -28,6 +30,8 @@ public class InsertedDictionary implements Dictionary {
 
     private final String featuresString;
 
+    private TokenInfoDictionary systemDictionary;
+
     public InsertedDictionary(int features) {
 
         featuresArray = new String[features];
@@ -74,4 +78,35 @@ public class InsertedDictionary implements Dictionary {
 
         return StringUtils.join(features, FEATURE_SEPARATOR);
     }
+
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        output.append(featuresString);
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        output.append(DEFAULT_FEATURE);
+    }
+
+    @Override
+    public int getFeatureId(int wordId, int field) {
+        return systemDictionary.featureId(field, DEFAULT_FEATURE);
+    }
+
+    @Override
+    public int featureId(int field, String value) {
+        return systemDictionary.featureId(field, value);
+    }
+
+    /**
+     * Sets the system dictionary whose feature ids are returned by {@link #getFeatureId(int, int)}
+     * <p>
+     * Must be called before this dictionary is used by a tokenizer
+     *
+     * @param systemDictionary  system dictionary to look up feature ids in
+     */
+    public void setSystemDictionary(TokenInfoDictionary systemDictionary) {
+        this.systemDictionary = systemDictionary;
+    }
 }
@@ -0,0 +1,305 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.trie.AhoCorasickAutomaton;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * User dictionary combining a stack of user dictionaries, each a layer with a higher priority than the layers
+ * before it
+ * <p>
+ * The surfaces of all layers are found in a single pass over the text, stepping the automata of the layers side by
+ * side. At each start index the longest surface found in any layer is used, and a surface found in several layers
+ * uses the words of the layer with the highest priority. Matches are the same as when merging the layers into one
+ * dictionary in priority order, but the layers are used as they are, so a layer can be shared by any number of
+ * layered dictionaries without copying it.
+ * <p>
+ * The word ids of a layer are offset by the number of words in the layers before it, so layers should not be
+ * modified once they are layered
+ *
+ * @see UserDictionaryLayers
+ */
+public class LayeredUserDictionary extends UserDictionaryBase {
+
+    private final UserDictionaryBase[] layers;
+
+    // First word id of each layer, and the number of words in all layers
+    private final int[] wordIdOffsets;
+
+    /**
+     * Constructor
+     * <p>
+     * Layers that are layered dictionaries themselves are replaced by their layers
+     *
+     * @param layers  user dictionaries from the lowest to the highest priority, not empty
+     * @throws IllegalArgumentException if there are no layers, or the layers have different features
+     */
+    public LayeredUserDictionary(List<? extends UserDictionaryBase> layers) {
+        super(firstLayer(layers).getTotalFeatures(), firstLayer(layers).getReadingFeature(), firstLayer(layers).getPartOfSpeechFeature());
+
+        List<UserDictionaryBase> flattened = new ArrayList<>();
+
+        for (UserDictionaryBase layer : layers) {
+            if (layer.getTotalFeatures() != getTotalFeatures()) {
+                throw new IllegalArgumentException(
+                    "User dictionary layer has " + layer.getTotalFeatures() + " features, expected " + getTotalFeatures()
+                );
+            }
+
+            if (layer instanceof LayeredUserDictionary) {
+                flattened.addAll(((LayeredUserDictionary) layer).getLayers());
+            } else {
+                flattened.add(layer);
+            }
+        }
+
+        this.layers = flattened.toArray(new UserDictionaryBase[flattened.size()]);
+        this.wordIdOffsets = new int[this.layers.length + 1];
+
+        for (int i = 0; i < this.layers.length; i++) {
+            wordIdOffsets[i + 1] = wordIdOffsets[i] + this.layers[i].getWordCount();
+        }
+    }
+
+    /**
+     * @return the layers from the lowest to the highest priority, not null
+     */
+    public List<UserDictionaryBase> getLayers() {
+        return Collections.unmodifiableList(Arrays.asList(layers));
+    }
+
+    @Override
+    public List<UserDictionaryMatch> findUserDictionaryMatches(CharSequence text, int offset, int length) {
+        SurfaceIndex[] indices = new SurfaceIndex[layers.length];
+        int[] states = new int[layers.length];
+
+        for (int layer = 0; layer < layers.length; layer++) {
+            indices[layer] = layers[layer].getSurfaceIndex();
+            states[layer] = AhoCorasickAutomaton.START;
+        }
+
+        LongestMatches longest = new LongestMatches(offset, length);
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(offset + i);
+
+            for (int layer = 0; layer < layers.length; layer++) {
+                AhoCorasickAutomaton automaton = indices[layer].automaton;
+
+                states[layer] = automaton.step(states[layer], c);
+                longest.layer = layer;
+                automaton.matchAt(states[layer], offset + i + 1, longest);
+            }
+        }
+
+        List<UserDictionaryMatch> matchInfos = new ArrayList<>();
+
+        for (int startIndex = 0; startIndex < length; startIndex++) {
+            if (longest.lengths[startIndex] > 0) {
+                int layer = longest.layers[startIndex];
+                indices[layer].addMatches(matchInfos, startIndex, longest.keys[startIndex], wordIdOffsets[layer]);
+            }
+        }
+
+        return matchInfos;
+    }
+
+    @Override
+    void prepare() {
+        for (UserDictionaryBase layer : layers) {
+            layer.prepare();
+        }
+    }
+
+    /**
+     * Builds an index merging the surfaces of all layers, as held by a compiled image of this dictionary
+     * <p>
+     * Matching uses the indices of the layers rather than this index, so it is built each time it is requested
+     *
+     * @return merged surface index, not null
+     */
+    @Override
+    SurfaceIndex getSurfaceIndex() {
+        // A surface found in several layers keeps the words of the layer with the highest priority
+        Map<String, int[]> surfaces = new LinkedHashMap<>();
+        int detailCount = 0;
+
+        for (int layer = 0; layer < layers.length; layer++) {
+            SurfaceIndex index = layers[layer].getSurfaceIndex();
+            String[] keys = index.automaton.getKeys();
+
+            for (int key = 0; key < keys.length; key++) {
+                int[] details = index.getDetails(key);
+                details[0] += wordIdOffsets[layer];
+
+                int[] replaced = surfaces.put(keys[key], details);
+                detailCount += details.length - (replaced == null ? 0 : replaced.length);
+            }
+        }
+
+        int[] surfaceOffsets = new int[surfaces.size() + 1];
+        int[] surfaceDetails = new int[detailCount];
+        int key = 0;
+
+        for (int[] details : surfaces.values()) {
+            System.arraycopy(details, 0, surfaceDetails, surfaceOffsets[key], details.length);
+            surfaceOffsets[key + 1] = surfaceOffsets[key] + details.length;
+            key++;
+        }
+
+        return new BufferSurfaceIndex(
+            new AhoCorasickAutomaton(new ArrayList<>(surfaces.keySet())),
+            IntBuffer.wrap(surfaceOffsets),
+            IntBuffer.wrap(surfaceDetails)
+        );
+    }
+
+    @Override
+    public int getLeftId(int wordId) {
+        int layer = layerOf(wordId);
+        return layers[layer].getLeftId(wordId - wordIdOffsets[layer]);
+    }
+
+    @Override
+    public int getRightId(int wordId) {
+        int layer = layerOf(wordId);
+        return layers[layer].getRightId(wordId - wordIdOffsets[layer]);
+    }
+
+    @Override
+    public int getWordCost(int wordId) {
+        int layer = layerOf(wordId);
+        return layers[layer].getWordCost(wordId - wordIdOffsets[layer]);
+    }
+
+    @Override
+    public String getAllFeatures(int wordId) {
+        int layer = layerOf(wordId);
+        return layers[layer].getAllFeatures(wordId - wordIdOffsets[layer]);
+    }
+
+    @Override
+    public String[] getAllFeaturesArray(int wordId) {
+        int layer = layerOf(wordId);
+        return layers[layer].getAllFeaturesArray(wordId - wordIdOffsets[layer]);
+    }
+
+    @Override
+    public String getFeature(int wordId, int... fields) {
+        int layer = layerOf(wordId);
+        return layers[layer].getFeature(wordId - wordIdOffsets[layer], fields);
+    }
+
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        int layer = layerOf(wordId);
+        layers[layer].appendAllFeatures(wordId - wordIdOffsets[layer], output);
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        int layer = layerOf(wordId);
+        layers[layer].appendFeature(wordId - wordIdOffsets[layer], field, output);
+    }
+
+    @Override
+    public int getWordCount() {
+        return wordIdOffsets[layers.length];
+    }
+
+    /**
+     * Estimates the memory taken by the layers, which may well be shared with other layered dictionaries
+     *
+     * @return estimated number of bytes
+     */
+    @Override
+    public long getMemoryUsage() {
+        long bytes = 0;
+
+        for (UserDictionaryBase layer : layers) {
+            bytes += layer.getMemoryUsage();
+        }
+        return bytes;
+    }
+
+    private int layerOf(int wordId) {
+        if (wordId < 0 || wordId >= getWordCount()) {
+            throw new IndexOutOfBoundsException("Word id: " + wordId + ", word count: " + getWordCount());
+        }
+
+        // Empty layers have the same offset as the next layer, so the last layer starting at or before the word
+        int layer = layers.length - 1;
+
+        while (wordIdOffsets[layer] > wordId) {
+            layer--;
+        }
+        return layer;
+    }
+
+    private static UserDictionaryBase firstLayer(List<? extends UserDictionaryBase> layers) {
+        if (layers.isEmpty()) {
+            throw new IllegalArgumentException("No user dictionary layers");
+        }
+        return layers.get(0);
+    }
+
+    /**
+     * Keeps the longest match starting at each index, and the layer it was found in
+     */
+    private static class LongestMatches implements AhoCorasickAutomaton.MatchHandler {
+
+        private final int offset;
+
+        private final int[] lengths;
+
+        private final int[] keys;
+
+        private final int[] layers;
+
+        // Layer of the automaton currently reporting matches
+        private int layer;
+
+        LongestMatches(int offset, int length) {
+            this.offset = offset;
+            this.lengths = new int[length];
+            this.keys = new int[length];
+            this.layers = new int[length];
+        }
+
+        @Override
+        public void match(int start, int end, int key) {
+            int startIndex = start - offset;
+            int length = end - start;
+
+            // Layers report their matches in priority order, so a later layer wins a tie
+            if (length > lengths[startIndex] || length == lengths[startIndex] && layer > layers[startIndex]) {
+                lengths[startIndex] = length;
+                keys[startIndex] = key;
+                layers[startIndex] = layer;
+            }
+        }
+    }
+}
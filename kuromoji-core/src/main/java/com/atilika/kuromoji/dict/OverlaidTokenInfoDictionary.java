@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import java.io.IOException;
+
+/**
+ * Token info dictionary with the words of a system dictionary followed by the words of a dictionary overlay
+ * <p>
+ * Word ids below the word id offset of the overlay are words of the base dictionary, and the ones from it are overlay
+ * words. Feature ids are the same for both, since the overlay extends the feature values of the base dictionary.
+ */
+final class OverlaidTokenInfoDictionary extends TokenInfoDictionary {
+
+    private final TokenInfoDictionary base;
+
+    private final TokenInfoDictionary overlay;
+
+    private final int wordIdOffset;
+
+    OverlaidTokenInfoDictionary(TokenInfoDictionary base, DictionaryOverlay overlay) {
+        this.base = base;
+        this.overlay = overlay.getTokenInfoDictionary();
+        this.wordIdOffset = overlay.getWordIdOffset();
+    }
+
+    /**
+     * Gets the word ids of a surface found in the FST of the base dictionary
+     * <p>
+     * Surfaces found in the FST of the overlay are looked up in {@link DictionaryOverlay#getTokenInfoDictionary()}
+     *
+     * @param sourceId  FST output
+     * @return word ids, not null
+     */
+    @Override
+    public int[] lookupWordIds(int sourceId) {
+        return base.lookupWordIds(sourceId);
+    }
+
+    @Override
+    public int getLeftId(int wordId) {
+        if (wordId < wordIdOffset) {
+            return base.getLeftId(wordId);
+        }
+        return overlay.getLeftId(wordId - wordIdOffset);
+    }
+
+    @Override
+    public int getRightId(int wordId) {
+        if (wordId < wordIdOffset) {
+            return base.getRightId(wordId);
+        }
+        return overlay.getRightId(wordId - wordIdOffset);
+    }
+
+    @Override
+    public int getWordCost(int wordId) {
+        if (wordId < wordIdOffset) {
+            return base.getWordCost(wordId);
+        }
+        return overlay.getWordCost(wordId - wordIdOffset);
+    }
+
+    @Override
+    public String[] getAllFeaturesArray(int wordId) {
+        if (wordId < wordIdOffset) {
+            return base.getAllFeaturesArray(wordId);
+        }
+        return overlay.getAllFeaturesArray(wordId - wordIdOffset);
+    }
+
+    @Override
+    public String getAllFeatures(int wordId) {
+        if (wordId < wordIdOffset) {
+            return base.getAllFeatures(wordId);
+        }
+        return overlay.getAllFeatures(wordId - wordIdOffset);
+    }
+
+    @Override
+    public String getFeature(int wordId, int... fields) {
+        if (wordId < wordIdOffset) {
+            return base.getFeature(wordId, fields);
+        }
+        return overlay.getFeature(wordId - wordIdOffset, fields);
+    }
+
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        if (wordId < wordIdOffset) {
+            base.appendAllFeatures(wordId, output);
+        } else {
+            overlay.appendAllFeatures(wordId - wordIdOffset, output);
+        }
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        if (wordId < wordIdOffset) {
+            base.appendFeature(wordId, field, output);
+        } else {
+            overlay.appendFeature(wordId - wordIdOffset, field, output);
+        }
+    }
+
+    @Override
+    public int getFeatureId(int wordId, int field) {
+        if (wordId < wordIdOffset) {
+            return base.getFeatureId(wordId, field);
+        }
+        return overlay.getFeatureId(wordId - wordIdOffset, field);
+    }
+
+    @Override
+    public int featureIds(int wordId, int[] ids) {
+        if (wordId < wordIdOffset) {
+            return base.featureIds(wordId, ids);
+        }
+        return overlay.featureIds(wordId - wordIdOffset, ids);
+    }
+
+    @Override
+    public int featureId(String partOfSpeech) {
+        return overlay.featureId(partOfSpeech); // Overlay values include the base values
+    }
+
+    @Override
+    public int featureId(int field, String value) {
+        return overlay.featureId(field, value);
+    }
+
+    @Override
+    public int getFeatureCount() {
+        return base.getFeatureCount();
+    }
+
+    @Override
+    public int getWordCount() {
+        return wordIdOffset + overlay.getWordCount();
+    }
+
+    /**
+     * Caches decoded feature values of the overlay words
+     * <p>
+     * The base dictionary may be shared with tokenizers not using the overlay, and keeps its own cache
+     *
+     * @param capacity  maximum number of cached feature values, or 0 to disable caching
+     */
+    @Override
+    public void setFeatureCacheSize(int capacity) {
+        overlay.setFeatureCacheSize(capacity);
+    }
+
+    @Override
+    public long getFeatureCacheHits() {
+        return base.getFeatureCacheHits() + overlay.getFeatureCacheHits();
+    }
+
+    @Override
+    public long getFeatureCacheMisses() {
+        return base.getFeatureCacheMisses() + overlay.getFeatureCacheMisses();
+    }
+}
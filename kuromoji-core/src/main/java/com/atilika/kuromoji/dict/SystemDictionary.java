@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.fst.FST;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The loaded components of a system dictionary
+ * <p>
+ * The components are not modified once loaded, so a system dictionary can be shared by any number of tokenizers
+ *
+ * @see DictionaryRegistry
+ */
+public final class SystemDictionary {
+
+    private final FST fst;
+
+    private final ConnectionCosts connectionCosts;
+
+    private final TokenInfoDictionary tokenInfoDictionary;
+
+    private final CharacterDefinitions characterDefinitions;
+
+    private final UnknownDictionary unknownDictionary;
+
+    private final Map<String, Long> loadTimes;
+
+    private final SystemDictionary base;
+
+    private final DictionaryOverlay overlay;
+
+    public SystemDictionary(FST fst,
+                            ConnectionCosts connectionCosts,
+                            TokenInfoDictionary tokenInfoDictionary,
+                            CharacterDefinitions characterDefinitions,
+                            UnknownDictionary unknownDictionary) {
+        this(fst, connectionCosts, tokenInfoDictionary, characterDefinitions, unknownDictionary, Collections.<String, Long>emptyMap());
+    }
+
+    public SystemDictionary(FST fst,
+                            ConnectionCosts connectionCosts,
+                            TokenInfoDictionary tokenInfoDictionary,
+                            CharacterDefinitions characterDefinitions,
+                            UnknownDictionary unknownDictionary,
+                            Map<String, Long> loadTimes) {
+        this.fst = fst;
+        this.connectionCosts = connectionCosts;
+        this.tokenInfoDictionary = tokenInfoDictionary;
+        this.characterDefinitions = characterDefinitions;
+        this.unknownDictionary = unknownDictionary;
+        this.loadTimes = loadTimes;
+        this.base = null;
+        this.overlay = null;
+    }
+
+    private SystemDictionary(SystemDictionary base, DictionaryOverlay overlay) {
+        this.fst = base.fst;
+        this.connectionCosts = base.connectionCosts;
+        this.tokenInfoDictionary = new OverlaidTokenInfoDictionary(base.tokenInfoDictionary, overlay);
+        this.characterDefinitions = base.characterDefinitions;
+        this.unknownDictionary = base.unknownDictionary;
+        this.loadTimes = base.loadTimes;
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Creates a system dictionary with the words of this dictionary followed by the words of an overlay
+     * <p>
+     * The components of this dictionary are shared, not copied, and the dictionary created keeps this dictionary
+     * loaded for as long as it is in use
+     *
+     * @param overlay  overlay compiled for this dictionary, see {@link DictionaryOverlay#newInstance(com.atilika.kuromoji.util.ResourceResolver, SystemDictionary)}
+     * @return system dictionary with the overlay, not null
+     */
+    public SystemDictionary withOverlay(DictionaryOverlay overlay) {
+        return new SystemDictionary(this, overlay);
+    }
+
+    /**
+     * @return FST with the surfaces of the base dictionary, not including the surfaces of any overlay
+     */
+    public FST getFst() {
+        return fst;
+    }
+
+    public ConnectionCosts getConnectionCosts() {
+        return connectionCosts;
+    }
+
+    /**
+     * @return token info dictionary with all words, including the words of any overlay
+     */
+    public TokenInfoDictionary getTokenInfoDictionary() {
+        return tokenInfoDictionary;
+    }
+
+    public CharacterDefinitions getCharacterDefinitions() {
+        return characterDefinitions;
+    }
+
+    public UnknownDictionary getUnknownDictionary() {
+        return unknownDictionary;
+    }
+
+    /**
+     * @return the dictionary overlay, or null if this dictionary has none
+     */
+    public DictionaryOverlay getOverlay() {
+        return overlay;
+    }
+
+    /**
+     * @return the dictionary without its overlay, or null if this dictionary has no overlay
+     */
+    public SystemDictionary getBase() {
+        return base;
+    }
+
+    /**
+     * Gets how long loading each component of this dictionary took
+     * <p>
+     * The components are named by the constants in {@link SystemDictionaryLoader}, and
+     * {@link SystemDictionaryLoader#TOTAL} is the time it took to load the whole dictionary, which is less than
+     * the sum of the components when they are loaded in parallel
+     *
+     * @return load times in nanoseconds by component, empty if unknown
+     */
+    public Map<String, Long> getLoadTimes() {
+        return loadTimes;
+    }
+}
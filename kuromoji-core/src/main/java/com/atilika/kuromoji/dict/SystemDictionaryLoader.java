@@ -0,0 +1,221 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.fst.FST;
+import com.atilika.kuromoji.util.ResourceResolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Loads the components of a system dictionary and measures how long loading each component takes
+ * <p>
+ * The components are independent of each other, except for the unknown dictionary which uses the character
+ * definitions, and can be loaded in parallel
+ */
+public class SystemDictionaryLoader {
+
+    public static final String FST_COMPONENT = "fst";
+
+    public static final String CONNECTION_COSTS_COMPONENT = "connectionCosts";
+
+    public static final String TOKEN_INFO_DICTIONARY_COMPONENT = "tokenInfoDictionary";
+
+    public static final String CHARACTER_DEFINITIONS_COMPONENT = "characterDefinitions";
+
+    public static final String UNKNOWN_DICTIONARY_COMPONENT = "unknownDictionary";
+
+    public static final String TOTAL = "total";
+
+    private final ResourceResolver resolver;
+
+    private final int totalFeatures;
+
+    private final Map<String, Long> loadTimes = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+
+    public SystemDictionaryLoader(ResourceResolver resolver, int totalFeatures) {
+        this.resolver = resolver;
+        this.totalFeatures = totalFeatures;
+    }
+
+    /**
+     * Loads the components one after another on this thread
+     *
+     * @return system dictionary, not null
+     * @throws IOException if an error occurs loading a component
+     */
+    public SystemDictionary load() throws IOException {
+        return load(null);
+    }
+
+    /**
+     * Loads the components in parallel using an executor
+     * <p>
+     * Components not started by the executor, for example because all its threads are busy or it rejects them, are
+     * loaded on this thread.
+     *
+     * @param executor  executor to load the components on, or null to load them on this thread
+     * @return system dictionary, not null
+     * @throws IOException if an error occurs loading a component
+     */
+    public SystemDictionary load(Executor executor) throws IOException {
+        long start = System.nanoTime();
+
+        FutureTask<FST> fst = new FutureTask<>(new TimedLoad<FST>(FST_COMPONENT) {
+            @Override
+            FST load() throws IOException {
+                return FST.newInstance(resolver);
+            }
+        });
+
+        FutureTask<ConnectionCosts> connectionCosts = new FutureTask<>(new TimedLoad<ConnectionCosts>(CONNECTION_COSTS_COMPONENT) {
+            @Override
+            ConnectionCosts load() throws IOException {
+                return ConnectionCosts.newInstance(resolver);
+            }
+        });
+
+        FutureTask<TokenInfoDictionary> tokenInfoDictionary = new FutureTask<>(new TimedLoad<TokenInfoDictionary>(TOKEN_INFO_DICTIONARY_COMPONENT) {
+            @Override
+            TokenInfoDictionary load() throws IOException {
+                return TokenInfoDictionary.newInstance(resolver);
+            }
+        });
+
+        FutureTask<UnknownDictionary> unknownDictionary = new FutureTask<>(new Callable<UnknownDictionary>() {
+            @Override
+            public UnknownDictionary call() throws IOException {
+                final CharacterDefinitions characterDefinitions = new TimedLoad<CharacterDefinitions>(CHARACTER_DEFINITIONS_COMPONENT) {
+                    @Override
+                    CharacterDefinitions load() throws IOException {
+                        return CharacterDefinitions.newInstance(resolver);
+                    }
+                }.call();
+
+                return new TimedLoad<UnknownDictionary>(UNKNOWN_DICTIONARY_COMPONENT) {
+                    @Override
+                    UnknownDictionary load() throws IOException {
+                        return UnknownDictionary.newInstance(resolver, characterDefinitions, totalFeatures);
+                    }
+                }.call();
+            }
+        });
+
+        List<FutureTask<?>> tasks = new ArrayList<>();
+        tasks.add(tokenInfoDictionary);
+        tasks.add(connectionCosts);
+        tasks.add(fst);
+        tasks.add(unknownDictionary);
+
+        if (executor != null) {
+            // The first and largest component is loaded on this thread
+            for (int i = 1; i < tasks.size(); i++) {
+                try {
+                    executor.execute(tasks.get(i));
+                } catch (RejectedExecutionException e) {
+                    break; // The remaining components are loaded on this thread below
+                }
+            }
+        }
+
+        for (FutureTask<?> task : tasks) {
+            task.run(); // Does nothing if the task has been started by the executor
+        }
+
+        UnknownDictionary unknown = getTaskResult(unknownDictionary);
+        unknown.setSystemDictionary(getTaskResult(tokenInfoDictionary));
+
+        SystemDictionary dictionary = new SystemDictionary(
+            getTaskResult(fst),
+            getTaskResult(connectionCosts),
+            getTaskResult(tokenInfoDictionary),
+            unknown.getCharacterDefinition(),
+            unknown,
+            getLoadTimes(System.nanoTime() - start)
+        );
+
+        return dictionary;
+    }
+
+    private Map<String, Long> getLoadTimes(long total) {
+        Map<String, Long> times = new LinkedHashMap<>();
+
+        for (String component : new String[]{
+            FST_COMPONENT,
+            CONNECTION_COSTS_COMPONENT,
+            TOKEN_INFO_DICTIONARY_COMPONENT,
+            CHARACTER_DEFINITIONS_COMPONENT,
+            UNKNOWN_DICTIONARY_COMPONENT
+        }) {
+            times.put(component, loadTimes.get(component));
+        }
+
+        times.put(TOTAL, total);
+
+        return Collections.unmodifiableMap(times);
+    }
+
+    private static <V> V getTaskResult(FutureTask<V> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading dictionary.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException("Could not load dictionary.", cause);
+        }
+    }
+
+    private abstract class TimedLoad<T> implements Callable<T> {
+
+        private final String component;
+
+        TimedLoad(String component) {
+            this.component = component;
+        }
+
+        abstract T load() throws IOException;
+
+        @Override
+        public T call() throws IOException {
+            long start = System.nanoTime();
+            T result = load();
+            loadTimes.put(component, System.nanoTime() - start);
+            return result;
+        }
+    }
+}
@@ -20,7 +20,9 @@ import com.atilika.kuromoji.buffer.BufferEntry;
 import com.atilika.kuromoji.buffer.StringValueMapBuffer;
 import com.atilika.kuromoji.buffer.TokenInfoBuffer;
 import com.atilika.kuromoji.buffer.WordIdMap;
+import com.atilika.kuromoji.io.ByteBufferIO;
 import com.atilika.kuromoji.util.DictionaryEntryLineParser;
+import com.atilika.kuromoji.util.MappedResourceResolver;
 import com.atilika.kuromoji.util.ResourceResolver;
 import com.atilika.kuromoji.util.StringUtils;
 
@@ -33,9 +35,6 @@ public class TokenInfoDictionary implements Dictionary {
     public static final String POS_MAP_FILENAME = "tokenInfoPartOfSpeechMap.bin";
     public static final String TARGETMAP_FILENAME = "tokenInfoTargetMap.bin";
 
-    private static final int LEFT_ID = 0;
-    private static final int RIGHT_ID = 1;
-    private static final int WORD_COST = 2;
     private static final int TOKEN_INFO_OFFSET = 3;
 
     private static final String FEATURE_SEPARATOR = ",";
@@ -51,17 +50,17 @@ public class TokenInfoDictionary implements Dictionary {
 
     @Override
     public int getLeftId(int wordId) {
-        return tokenInfoBuffer.lookupTokenInfo(wordId, LEFT_ID);
+        return tokenInfoBuffer.lookupLeftId(wordId);
     }
 
     @Override
     public int getRightId(int wordId) {
-        return tokenInfoBuffer.lookupTokenInfo(wordId, RIGHT_ID);
+        return tokenInfoBuffer.lookupRightId(wordId);
     }
 
     @Override
     public int getWordCost(int wordId) {
-        return tokenInfoBuffer.lookupTokenInfo(wordId, WORD_COST);
+        return tokenInfoBuffer.lookupWordCost(wordId);
     }
 
     @Override
@@ -122,6 +121,115 @@ public class TokenInfoDictionary implements Dictionary {
         return extractMultipleFeatures(wordId, fields);
     }
 
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        int count = tokenInfoBuffer.getTotalFeatureCount();
+
+        for (int field = 0; field < count; field++) {
+            if (field > 0) {
+                output.append(FEATURE_SEPARATOR);
+            }
+            getValues(field).appendEscaped(tokenInfoBuffer.lookupFeatureId(wordId, field), output);
+        }
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        getValues(field).append(tokenInfoBuffer.lookupFeatureId(wordId, field), output);
+    }
+
+    @Override
+    public int getFeatureId(int wordId, int field) {
+        return tokenInfoBuffer.lookupFeatureId(wordId, field);
+    }
+
+    /**
+     * Gets the id of a part of speech value, such as 名詞
+     *
+     * @param partOfSpeech  part of speech value
+     * @return feature id, or -1 if the value is not a part of speech in this dictionary
+     */
+    public int featureId(String partOfSpeech) {
+        return posValues.keyOf(partOfSpeech);
+    }
+
+    /**
+     * Gets the id of a value of a feature
+     * <p>
+     * Ids compare equal to {@link #getFeatureId(int, int)} for words with this value, which allows filtering words
+     * by comparing ints rather than strings. The first lookup of a value of a field other than a part of speech
+     * indexes all feature values, so such lookups are best avoided when memory is tight.
+     *
+     * @param field  feature number
+     * @param value  feature value
+     * @return feature id, or -1 if the value is not in this dictionary
+     */
+    @Override
+    public int featureId(int field, String value) {
+        return getValues(field).keyOf(value);
+    }
+
+    /**
+     * Gets the ids of all features of a word without allocating
+     * <p>
+     * Ids of part of speech features are keys in the part of speech values, and ids of other features are keys in
+     * the feature values
+     *
+     * @param wordId  word id to get feature ids for
+     * @param ids  array to write the ids to, with room for {@link #getFeatureCount()} ids
+     * @return number of ids written
+     */
+    public int featureIds(int wordId, int[] ids) {
+        return tokenInfoBuffer.lookupFeatureIds(wordId, ids);
+    }
+
+    /**
+     * @return number of features of each word
+     */
+    public int getFeatureCount() {
+        return tokenInfoBuffer.getTotalFeatureCount();
+    }
+
+    /**
+     * @return number of words, which have the word ids from 0 up to this number
+     */
+    public int getWordCount() {
+        return tokenInfoBuffer.getEntryCount();
+    }
+
+    /**
+     * Caches decoded feature values other than parts of speech, which are always decoded once when loading
+     * <p>
+     * Must be called before the dictionary is shared between threads
+     *
+     * @param capacity  maximum number of cached feature values, or 0 to disable caching
+     * @see StringValueMapBuffer#cache(int)
+     */
+    public void setFeatureCacheSize(int capacity) {
+        stringValues.cache(capacity);
+    }
+
+    /**
+     * @return number of feature values found in the feature cache
+     */
+    public long getFeatureCacheHits() {
+        return stringValues.getCacheHits();
+    }
+
+    /**
+     * @return number of feature values decoded because they were not in the feature cache
+     */
+    public long getFeatureCacheMisses() {
+        return stringValues.getCacheMisses();
+    }
+
+    private StringValueMapBuffer getValues(int field) {
+        if (field < tokenInfoBuffer.getPartOfSpeechFeatureCount()) {
+            return posValues;
+        }
+        return stringValues;
+    }
+
     private String extractSingleFeature(int wordId, int field) {
         int featureId;
 
@@ -157,14 +265,42 @@ public class TokenInfoDictionary implements Dictionary {
 
     public static TokenInfoDictionary newInstance(ResourceResolver resolver) throws IOException {
         TokenInfoDictionary dictionary = new TokenInfoDictionary();
-        dictionary.setup(resolver);
+        dictionary.setup(resolver, null);
         return dictionary;
     }
 
-    private void setup(ResourceResolver resolver) throws IOException {
-        tokenInfoBuffer = new TokenInfoBuffer(resolver.resolve(TOKEN_INFO_DICTIONARY_FILENAME));
-        stringValues = new StringValueMapBuffer(resolver.resolve(FEATURE_MAP_FILENAME));
-        posValues = new StringValueMapBuffer(resolver.resolve(POS_MAP_FILENAME));
-        wordIdMap = new WordIdMap(resolver.resolve(TARGETMAP_FILENAME));
+    /**
+     * Loads the words of a dictionary overlay, whose feature values extend the values of its base dictionary
+     *
+     * @param resolver  resolver to load the overlay with
+     * @param base  base dictionary the overlay was compiled for
+     * @return token info dictionary with the words of the overlay, sharing the feature values of the base dictionary
+     * @throws IOException if an error occurs loading the overlay
+     * @see DictionaryOverlay
+     */
+    static TokenInfoDictionary newOverlayInstance(ResourceResolver resolver, TokenInfoDictionary base) throws IOException {
+        TokenInfoDictionary dictionary = new TokenInfoDictionary();
+        dictionary.setup(resolver, base);
+        return dictionary;
+    }
+
+    private void setup(ResourceResolver resolver, TokenInfoDictionary base) throws IOException {
+        tokenInfoBuffer = new TokenInfoBuffer(ByteBufferIO.read(resolver, TOKEN_INFO_DICTIONARY_FILENAME));
+
+        if (base == null) {
+            stringValues = new StringValueMapBuffer(ByteBufferIO.read(resolver, FEATURE_MAP_FILENAME));
+            posValues = new StringValueMapBuffer(ByteBufferIO.read(resolver, POS_MAP_FILENAME));
+        } else {
+            stringValues = new StringValueMapBuffer(base.stringValues, ByteBufferIO.read(resolver, FEATURE_MAP_FILENAME));
+            posValues = new StringValueMapBuffer(base.posValues, ByteBufferIO.read(resolver, POS_MAP_FILENAME));
+        }
+
+        posValues.materialize();
+
+        if (resolver instanceof MappedResourceResolver) {
+            wordIdMap = new WordIdMap(((MappedResourceResolver) resolver).map(TARGETMAP_FILENAME));
+        } else {
+            wordIdMap = new WordIdMap(resolver.resolve(TARGETMAP_FILENAME));
+        }
     }
 }
@@ -42,6 +42,8 @@ public class UnknownDictionary implements Dictionary {
 
     private final CharacterDefinitions characterDefinition;
 
+    private TokenInfoDictionary systemDictionary;
+
     public UnknownDictionary(CharacterDefinitions characterDefinition,
                              int[][] entries,
                              int[][] costs,
@@ -125,6 +127,47 @@ public class UnknownDictionary implements Dictionary {
         return StringUtils.join(features, FEATURE_SEPARATOR);
     }
 
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        String[] basicFeatures = features[wordId];
+        int count = totalFeatures == features.length ? basicFeatures.length : totalFeatures;
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                output.append(FEATURE_SEPARATOR);
+            }
+            output.append(i < basicFeatures.length ? basicFeatures[i] : DEFAULT_FEATURE);
+        }
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        String[] basicFeatures = features[wordId];
+        output.append(field < basicFeatures.length ? basicFeatures[field] : DEFAULT_FEATURE);
+    }
+
+    @Override
+    public int getFeatureId(int wordId, int field) {
+        String[] basicFeatures = features[wordId];
+        return systemDictionary.featureId(field, field < basicFeatures.length ? basicFeatures[field] : DEFAULT_FEATURE);
+    }
+
+    @Override
+    public int featureId(int field, String value) {
+        return systemDictionary.featureId(field, value);
+    }
+
+    /**
+     * Sets the system dictionary whose feature ids are returned by {@link #getFeatureId(int, int)}
+     * <p>
+     * Must be called before this dictionary is shared between threads
+     *
+     * @param systemDictionary  system dictionary to look up feature ids in
+     */
+    public void setSystemDictionary(TokenInfoDictionary systemDictionary) {
+        this.systemDictionary = systemDictionary;
+    }
+
     public CharacterDefinitions getCharacterDefinition() {
         return characterDefinition;
     }
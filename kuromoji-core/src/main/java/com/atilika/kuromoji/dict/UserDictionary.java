@@ -16,9 +16,8 @@
  */
 package com.atilika.kuromoji.dict;
 
-import com.atilika.kuromoji.trie.PatriciaTrie;
+import com.atilika.kuromoji.trie.AhoCorasickAutomaton;
 import com.atilika.kuromoji.util.DictionaryEntryLineParser;
-import com.atilika.kuromoji.util.StringUtils;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -27,9 +26,18 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class UserDictionary implements Dictionary {
+/**
+ * User dictionary read from entries in CSV format
+ * <p>
+ * Entries are stored in columns rather than as objects. Word costs are kept in a primitive array, features as ids
+ * of distinct feature values, so that values such as the default * are stored once, and surfaces in a single char
+ * pool. Use {@link #getMemoryUsage()} to see how much memory the entries take.
+ */
+public class UserDictionary extends UserDictionaryBase {
 
     private static final int SIMPLE_USERDICT_FIELDS = 4;
 
@@ -44,123 +52,186 @@ public class UserDictionary implements Dictionary {
     private static final String DEFAULT_FEATURE = "*";
 
     private static final String FEATURE_SEPARATOR = ",";
-    // List of user dictionary entries
-    private final List<UserDictionaryEntry> entries = new ArrayList<>();
-    private final int readingFeature;
-    private final int partOfSpeechFeature;
+
+    private static final int COSTS_PER_WORD = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Rough object and reference sizes used when estimating memory usage
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private static final int MAP_ENTRY_OVERHEAD = 48;
+
     private final int totalFeatures;
-    // The word id below is the word id for the source string
-    // surface string => [ word id, 1st token length, 2nd token length, ... , nth token length
-    private PatriciaTrie<int[]> surfaces = new PatriciaTrie<>();
+
+    // Left id, right id and word cost of each word, by word id
+    private int[] costs = new int[INITIAL_CAPACITY * COSTS_PER_WORD];
+
+    // Value ids of the features of each word, by word id
+    private int[] features;
+
+    private int wordCount;
+
+    // Distinct feature values by value id, and value ids by value
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> valueIds = new HashMap<>();
+
+    // Surfaces in the order they were added, as offsets into a single char pool
+    private final StringBuilder surfacePool = new StringBuilder();
+    private int[] surfaceOffsets = new int[INITIAL_CAPACITY + 1];
+    private int surfaceCount;
+
+    // The word id and lengths of each surface: [ word id, 1st token length, 2nd token length, ... , nth token length ]
+    private int[] details = new int[INITIAL_CAPACITY * 2];
+    private int[] detailOffsets = new int[INITIAL_CAPACITY + 1];
+
+    // Built from the surfaces when first matching, and again after entries are added
+    private volatile SurfaceIndex surfaceIndex;
 
     public UserDictionary(InputStream input,
                           int totalFeatures,
                           int readingFeature,
                           int partOfSpeechFeature) throws IOException {
+        super(totalFeatures, readingFeature, partOfSpeechFeature);
         this.totalFeatures = totalFeatures;
-        this.readingFeature = readingFeature;
-        this.partOfSpeechFeature = partOfSpeechFeature;
+        this.features = new int[INITIAL_CAPACITY * Math.max(totalFeatures, 0)];
+        valueId(DEFAULT_FEATURE);
         read(input);
     }
 
     /**
-     * Lookup words in text
+     * Gets the index used for matching, building it if entries have been added since it was last built
      *
-     * @param text text to look up user dictionary matches for
-     * @return list of UserDictionaryMatch, not null
+     * @return surface index, not null
      */
-    public List<UserDictionaryMatch> findUserDictionaryMatches(String text) {
-        List<UserDictionaryMatch> matchInfos = new ArrayList<>();
-        int startIndex = 0;
-
-        while (startIndex < text.length()) {
-            int matchLength = 0;
-            int endIndex = 0;
-
-            while (currentInputContainsPotentialMatch(text, startIndex, endIndex)) {
-                String matchCandidate = text.substring(startIndex, startIndex + endIndex);
-
-                if (surfaces.containsKey(matchCandidate)) {
-                    matchLength = endIndex;
-                }
-
-                endIndex++;
-            }
+    @Override
+    SurfaceIndex getSurfaceIndex() {
+        SurfaceIndex index = surfaceIndex;
 
-            if (matchLength > 0) {
-                String match = text.substring(startIndex, startIndex + matchLength);
-                int[] details = surfaces.get(match);
+        if (index == null) {
+            synchronized (this) {
+                index = surfaceIndex;
 
-                if (details != null) {
-                    matchInfos.addAll(
-                        makeMatchDetails(startIndex, details)
-                    );
+                if (index == null) {
+                    index = new ArraySurfaceIndex();
+                    surfaceIndex = index;
                 }
             }
-
-            startIndex++;
         }
 
-        return matchInfos;
-    }
-
-    private boolean currentInputContainsPotentialMatch(String text, int startIndex, int endIndex) {
-        return startIndex + endIndex <= text.length() && surfaces.containsKeyPrefix(text.substring(startIndex, startIndex + endIndex));
+        return index;
     }
 
     @Override
     public int getLeftId(int wordId) {
-        UserDictionaryEntry entry = entries.get(wordId);
-        return entry.getLeftId();
+        return costs[checkWordId(wordId) * COSTS_PER_WORD];
     }
 
     @Override
     public int getRightId(int wordId) {
-        UserDictionaryEntry entry = entries.get(wordId);
-        return entry.getRightId();
+        return costs[checkWordId(wordId) * COSTS_PER_WORD + 1];
     }
 
     @Override
     public int getWordCost(int wordId) {
-        UserDictionaryEntry entry = entries.get(wordId);
-        return entry.getWordCost();
+        return costs[checkWordId(wordId) * COSTS_PER_WORD + 2];
     }
 
     @Override
     public String getAllFeatures(int wordId) {
-        UserDictionaryEntry entry = entries.get(wordId);
-        return entry.getAllFeatures();
+        int offset = checkWordId(wordId) * totalFeatures;
+        StringBuilder builder = new StringBuilder();
+
+        for (int field = 0; field < totalFeatures; field++) {
+            if (field > 0) {
+                builder.append(FEATURE_SEPARATOR);
+            }
+            builder.append(values.get(features[offset + field]));
+        }
+
+        return builder.toString();
     }
 
     @Override
     public String[] getAllFeaturesArray(int wordId) {
-        UserDictionaryEntry entry = entries.get(wordId);
-        return entry.getAllFeaturesArray();
+        String[] featureValues = new String[totalFeatures];
+
+        for (int field = 0; field < totalFeatures; field++) {
+            featureValues[field] = getFeatureValue(wordId, field);
+        }
+
+        return featureValues;
     }
 
+    /**
+     * Gets the values of some features of a word
+     * <p>
+     * The value of a single feature is returned as stored, without creating a new string
+     */
     @Override
     public String getFeature(int wordId, int... fields) {
-        UserDictionaryEntry entry = entries.get(wordId);
-        return entry.getFeature(fields);
+        if (fields.length == 1) {
+            return getFeatureValue(wordId, fields[0]);
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                builder.append(FEATURE_SEPARATOR);
+            }
+            builder.append(getFeatureValue(wordId, fields[i]));
+        }
+
+        return builder.toString();
     }
 
-    private List<UserDictionaryMatch> makeMatchDetails(int matchStartIndex, int[] details) {
-        List<UserDictionaryMatch> matchDetails = new ArrayList<>(details.length - 1);
+    @Override
+    public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+        for (int field = 0; field < totalFeatures; field++) {
+            if (field > 0) {
+                output.append(FEATURE_SEPARATOR);
+            }
+            output.append(getFeatureValue(wordId, field));
+        }
+    }
+
+    @Override
+    public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+        output.append(getFeatureValue(wordId, field));
+    }
+
+    @Override
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Estimates the memory taken by the entries of this dictionary and the index used to match them
+     * <p>
+     * The estimate counts the arrays, strings and map entries holding the entries, using typical object sizes for
+     * a 64-bit JVM with compressed references. Divide it by {@link #getWordCount()} to get the overhead per word.
+     *
+     * @return estimated number of bytes
+     */
+    @Override
+    public long getMemoryUsage() {
+        long bytes = 4L * (costs.length + features.length + surfaceOffsets.length + details.length + detailOffsets.length);
 
-        int wordId = details[0];
-        int startIndex = 0;
+        bytes += 2L * surfacePool.capacity();
 
-        for (int i = 1; i < details.length; i++) {
-            int matchLength = details[i];
+        for (String value : values) {
+            // The string and its chars, referenced from the value list and the value id map
+            bytes += 2 * OBJECT_OVERHEAD + 2L * value.length() + 4 + MAP_ENTRY_OVERHEAD;
+        }
 
-            matchDetails.add(
-                new UserDictionaryMatch(wordId, matchStartIndex + startIndex, matchLength)
-            );
+        SurfaceIndex index = surfaceIndex;
 
-            startIndex += matchLength;
-            wordId++;
+        if (index != null) {
+            bytes += index.getMemoryUsage();
         }
-        return matchDetails;
+
+        return bytes;
     }
 
     private void read(InputStream input) throws IOException {
@@ -196,27 +267,19 @@ public class UserDictionary implements Dictionary {
     }
 
     private void addFullEntry(String[] values) {
-
         String surface = values[0];
-        int[] costs = new int[]{
+        int wordId = addWord(
             Integer.parseInt(values[1]),
             Integer.parseInt(values[2]),
             Integer.parseInt(values[3])
-        };
-
-        String[] features = Arrays.copyOfRange(values, 4, values.length);
-
-        UserDictionaryEntry entry = new UserDictionaryEntry(
-            surface, costs, features
         );
 
-        int[] wordIdAndLengths = new int[1 + 1]; // Surface and a single length - the length of surface
-        wordIdAndLengths[0] = entries.size();
-        wordIdAndLengths[1] = surface.length();
-
-        entries.add(entry);
+        for (int field = 0; field < totalFeatures; field++) {
+            features[wordId * totalFeatures + field] = valueId(values[4 + field]);
+        }
 
-        surfaces.put(surface, wordIdAndLengths);
+        // A single token spanning the surface
+        addSurface(surface, wordId, new int[]{surface.length()});
     }
 
     private void addSimpleEntry(String[] values) {
@@ -240,162 +303,171 @@ public class UserDictionary implements Dictionary {
             throw new RuntimeException("User dictionary entry not properly formatted: " + Arrays.asList(values));
         }
 
-        // { wordId, 1st token length, 2nd token length, ... , nth token length
-        int[] wordIdAndLengths = new int[segmentation.length + 1];
-
-        int wordId = entries.size();
-        wordIdAndLengths[0] = wordId;
+        int[] lengths = new int[segmentation.length];
+        int firstWordId = wordCount;
+        int wordCost = makeWordCost(surface.length());
+        int partOfSpeechId = valueId(partOfSpeech);
 
         for (int i = 0; i < segmentation.length; i++) {
+            lengths[i] = segmentation[i].length();
 
-            wordIdAndLengths[i + 1] = segmentation[i].length();
-
-            String[] features = makeSimpleFeatures(partOfSpeech, readings[i]);
-            int[] costs = makeCosts(surface.length());
+            int wordId = addWord(LEFT_ID, RIGHT_ID, wordCost);
 
-            UserDictionaryEntry entry = new UserDictionaryEntry(
-                segmentation[i], costs, features
-            );
-
-            entries.add(entry);
+            // New feature slots hold the id of the default feature, 0
+            features[wordId * totalFeatures + getPartOfSpeechFeature()] = partOfSpeechId;
+            features[wordId * totalFeatures + getReadingFeature()] = valueId(readings[i]);
         }
 
-        surfaces.put(surface, wordIdAndLengths);
+        addSurface(surface, firstWordId, lengths);
     }
 
-    private int[] makeCosts(int length) {
-        int wordCost = WORD_COST_BASE * length;
-        if (wordCost < MINIMUM_WORD_COST) {
-            wordCost = MINIMUM_WORD_COST;
+    private int addWord(int leftId, int rightId, int wordCost) {
+        int wordId = wordCount;
+
+        if ((wordId + 1) * COSTS_PER_WORD > costs.length) {
+            costs = Arrays.copyOf(costs, costs.length * 2);
+            features = Arrays.copyOf(features, features.length * 2);
         }
 
-        return new int[]{LEFT_ID, RIGHT_ID, wordCost};
-    }
+        costs[wordId * COSTS_PER_WORD] = leftId;
+        costs[wordId * COSTS_PER_WORD + 1] = rightId;
+        costs[wordId * COSTS_PER_WORD + 2] = wordCost;
 
-    private String[] makeSimpleFeatures(String partOfSpeech, String reading) {
-        String[] features = emptyFeatureArray();
-        features[partOfSpeechFeature] = partOfSpeech;
-        features[readingFeature] = reading;
-        return features;
+        wordCount++;
+        return wordId;
     }
 
-    private String[] emptyFeatureArray() {
-        String[] features = new String[totalFeatures];
+    private void addSurface(String surface, int wordId, int[] lengths) {
+        if (surfaceCount + 2 > surfaceOffsets.length) {
+            surfaceOffsets = Arrays.copyOf(surfaceOffsets, surfaceOffsets.length * 2);
+            detailOffsets = Arrays.copyOf(detailOffsets, detailOffsets.length * 2);
+        }
+
+        int detailsStart = detailOffsets[surfaceCount];
 
-        for (int i = 0; i < features.length; i++) {
-            features[i] = DEFAULT_FEATURE;
+        if (detailsStart + 1 + lengths.length > details.length) {
+            details = Arrays.copyOf(details, Math.max(details.length * 2, detailsStart + 1 + lengths.length));
         }
 
-        return features;
-    }
+        details[detailsStart] = wordId;
+        System.arraycopy(lengths, 0, details, detailsStart + 1, lengths.length);
 
-    private boolean isCustomSegmentation(String surface, String segmentation) {
-        return !surface.equals(segmentation);
-    }
+        surfacePool.append(surface);
+        surfaceCount++;
+        surfaceOffsets[surfaceCount] = surfacePool.length();
+        detailOffsets[surfaceCount] = detailsStart + 1 + lengths.length;
 
-    private String[] split(String input) {
-        return input.split("\\s+");
+        surfaceIndex = null;
     }
 
-    public static class UserDictionaryMatch {
-
-        private final int wordId;
+    private int valueId(String value) {
+        Integer valueId = valueIds.get(value);
 
-        private final int matchStartIndex;
+        if (valueId == null) {
+            valueId = values.size();
+            values.add(value);
+            valueIds.put(value, valueId);
+        }
 
-        private final int matchLength;
+        return valueId;
+    }
 
-        public UserDictionaryMatch(int wordId, int matchStartIndex, int matchLength) {
-            this.wordId = wordId;
-            this.matchStartIndex = matchStartIndex;
-            this.matchLength = matchLength;
-        }
+    private String getFeatureValue(int wordId, int field) {
+        return values.get(features[checkWordId(wordId) * totalFeatures + field]);
+    }
 
-        public int getWordId() {
-            return wordId;
+    private int checkWordId(int wordId) {
+        if (wordId < 0 || wordId >= wordCount) {
+            throw new IndexOutOfBoundsException("Word id: " + wordId + ", word count: " + wordCount);
         }
+        return wordId;
+    }
 
-        public int getMatchStartIndex() {
-            return matchStartIndex;
+    private int makeWordCost(int length) {
+        int wordCost = WORD_COST_BASE * length;
+        if (wordCost < MINIMUM_WORD_COST) {
+            wordCost = MINIMUM_WORD_COST;
         }
 
-        public int getMatchLength() {
-            return matchLength;
-        }
+        return wordCost;
+    }
 
-        @Override
-        public String toString() {
-            return "UserDictionaryMatch{" +
-                "wordId=" + wordId +
-                ", matchStartIndex=" + matchStartIndex +
-                ", matchLength=" + matchLength +
-                '}';
-        }
+    private boolean isCustomSegmentation(String surface, String segmentation) {
+        return !surface.equals(segmentation);
     }
 
-    private class UserDictionaryEntry {
+    private String[] split(String input) {
+        return input.split("\\s+");
+    }
 
-        private String surface;
+    /**
+     * Surface index built from the surface pool
+     * <p>
+     * A surface added more than once uses the word ids and lengths it was added with last
+     */
+    private final class ArraySurfaceIndex extends SurfaceIndex {
 
-        private int[] costs;
+        // Number of the surface added last for each distinct surface
+        private final int[] surfaces;
 
-        private String[] features;
+        // Details of the dictionary when the index was built, only appended to as entries are added
+        private final int[] details;
+        private final int[] detailOffsets;
 
-        public UserDictionaryEntry(String surface, int[] costs, String[] features) {
-            this.surface = surface;
-            this.costs = costs;
-            this.features = features;
+        ArraySurfaceIndex() {
+            this(new ArrayList<String>(), new int[surfaceCount]);
         }
 
-        public String getSurface() {
-            return surface;
+        private ArraySurfaceIndex(List<String> keys, int[] lastSurfaces) {
+            super(new AhoCorasickAutomaton(distinctSurfaces(keys, lastSurfaces)));
+            surfaces = Arrays.copyOf(lastSurfaces, keys.size());
+            details = UserDictionary.this.details;
+            detailOffsets = UserDictionary.this.detailOffsets;
         }
 
-        public int getLeftId() {
-            return costs[0];
+        @Override
+        int getDetailsStart(int key) {
+            return detailOffsets[surfaces[key]];
         }
 
-        public int getRightId() {
-            return costs[1];
+        @Override
+        int getDetailsEnd(int key) {
+            return detailOffsets[surfaces[key] + 1];
         }
 
-        public int getWordCost() {
-            return costs[2];
+        @Override
+        int getDetail(int index) {
+            return details[index];
         }
 
-        public String[] getAllFeaturesArray() {
-            return features;
+        @Override
+        long getMemoryUsage() {
+            return automaton.getMemoryUsage() + 4L * surfaces.length;
         }
+    }
 
-        public String getAllFeatures() {
-            return StringUtils.join(features, FEATURE_SEPARATOR);
-        }
+    /**
+     * Collects the distinct surfaces in the order they were first added
+     *
+     * @param keys  list to add the distinct surfaces to
+     * @param lastSurfaces  array to store the number of the surface added last for each distinct surface in
+     * @return keys
+     */
+    private List<String> distinctSurfaces(List<String> keys, int[] lastSurfaces) {
+        Map<String, Integer> keyIndices = new HashMap<>();
 
-        public String getFeature(int... fields) {
-            String[] f = new String[fields.length];
+        for (int surface = 0; surface < surfaceCount; surface++) {
+            String key = surfacePool.substring(surfaceOffsets[surface], surfaceOffsets[surface + 1]);
+            Integer keyIndex = keyIndices.get(key);
 
-            for (int i = 0; i < fields.length; i++) {
-                int featureNumber = fields[i];
-                f[i] = features[featureNumber];
+            if (keyIndex == null) {
+                keyIndex = keys.size();
+                keyIndices.put(key, keyIndex);
+                keys.add(key);
             }
-
-            return StringUtils.join(f, FEATURE_SEPARATOR);
+            lastSurfaces[keyIndex] = surface;
         }
 
-        public String toString() {
-            StringBuilder builder = new StringBuilder();
-            builder.append(surface);
-            builder.append(FEATURE_SEPARATOR);
-            builder.append(costs[0]);
-            builder.append(FEATURE_SEPARATOR);
-            builder.append(costs[1]);
-            builder.append(FEATURE_SEPARATOR);
-            builder.append(costs[2]);
-            builder.append(FEATURE_SEPARATOR);
-            builder.append(
-                StringUtils.join(features, FEATURE_SEPARATOR)
-            );
-            return builder.toString();
-        }
+        return keys;
     }
 }
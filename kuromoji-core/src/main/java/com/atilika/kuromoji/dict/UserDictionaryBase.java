@@ -0,0 +1,404 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.trie.AhoCorasickAutomaton;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of a user dictionary, shared by user dictionaries parsed from CSV, compiled user dictionaries and
+ * layered user dictionaries
+ * <p>
+ * Tokenizers only read user dictionaries through this type, so a dictionary of any kind can be used with a tokenizer,
+ * held by a {@link UserDictionaryHolder} or compiled by {@link CompiledUserDictionary#write}.
+ */
+public abstract class UserDictionaryBase implements Dictionary {
+
+    private final int readingFeature;
+    private final int partOfSpeechFeature;
+    private final int totalFeatures;
+
+    /**
+     * Constructor
+     *
+     * @param totalFeatures  number of features of each entry
+     * @param readingFeature  feature number of the reading
+     * @param partOfSpeechFeature  feature number of the part of speech
+     */
+    protected UserDictionaryBase(int totalFeatures, int readingFeature, int partOfSpeechFeature) {
+        this.totalFeatures = totalFeatures;
+        this.readingFeature = readingFeature;
+        this.partOfSpeechFeature = partOfSpeechFeature;
+    }
+
+    /**
+     * Lookup words in text
+     *
+     * @param text text to look up user dictionary matches for
+     * @return list of UserDictionaryMatch, not null
+     */
+    public List<UserDictionaryMatch> findUserDictionaryMatches(String text) {
+        return findUserDictionaryMatches(text, 0, text.length());
+    }
+
+    /**
+     * Lookup words in a region of a text
+     * <p>
+     * Match start indices are relative to the start of the region
+     *
+     * @param text text to look up user dictionary matches for
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     * @return list of UserDictionaryMatch, not null
+     */
+    public List<UserDictionaryMatch> findUserDictionaryMatches(CharSequence text, final int offset, int length) {
+        SurfaceIndex index = getSurfaceIndex();
+        final int[] longestSurfaces = new int[length];
+        final int[] longestLengths = new int[length];
+
+        // Keeps the longest match starting at each index
+        index.automaton.match(text, offset, offset + length, new AhoCorasickAutomaton.MatchHandler() {
+            @Override
+            public void match(int start, int end, int key) {
+                int startIndex = start - offset;
+
+                if (end - start > longestLengths[startIndex]) {
+                    longestLengths[startIndex] = end - start;
+                    longestSurfaces[startIndex] = key;
+                }
+            }
+        });
+
+        List<UserDictionaryMatch> matchInfos = new ArrayList<>();
+
+        for (int startIndex = 0; startIndex < length; startIndex++) {
+            if (longestLengths[startIndex] > 0) {
+                index.addMatches(matchInfos, startIndex, longestSurfaces[startIndex], 0);
+            }
+        }
+
+        return matchInfos;
+    }
+
+    /**
+     * Builds the index used for matching ahead of the first lookup
+     */
+    void prepare() {
+        getSurfaceIndex();
+    }
+
+    /**
+     * Gets the index of the distinct surfaces of this dictionary
+     * <p>
+     * The index is used for matching, and holds the surfaces written when compiling the dictionary
+     *
+     * @return surface index, not null
+     */
+    abstract SurfaceIndex getSurfaceIndex();
+
+    /**
+     * User dictionaries have no feature ids of their own, see {@link #withSystemDictionary(TokenInfoDictionary)}
+     *
+     * @return -1
+     */
+    @Override
+    public int getFeatureId(int wordId, int field) {
+        return -1;
+    }
+
+    /**
+     * User dictionaries have no feature ids of their own, see {@link #withSystemDictionary(TokenInfoDictionary)}
+     *
+     * @return -1
+     */
+    @Override
+    public int featureId(int field, String value) {
+        return -1;
+    }
+
+    /**
+     * Creates a view of this dictionary with the feature ids of a system dictionary
+     * <p>
+     * The view shares the entries of this dictionary and does not modify it, so a user dictionary can be used by
+     * tokenizers with different system dictionaries at the same time, each through its own view
+     *
+     * @param systemDictionary  system dictionary to look up feature ids in
+     * @return dictionary returning the feature ids of the system dictionary, not null
+     */
+    public Dictionary withSystemDictionary(TokenInfoDictionary systemDictionary) {
+        return new SystemFeatureIds(this, systemDictionary);
+    }
+
+    /**
+     * @return number of features of each entry
+     */
+    public int getTotalFeatures() {
+        return totalFeatures;
+    }
+
+    /**
+     * @return feature number of the reading of simple entries
+     */
+    public int getReadingFeature() {
+        return readingFeature;
+    }
+
+    /**
+     * @return feature number of the part of speech of simple entries
+     */
+    public int getPartOfSpeechFeature() {
+        return partOfSpeechFeature;
+    }
+
+    /**
+     * Gets the number of words in this dictionary
+     * <p>
+     * Entries with a custom segmentation have a word for each segment
+     *
+     * @return number of words
+     */
+    public abstract int getWordCount();
+
+    /**
+     * Estimates the memory taken by the entries of this dictionary and the index used to match them
+     *
+     * @return estimated number of bytes
+     */
+    public abstract long getMemoryUsage();
+
+    /**
+     * Automaton finding the distinct surfaces of a dictionary, and the word ids and lengths of each surface
+     * <p>
+     * The details of a surface are its first word id followed by the lengths of its words
+     */
+    abstract static class SurfaceIndex {
+
+        final AhoCorasickAutomaton automaton;
+
+        SurfaceIndex(AhoCorasickAutomaton automaton) {
+            this.automaton = automaton;
+        }
+
+        /**
+         * @return number of distinct surfaces
+         */
+        int size() {
+            return automaton.size();
+        }
+
+        abstract int getDetailsStart(int key);
+
+        abstract int getDetailsEnd(int key);
+
+        abstract int getDetail(int index);
+
+        /**
+         * @return estimated number of bytes taken by the index, not counting details shared with the dictionary
+         */
+        abstract long getMemoryUsage();
+
+        /**
+         * Gets the word id and lengths of a surface
+         *
+         * @param key  index of the distinct surface, as matched by the automaton
+         * @return [ word id, 1st token length, 2nd token length, ... , nth token length ], not null
+         */
+        int[] getDetails(int key) {
+            int start = getDetailsStart(key);
+            int[] details = new int[getDetailsEnd(key) - start];
+
+            for (int i = 0; i < details.length; i++) {
+                details[i] = getDetail(start + i);
+            }
+            return details;
+        }
+
+        /**
+         * Adds the words of a matched surface to a list of matches
+         *
+         * @param matches  list to add the matches to
+         * @param matchStartIndex  start index of the surface
+         * @param key  index of the distinct surface, as matched by the automaton
+         * @param wordIdOffset  offset to add to the word ids
+         */
+        void addMatches(List<UserDictionaryMatch> matches, int matchStartIndex, int key, int wordIdOffset) {
+            int detailsStart = getDetailsStart(key);
+            int detailsEnd = getDetailsEnd(key);
+            int wordId = wordIdOffset + getDetail(detailsStart);
+            int startIndex = matchStartIndex;
+
+            for (int i = detailsStart + 1; i < detailsEnd; i++) {
+                int matchLength = getDetail(i);
+
+                matches.add(
+                    new UserDictionaryMatch(wordId, startIndex, matchLength)
+                );
+
+                startIndex += matchLength;
+                wordId++;
+            }
+        }
+    }
+
+    /**
+     * Surface index with the details of all surfaces in a single buffer
+     */
+    static final class BufferSurfaceIndex extends SurfaceIndex {
+
+        private final IntBuffer surfaceOffsets;
+
+        private final IntBuffer surfaceDetails;
+
+        /**
+         * Constructor
+         *
+         * @param automaton  automaton finding the surfaces
+         * @param surfaceOffsets  start of the details of each surface, with an extra element past the last surface
+         * @param surfaceDetails  details of all surfaces
+         */
+        BufferSurfaceIndex(AhoCorasickAutomaton automaton, IntBuffer surfaceOffsets, IntBuffer surfaceDetails) {
+            super(automaton);
+            this.surfaceOffsets = surfaceOffsets;
+            this.surfaceDetails = surfaceDetails;
+        }
+
+        @Override
+        int getDetailsStart(int key) {
+            return surfaceOffsets.get(key);
+        }
+
+        @Override
+        int getDetailsEnd(int key) {
+            return surfaceOffsets.get(key + 1);
+        }
+
+        @Override
+        int getDetail(int index) {
+            return surfaceDetails.get(index);
+        }
+
+        @Override
+        long getMemoryUsage() {
+            return automaton.getMemoryUsage() + 4L * (surfaceOffsets.capacity() + surfaceDetails.capacity());
+        }
+    }
+
+    /**
+     * User dictionary looking up the ids of its features in a system dictionary
+     */
+    private static final class SystemFeatureIds implements Dictionary {
+
+        private final UserDictionaryBase dictionary;
+
+        private final TokenInfoDictionary systemDictionary;
+
+        SystemFeatureIds(UserDictionaryBase dictionary, TokenInfoDictionary systemDictionary) {
+            this.dictionary = dictionary;
+            this.systemDictionary = systemDictionary;
+        }
+
+        @Override
+        public int getLeftId(int wordId) {
+            return dictionary.getLeftId(wordId);
+        }
+
+        @Override
+        public int getRightId(int wordId) {
+            return dictionary.getRightId(wordId);
+        }
+
+        @Override
+        public int getWordCost(int wordId) {
+            return dictionary.getWordCost(wordId);
+        }
+
+        @Override
+        public String getAllFeatures(int wordId) {
+            return dictionary.getAllFeatures(wordId);
+        }
+
+        @Override
+        public String[] getAllFeaturesArray(int wordId) {
+            return dictionary.getAllFeaturesArray(wordId);
+        }
+
+        @Override
+        public String getFeature(int wordId, int... fields) {
+            return dictionary.getFeature(wordId, fields);
+        }
+
+        @Override
+        public void appendAllFeatures(int wordId, Appendable output) throws IOException {
+            dictionary.appendAllFeatures(wordId, output);
+        }
+
+        @Override
+        public void appendFeature(int wordId, int field, Appendable output) throws IOException {
+            dictionary.appendFeature(wordId, field, output);
+        }
+
+        @Override
+        public int getFeatureId(int wordId, int field) {
+            return systemDictionary.featureId(field, dictionary.getFeature(wordId, field));
+        }
+
+        @Override
+        public int featureId(int field, String value) {
+            return systemDictionary.featureId(field, value);
+        }
+    }
+
+    public static class UserDictionaryMatch {
+
+        private final int wordId;
+
+        private final int matchStartIndex;
+
+        private final int matchLength;
+
+        public UserDictionaryMatch(int wordId, int matchStartIndex, int matchLength) {
+            this.wordId = wordId;
+            this.matchStartIndex = matchStartIndex;
+            this.matchLength = matchLength;
+        }
+
+        public int getWordId() {
+            return wordId;
+        }
+
+        public int getMatchStartIndex() {
+            return matchStartIndex;
+        }
+
+        public int getMatchLength() {
+            return matchLength;
+        }
+
+        @Override
+        public String toString() {
+            return "UserDictionaryMatch{" +
+                "wordId=" + wordId +
+                ", matchStartIndex=" + matchStartIndex +
+                ", matchLength=" + matchLength +
+                '}';
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holder of a user dictionary that can be replaced while tokenizers are using it
+ * <p>
+ * Tokenizers built with a holder read its current dictionary once at the start of each tokenize call, which is a
+ * single volatile read. A call that is already running keeps using the dictionary it started with, and calls
+ * starting after a replacement use the new dictionary. Any number of tokenizers can share a holder.
+ * <p>
+ * Replacement dictionaries are loaded and indexed by a background loader, so tokenizing threads never wait for
+ * a dictionary to be read. Replacing a dictionary does not copy the system dictionary or the tokenizers.
+ * <p>
+ * This class is thread-safe
+ */
+public final class UserDictionaryHolder {
+
+    private final int totalFeatures;
+
+    private final int readingFeature;
+
+    private final int partOfSpeechFeature;
+
+    private volatile UserDictionaryBase dictionary;
+
+    // Numbers replacements in the order they are requested, so that a slow load never replaces a later dictionary
+    private final AtomicLong replacements = new AtomicLong();
+
+    // Number of the replacement currently held, guarded by this
+    private long current;
+
+    /**
+     * Loads a user dictionary
+     */
+    public interface Loader {
+
+        UserDictionaryBase load() throws IOException;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param totalFeatures  number of features of the dictionaries held
+     * @param readingFeature  feature number of the reading
+     * @param partOfSpeechFeature  feature number of the part of speech
+     */
+    public UserDictionaryHolder(int totalFeatures, int readingFeature, int partOfSpeechFeature) {
+        this.totalFeatures = totalFeatures;
+        this.readingFeature = readingFeature;
+        this.partOfSpeechFeature = partOfSpeechFeature;
+    }
+
+    /**
+     * @return the current user dictionary, or null if there is none
+     */
+    public UserDictionaryBase get() {
+        return dictionary;
+    }
+
+    /**
+     * Replaces the user dictionary
+     * <p>
+     * The dictionary should not be modified once it is held, since tokenizers may be using it
+     *
+     * @param dictionary  new user dictionary, or null to tokenize without one
+     * @throws IllegalArgumentException if the dictionary has a different number of features
+     */
+    public void set(UserDictionaryBase dictionary) {
+        checkFeatures(dictionary);
+        replace(replacements.incrementAndGet(), dictionary);
+    }
+
+    /**
+     * Loads a replacement user dictionary in the background and replaces the current one with it once it is ready
+     * <p>
+     * The dictionary is indexed for matching before it replaces the current one, so the first tokenize calls using
+     * it are not slowed down. If another dictionary is set or loaded after this load was started, and it replaces
+     * the current dictionary first, the dictionary loaded here is discarded.
+     *
+     * @param loader  loader to load the replacement with
+     * @param executor  executor to load on
+     * @return future completing with the loaded dictionary, or with the error loading it
+     */
+    public Future<UserDictionaryBase> load(final Loader loader, Executor executor) {
+        final long replacement = replacements.incrementAndGet();
+
+        FutureTask<UserDictionaryBase> task = new FutureTask<>(new Callable<UserDictionaryBase>() {
+            @Override
+            public UserDictionaryBase call() throws IOException {
+                UserDictionaryBase dictionary = loader.load();
+
+                checkFeatures(dictionary);
+                dictionary.prepare();
+                replace(replacement, dictionary);
+
+                return dictionary;
+            }
+        });
+
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Loads a replacement user dictionary in CSV format from a file in the background
+     *
+     * @param filename  user dictionary filename
+     * @param executor  executor to load on
+     * @return future completing with the loaded dictionary, or with the error loading it
+     * @see #load(Loader, Executor)
+     */
+    public Future<UserDictionaryBase> load(String filename, Executor executor) {
+        return load(newLoader(filename), executor);
+    }
+
+    /**
+     * Loads a replacement compiled user dictionary from a file in the background
+     *
+     * @param filename  compiled user dictionary filename
+     * @param executor  executor to load on
+     * @return future completing with the loaded dictionary, or with the error loading it
+     * @see #load(Loader, Executor)
+     * @see CompiledUserDictionary
+     */
+    public Future<UserDictionaryBase> loadCompiled(String filename, Executor executor) {
+        return load(newCompiledLoader(filename), executor);
+    }
+
+    /**
+     * Creates a loader reading a user dictionary in CSV format from a file, for the features of this holder
+     *
+     * @param filename  user dictionary filename
+     * @return loader, not null
+     */
+    Loader newLoader(final String filename) {
+        return new Loader() {
+            @Override
+            public UserDictionaryBase load() throws IOException {
+                try (InputStream input = new BufferedInputStream(new FileInputStream(filename))) {
+                    return new UserDictionary(input, totalFeatures, readingFeature, partOfSpeechFeature);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a loader memory-mapping a compiled user dictionary
+     *
+     * @param filename  compiled user dictionary filename
+     * @return loader, not null
+     */
+    Loader newCompiledLoader(final String filename) {
+        return new Loader() {
+            @Override
+            public UserDictionaryBase load() throws IOException {
+                return CompiledUserDictionary.newInstance(new File(filename));
+            }
+        };
+    }
+
+    private synchronized void replace(long replacement, UserDictionaryBase dictionary) {
+        if (replacement > current) {
+            current = replacement;
+            this.dictionary = dictionary;
+        }
+    }
+
+    void checkFeatures(UserDictionaryBase dictionary) {
+        if (dictionary != null && dictionary.getTotalFeatures() != totalFeatures) {
+            throw new IllegalArgumentException(
+                "User dictionary has " + dictionary.getTotalFeatures() + " features, expected " + totalFeatures
+            );
+        }
+    }
+}
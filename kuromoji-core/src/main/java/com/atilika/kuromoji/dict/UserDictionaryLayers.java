@@ -0,0 +1,245 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named user dictionary layers with priorities, published to a {@link UserDictionaryHolder} as a single
+ * {@link LayeredUserDictionary}
+ * <p>
+ * Layers can be a global base list, per-tenant lists and a hot overlay, for example. Each layer is set, loaded in the
+ * background or removed on its own, and every change publishes a new layered dictionary to the holder, so tokenizers
+ * using the holder pick up the change with their next tokenize call. Publishing only stacks the layers, it does not
+ * copy or re-index them, so a layer dictionary can be shared by the layers of any number of tenants.
+ * <p>
+ * Layers with a higher priority win over layers with a lower priority, and layers with the same priority are ordered
+ * by name. The holder should only be changed through its layers once they are in use.
+ * <p>
+ * This class is thread-safe
+ */
+public final class UserDictionaryLayers {
+
+    private final UserDictionaryHolder holder;
+
+    // Numbers changes in the order they are requested, so that a slow load never replaces a later change of its layer
+    private final AtomicLong changes = new AtomicLong();
+
+    // Layers by name, and the number of the last change applied to each name, guarded by this
+    private final Map<String, Layer> layers = new HashMap<>();
+    private final Map<String, Long> appliedChanges = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param holder  holder to publish the layered dictionary to, see
+     * {@link com.atilika.kuromoji.TokenizerBase.Builder#newUserDictionaryHolder()}
+     */
+    public UserDictionaryLayers(UserDictionaryHolder holder) {
+        this.holder = holder;
+    }
+
+    /**
+     * @return the holder the layers are published to
+     */
+    public UserDictionaryHolder getHolder() {
+        return holder;
+    }
+
+    /**
+     * Sets a layer, replacing any layer with the same name
+     *
+     * @param name  layer name
+     * @param priority  layer priority
+     * @param dictionary  user dictionary of the layer, not modified once it is set
+     * @throws IllegalArgumentException if the dictionary has a different number of features than the holder
+     */
+    public void set(String name, int priority, UserDictionaryBase dictionary) {
+        holder.checkFeatures(dictionary);
+        apply(changes.incrementAndGet(), new Layer(name, priority, dictionary));
+    }
+
+    /**
+     * Removes a layer
+     *
+     * @param name  layer name
+     */
+    public void remove(String name) {
+        apply(changes.incrementAndGet(), new Layer(name, 0, null));
+    }
+
+    /**
+     * Loads a layer in the background and sets it once it is ready
+     * <p>
+     * The dictionary is indexed for matching before it is published. If the layer is set, loaded or removed again
+     * after this load was started, and that change is applied first, the dictionary loaded here is discarded.
+     *
+     * @param name  layer name
+     * @param priority  layer priority
+     * @param loader  loader to load the layer dictionary with
+     * @param executor  executor to load on
+     * @return future completing with the loaded dictionary, or with the error loading it
+     */
+    public Future<UserDictionaryBase> load(final String name, final int priority, final UserDictionaryHolder.Loader loader, Executor executor) {
+        final long change = changes.incrementAndGet();
+
+        FutureTask<UserDictionaryBase> task = new FutureTask<>(new Callable<UserDictionaryBase>() {
+            @Override
+            public UserDictionaryBase call() throws IOException {
+                UserDictionaryBase dictionary = loader.load();
+
+                holder.checkFeatures(dictionary);
+                dictionary.prepare();
+                apply(change, new Layer(name, priority, dictionary));
+
+                return dictionary;
+            }
+        });
+
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Loads a layer in CSV format from a file in the background
+     *
+     * @param name  layer name
+     * @param priority  layer priority
+     * @param filename  user dictionary filename
+     * @param executor  executor to load on
+     * @return future completing with the loaded dictionary, or with the error loading it
+     * @see #load(String, int, UserDictionaryHolder.Loader, Executor)
+     */
+    public Future<UserDictionaryBase> load(String name, int priority, String filename, Executor executor) {
+        return load(name, priority, holder.newLoader(filename), executor);
+    }
+
+    /**
+     * Loads a compiled layer from a file in the background
+     *
+     * @param name  layer name
+     * @param priority  layer priority
+     * @param filename  compiled user dictionary filename
+     * @param executor  executor to load on
+     * @return future completing with the loaded dictionary, or with the error loading it
+     * @see #load(String, int, UserDictionaryHolder.Loader, Executor)
+     */
+    public Future<UserDictionaryBase> loadCompiled(String name, int priority, String filename, Executor executor) {
+        return load(name, priority, holder.newCompiledLoader(filename), executor);
+    }
+
+    /**
+     * Gets the dictionary of a layer
+     *
+     * @param name  layer name
+     * @return user dictionary, or null if there is no such layer
+     */
+    public synchronized UserDictionaryBase get(String name) {
+        Layer layer = layers.get(name);
+        return layer == null ? null : layer.dictionary;
+    }
+
+    /**
+     * @return the layer names from the lowest to the highest priority, not null
+     */
+    public synchronized List<String> getNames() {
+        List<String> names = new ArrayList<>();
+
+        for (Layer layer : sortedLayers()) {
+            names.add(layer.name);
+        }
+        return names;
+    }
+
+    private synchronized void apply(long change, Layer layer) {
+        Long applied = appliedChanges.get(layer.name);
+
+        if (applied != null && applied > change) {
+            return;
+        }
+
+        appliedChanges.put(layer.name, change);
+
+        if (layer.dictionary == null) {
+            layers.remove(layer.name);
+        } else {
+            layers.put(layer.name, layer);
+        }
+
+        publish();
+    }
+
+    private void publish() {
+        if (layers.isEmpty()) {
+            holder.set(null);
+            return;
+        }
+
+        List<UserDictionaryBase> dictionaries = new ArrayList<>();
+
+        for (Layer layer : sortedLayers()) {
+            dictionaries.add(layer.dictionary);
+        }
+
+        holder.set(new LayeredUserDictionary(dictionaries));
+    }
+
+    private List<Layer> sortedLayers() {
+        List<Layer> sorted = new ArrayList<>(layers.values());
+
+        Collections.sort(sorted, new Comparator<Layer>() {
+            @Override
+            public int compare(Layer a, Layer b) {
+                if (a.priority != b.priority) {
+                    return a.priority < b.priority ? -1 : 1;
+                }
+                return a.name.compareTo(b.name);
+            }
+        });
+
+        return sorted;
+    }
+
+    /**
+     * User dictionary of a layer with its name and priority, or the removal of a layer if there is no dictionary
+     */
+    private static class Layer {
+
+        private final String name;
+
+        private final int priority;
+
+        private final UserDictionaryBase dictionary;
+
+        Layer(String name, int priority, UserDictionaryBase dictionary) {
+            this.name = name;
+            this.priority = priority;
+            this.dictionary = dictionary;
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package com.atilika.kuromoji.fst;
 
+import java.nio.ByteBuffer;
+
 public class Bits {
 
     public static byte getByte(byte[] array, int index) {
@@ -52,6 +54,36 @@ public class Bits {
         }
     }
 
+    public static byte getByte(ByteBuffer buffer, int index) {
+        return buffer.get(index);
+    }
+
+    public static int getShort(ByteBuffer buffer, int index) {
+        return (buffer.get(index - 1) & 0xff) << 8 | (buffer.get(index) & 0xff);
+    }
+
+    public static int getInt(ByteBuffer buffer, int index, int intBytes) {
+        switch (intBytes) {
+            case 0:
+                return 0;
+
+            case 1:
+                return buffer.get(index) & 0xff;
+
+            case 2:
+                return (buffer.get(index - 1) & 0xff) << 8 | (buffer.get(index) & 0xff);
+
+            case 3:
+                return (buffer.get(index - 2) & 0xff) << 16 | (buffer.get(index - 1) & 0xff) << 8 | (buffer.get(index) & 0xff);
+
+            case 4:
+                return buffer.getInt(index - 3);
+
+            default:
+                throw new RuntimeException("Illegal int byte size: " + intBytes);
+        }
+    }
+
     public static void putInt(byte[] bytes, int index, int value, int intBytes) {
         switch (intBytes) {
             case 1:
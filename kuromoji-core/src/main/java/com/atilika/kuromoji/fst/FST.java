@@ -21,32 +21,42 @@ import com.atilika.kuromoji.util.ResourceResolver;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 public class FST {
 
     public static final String FST_FILENAME = "fst.bin";
 
-    private byte[] fst;
+    private ByteBuffer fst;
 
     private int[] jumpCache = new int[65536];
 
     private int[] outputCache = new int[65536];
 
     public FST(byte[] compiled) {
+        this(ByteBuffer.wrap(compiled));
+    }
+
+    /**
+     * Creates an FST reading its compiled states directly from a buffer, such as a memory-mapped file
+     *
+     * @param compiled  buffer holding the compiled FST from index 0 to its limit
+     */
+    public FST(ByteBuffer compiled) {
         this.fst = compiled;
         initCache();
     }
 
     public FST(InputStream input) throws IOException {
-        this(ByteBufferIO.read(input).array());
+        this(ByteBufferIO.read(input));
     }
 
     private void initCache() {
         Arrays.fill(jumpCache, -1);
         Arrays.fill(outputCache, -1);
 
-        int address = fst.length - 1;
+        int address = fst.limit() - 1;
 
         final byte stateType = Bits.getByte(fst, address);
         address -= 1;
@@ -74,7 +84,7 @@ public class FST {
 
     public int lookup(String input) {
         final int length = input.length();
-        int address = fst.length - 1;
+        int address = fst.limit() - 1;
         int accumulator = 0;
         int index = 0;
 
@@ -158,6 +168,102 @@ public class FST {
         }
     }
 
+    /**
+     * Finds all surface forms in the FST that are prefixes of the input starting at the given index
+     * <p>
+     * The FST is traversed only once from its root, and the handler is called for every accept state passed on the
+     * way, i.e. for every matching surface form in order of increasing length
+     *
+     * @param input  input text
+     * @param start  index in the input to start matching from
+     * @param handler  handler receiving the matches found
+     * @return number of matches found
+     */
+    public int commonPrefixSearch(CharSequence input, int start, PrefixMatchHandler handler) {
+        return commonPrefixSearch(input, start, input.length(), handler);
+    }
+
+    /**
+     * Finds all surface forms in the FST that are prefixes of the input region from start to end
+     *
+     * @param input  input text
+     * @param start  index in the input to start matching from
+     * @param end  index in the input to stop matching at (exclusive)
+     * @param handler  handler receiving the matches found
+     * @return number of matches found
+     * @see #commonPrefixSearch(CharSequence, int, PrefixMatchHandler)
+     */
+    public int commonPrefixSearch(CharSequence input, int start, int end, PrefixMatchHandler handler) {
+        int address = fst.limit() - 1;
+        int accumulator = 0;
+        int matches = 0;
+
+        for (int index = start; index < end; index++) {
+            final char c = input.charAt(index);
+
+            if (index == start) {
+                //
+                // Processes cached root arcs - transition directly to the next state on a match
+                //
+                final int jump = jumpCache[c];
+
+                if (jump == -1) {
+                    break;
+                }
+
+                accumulator += outputCache[c];
+                address = jump;
+            } else {
+                final byte stateTypByte = Bits.getByte(fst, address);
+
+                final int jumpBytes = (stateTypByte & 0x03) + 1;
+                final int outputBytes = (stateTypByte & 0x03 << 3) >> 3;
+                final int arcSize = 2 + jumpBytes + outputBytes;
+
+                address -= 1;
+
+                //
+                // Transition to the next state by binary searching the output arcs
+                //
+                final int numberOfArcs = Bits.getShort(fst, address);
+                address -= 2;
+
+                int high = numberOfArcs - 1;
+                int low = 0;
+                boolean matched = false;
+
+                while (low <= high) {
+                    final int middle = low + (high - low) / 2;
+                    final int arcAddr = address - middle * arcSize;
+
+                    final char label = getArcLabel(arcAddr, outputBytes, jumpBytes);
+
+                    if (label == c) {
+                        matched = true;
+                        address = getArcJump(arcAddr, outputBytes, jumpBytes);
+                        accumulator += getArcOutput(arcAddr, outputBytes, jumpBytes);
+                        break;
+                    } else if (label > c) {
+                        low = middle + 1;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+
+                if (!matched) {
+                    break;
+                }
+            }
+
+            if ((byte) (Bits.getByte(fst, address) & 0x80) == Compiler.STATE_TYPE_ACCEPT) {
+                handler.match(accumulator, index - start + 1);
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+
     private char getArcLabel(final int arcAddress, final int accumulateBytes, final int jumpBytes) {
         return (char) Bits.getShort(fst, arcAddress - (accumulateBytes + jumpBytes));
     }
@@ -171,6 +277,6 @@ public class FST {
     }
 
     public static FST newInstance(ResourceResolver resolver) throws IOException {
-        return new FST(resolver.resolve(FST_FILENAME));
+        return new FST(ByteBufferIO.read(resolver, FST_FILENAME));
     }
 }
@@ -0,0 +1,33 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.fst;
+
+/**
+ * Receives the matches found by {@link FST#commonPrefixSearch(CharSequence, int, PrefixMatchHandler)}
+ */
+public interface PrefixMatchHandler {
+
+    /**
+     * Called for every dictionary surface form that is a prefix of the searched input
+     * <p>
+     * Matches are reported in order of increasing length
+     *
+     * @param output  FST output value for the matched surface form
+     * @param length  length of the matched surface form
+     */
+    void match(int output, int length);
+}
@@ -16,6 +16,10 @@
  */
 package com.atilika.kuromoji.io;
 
+import com.atilika.kuromoji.util.MappedResourceResolver;
+import com.atilika.kuromoji.util.ResourceResolver;
+
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -28,6 +32,8 @@ import java.nio.channels.WritableByteChannel;
 
 public class ByteBufferIO {
 
+    private static final int INTEGER_BYTES = Integer.SIZE / Byte.SIZE;
+
     public static ByteBuffer read(InputStream input) throws IOException {
         DataInputStream dataInput = new DataInputStream(input);
 
@@ -43,6 +49,44 @@ public class ByteBufferIO {
         return buffer;
     }
 
+    /**
+     * Reads a buffer written by {@link #write(OutputStream, ByteBuffer)} from a resource
+     * <p>
+     * Resources resolved by a {@link MappedResourceResolver} are not copied, and the buffer returned is a view of
+     * the mapped resource
+     *
+     * @param resolver  resolver to resolve the resource with
+     * @param resourceName  name of the resource
+     * @return buffer, not null
+     * @throws IOException if an error occurs reading the resource
+     */
+    public static ByteBuffer read(ResourceResolver resolver, String resourceName) throws IOException {
+        if (resolver instanceof MappedResourceResolver) {
+            return slice(((MappedResourceResolver) resolver).map(resourceName), 0);
+        }
+
+        try (InputStream input = new BufferedInputStream(resolver.resolve(resourceName))) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Gets a view of a buffer written by {@link #write(OutputStream, ByteBuffer)} at a position in another buffer
+     *
+     * @param buffer  buffer holding the written buffer
+     * @param position  position of the written buffer, including its size
+     * @return buffer sharing its contents with the given buffer, not null
+     */
+    public static ByteBuffer slice(ByteBuffer buffer, int position) {
+        int size = buffer.getInt(position);
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(position + INTEGER_BYTES + size);
+        slice.position(position + INTEGER_BYTES);
+
+        return slice.slice();
+    }
+
     public static void write(OutputStream output, ByteBuffer buffer) throws IOException {
         DataOutputStream dataOutput = new DataOutputStream(output);
 
@@ -40,6 +40,31 @@ public class IntegerArrayIO {
         return arrays;
     }
 
+    /**
+     * Gets views of arrays written by {@link #writeArray(OutputStream, int[])} from a buffer without copying them
+     *
+     * @param buffer  buffer holding the arrays from index 0
+     * @param arrayCount  number of arrays
+     * @return array buffers sharing their contents with the given buffer, not null
+     */
+    public static IntBuffer[] readArrays(ByteBuffer buffer, int arrayCount) {
+        IntBuffer[] arrays = new IntBuffer[arrayCount];
+        int position = 0;
+
+        for (int i = 0; i < arrayCount; i++) {
+            int length = buffer.getInt(position);
+            position += INT_BYTES;
+
+            ByteBuffer array = buffer.duplicate();
+            array.limit(position + length * INT_BYTES);
+            array.position(position);
+
+            arrays[i] = array.slice().asIntBuffer();
+            position += length * INT_BYTES;
+        }
+        return arrays;
+    }
+
     public static void writeArray(OutputStream output, int[] array) throws IOException {
         DataOutputStream dataOutput = new DataOutputStream(output);
         int length = array.length;
@@ -0,0 +1,420 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.trie;
+
+import com.atilika.kuromoji.io.IntegerArrayIO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Aho–Corasick automaton finding all occurrences of a set of keys in a text in a single pass
+ * <p>
+ * The automaton is built once from its keys and is immutable, so it can be used by any number of threads. Nodes are
+ * numbered in breadth-first order, which keeps the children of a node contiguous and sorted by label, so the
+ * automaton is stored in a few integer arrays and transitions are found by binary search. The arrays can be written
+ * and read back as views of a buffer, such as a memory-mapped file.
+ */
+public class AhoCorasickAutomaton {
+
+    /** State before any text has been read, see {@link #step(int, char)} */
+    public static final int START = 0;
+
+    private static final int ARRAY_COUNT = 6;
+
+    private static final int ROOT = START;
+
+    private static final int NONE = -1;
+
+    /** Label of the edge leading to each node */
+    private final IntBuffer labels;
+
+    /** Index of the first child of each node, with an extra element past the last node */
+    private final IntBuffer firstChildren;
+
+    /** Longest proper suffix of each node that is also a node */
+    private final IntBuffer failures;
+
+    /** Longest proper suffix of each node that is the end of a key, or NONE */
+    private final IntBuffer outputs;
+
+    /** Index of the key ending at each node, or NONE */
+    private final IntBuffer keyIndices;
+
+    private final IntBuffer keyLengths;
+
+    /**
+     * Handles a key found in a text
+     */
+    public interface MatchHandler {
+
+        /**
+         * Called for every occurrence of a key, ordered by end index and then from the longest to the shortest key
+         *
+         * @param start  start index of the key in the text
+         * @param end  end index of the key in the text (exclusive)
+         * @param key  index of the key in the keys the automaton was built from
+         */
+        void match(int start, int end, int key);
+    }
+
+    /**
+     * Builds an automaton for a list of unique keys
+     * <p>
+     * Empty keys are never found
+     *
+     * @param keys  keys to find
+     */
+    public AhoCorasickAutomaton(final List<String> keys) {
+        Integer[] order = new Integer[keys.size()];
+        String[] sortedKeys = new String[keys.size()];
+        int[] lengths = new int[keys.size()];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return keys.get(a).compareTo(keys.get(b));
+            }
+        });
+
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys.get(order[i]);
+            lengths[i] = sortedKeys[i].length();
+        }
+
+        NodeBuilder builder = new NodeBuilder(sortedKeys);
+        builder.build();
+
+        int nodes = builder.size;
+        int[] indices = Arrays.copyOf(builder.keyIndices, nodes);
+
+        for (int node = 0; node < nodes; node++) {
+            if (indices[node] != NONE) {
+                indices[node] = order[indices[node]];
+            }
+        }
+
+        int[] children = Arrays.copyOf(builder.firstChildren, nodes + 1);
+        children[nodes] = nodes;
+
+        int[] keyLengthsByIndex = new int[lengths.length];
+
+        for (int i = 0; i < lengths.length; i++) {
+            keyLengthsByIndex[order[i]] = lengths[i];
+        }
+
+        labels = IntBuffer.wrap(Arrays.copyOf(builder.labels, nodes));
+        firstChildren = IntBuffer.wrap(children);
+        keyIndices = IntBuffer.wrap(indices);
+        keyLengths = IntBuffer.wrap(keyLengthsByIndex);
+        failures = IntBuffer.allocate(nodes);
+        outputs = IntBuffer.allocate(nodes);
+
+        linkSuffixes(builder.parents);
+    }
+
+    /**
+     * Reads an automaton written by {@link #write(OutputStream)} without copying it
+     *
+     * @param buffer  buffer holding the automaton from index 0
+     */
+    public AhoCorasickAutomaton(ByteBuffer buffer) {
+        IntBuffer[] arrays = IntegerArrayIO.readArrays(buffer, ARRAY_COUNT);
+
+        labels = arrays[0];
+        firstChildren = arrays[1];
+        failures = arrays[2];
+        outputs = arrays[3];
+        keyIndices = arrays[4];
+        keyLengths = arrays[5];
+    }
+
+    /**
+     * @return number of keys in this automaton
+     */
+    public int size() {
+        return keyLengths.limit();
+    }
+
+    /**
+     * Reconstructs the keys this automaton was built from
+     * <p>
+     * Empty keys are not stored in the automaton, and are returned as empty strings
+     *
+     * @return keys by key index, not null
+     */
+    public String[] getKeys() {
+        int nodes = labels.limit();
+        int[] parents = new int[nodes];
+
+        for (int node = 0; node < nodes; node++) {
+            for (int child = firstChildren.get(node); child < firstChildren.get(node + 1); child++) {
+                parents[child] = node;
+            }
+        }
+
+        String[] keys = new String[size()];
+        Arrays.fill(keys, "");
+
+        for (int node = 0; node < nodes; node++) {
+            int keyIndex = keyIndices.get(node);
+
+            if (keyIndex != NONE) {
+                char[] chars = new char[keyLengths.get(keyIndex)];
+
+                // The labels on the path from the root spell the key, read here from its last char
+                for (int i = chars.length - 1, n = node; i >= 0; i--, n = parents[n]) {
+                    chars[i] = (char) labels.get(n);
+                }
+                keys[keyIndex] = new String(chars);
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return number of bytes taken by the tables of this automaton
+     */
+    public long getMemoryUsage() {
+        long bytes = 0;
+
+        for (IntBuffer array : new IntBuffer[]{labels, firstChildren, failures, outputs, keyIndices, keyLengths}) {
+            bytes += 4L * array.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes this automaton
+     *
+     * @param output  output to write to
+     * @throws IOException if an error occurs writing
+     */
+    public void write(OutputStream output) throws IOException {
+        for (IntBuffer array : new IntBuffer[]{labels, firstChildren, failures, outputs, keyIndices, keyLengths}) {
+            int[] values = new int[array.limit()];
+            array.duplicate().get(values);
+            IntegerArrayIO.writeArray(output, values);
+        }
+    }
+
+    /**
+     * Finds all occurrences of the keys in a region of a text
+     *
+     * @param text  text to search
+     * @param start  start of the region
+     * @param end  end of the region (exclusive)
+     * @param handler  handler to pass the occurrences to, with indices in the text
+     */
+    public void match(CharSequence text, int start, int end, MatchHandler handler) {
+        int state = START;
+
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i));
+            matchAt(state, i + 1, handler);
+        }
+    }
+
+    /**
+     * Advances the automaton by one character
+     * <p>
+     * Stepping through a text one character at a time finds the same occurrences as {@link #match}, and lets
+     * several automata share a single pass over the text
+     *
+     * @param state  state after the preceding characters, or {@link #START}
+     * @param c  next character of the text
+     * @return state after the character
+     */
+    public int step(int state, char c) {
+        return next(state, c);
+    }
+
+    /**
+     * Finds the keys ending at a state
+     *
+     * @param state  state after the characters up to the end index
+     * @param end  index in the text after the last character read (exclusive end of the keys)
+     * @param handler  handler to pass the occurrences to, from the longest to the shortest key
+     */
+    public void matchAt(int state, int end, MatchHandler handler) {
+        int output = keyIndices.get(state) != NONE ? state : outputs.get(state);
+
+        while (output != NONE) {
+            int keyIndex = keyIndices.get(output);
+            handler.match(end - keyLengths.get(keyIndex), end, keyIndex);
+            output = outputs.get(output);
+        }
+    }
+
+    private int next(int node, char label) {
+        while (true) {
+            int child = findChild(node, label);
+
+            if (child != NONE) {
+                return child;
+            }
+
+            if (node == ROOT) {
+                return ROOT;
+            }
+
+            node = failures.get(node);
+        }
+    }
+
+    private int findChild(int node, char label) {
+        int low = firstChildren.get(node);
+        int high = firstChildren.get(node + 1) - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleLabel = labels.get(middle);
+
+            if (middleLabel < label) {
+                low = middle + 1;
+            } else if (middleLabel > label) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return NONE;
+    }
+
+    private void linkSuffixes(int[] parents) {
+        failures.put(ROOT, ROOT);
+        outputs.put(ROOT, NONE);
+
+        // Breadth-first order guarantees that the suffixes of a node are linked before the node itself
+        for (int node = 1; node < labels.limit(); node++) {
+            int parent = parents[node];
+            int failure = ROOT;
+
+            if (parent != ROOT) {
+                failure = next(failures.get(parent), (char) labels.get(node));
+            }
+
+            failures.put(node, failure);
+            outputs.put(node, keyIndices.get(failure) != NONE ? failure : outputs.get(failure));
+        }
+    }
+
+    /**
+     * Builds the trie of the sorted keys in breadth-first order
+     * <p>
+     * Each node covers the range of keys starting with its prefix
+     */
+    private static class NodeBuilder {
+
+        private final String[] keys;
+
+        private int[] labels;
+
+        private int[] firstChildren;
+
+        private int[] parents;
+
+        private int[] keyIndices;
+
+        private int[] rangeStarts;
+
+        private int[] rangeEnds;
+
+        private int[] depths;
+
+        private int size;
+
+        NodeBuilder(String[] keys) {
+            this.keys = keys;
+
+            int capacity = 16;
+            labels = new int[capacity];
+            firstChildren = new int[capacity + 1];
+            parents = new int[capacity];
+            keyIndices = new int[capacity];
+            rangeStarts = new int[capacity];
+            rangeEnds = new int[capacity];
+            depths = new int[capacity];
+        }
+
+        void build() {
+            int start = 0;
+
+            while (start < keys.length && keys[start].isEmpty()) {
+                start++; // Empty keys sort first and are never found
+            }
+
+            add(ROOT, NONE, start, keys.length, 0);
+
+            for (int node = 0; node < size; node++) {
+                firstChildren[node] = size;
+
+                int depth = depths[node];
+                int index = rangeStarts[node];
+                int end = rangeEnds[node];
+
+                if (index < end && keys[index].length() == depth) {
+                    keyIndices[node] = index; // Keys are unique and sorted, so a key ending here comes first
+                    index++;
+                }
+
+                while (index < end) {
+                    char label = keys[index].charAt(depth);
+                    int childStart = index;
+
+                    while (index < end && keys[index].charAt(depth) == label) {
+                        index++;
+                    }
+
+                    add(node, label, childStart, index, depth + 1);
+                }
+            }
+        }
+
+        private void add(int parent, int label, int rangeStart, int rangeEnd, int depth) {
+            if (size == labels.length) {
+                int capacity = size * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity + 1);
+                parents = Arrays.copyOf(parents, capacity);
+                keyIndices = Arrays.copyOf(keyIndices, capacity);
+                rangeStarts = Arrays.copyOf(rangeStarts, capacity);
+                rangeEnds = Arrays.copyOf(rangeEnds, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+
+            labels[size] = label;
+            parents[size] = parent;
+            keyIndices[size] = NONE;
+            rangeStarts[size] = rangeStart;
+            rangeEnds[size] = rangeEnd;
+            depths[size] = depth;
+            size++;
+        }
+    }
+}
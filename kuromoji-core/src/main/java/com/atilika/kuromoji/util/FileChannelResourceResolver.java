@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Resource resolver that memory-maps compiled dictionary files in a directory
+ * <p>
+ * The directory is expected to contain the files written by a dictionary compiler, such as a dictionary module's
+ * resources extracted from its jar. Mapped files are shared through the operating system's page cache, so processes
+ * using the same directory share the memory holding the dictionary, and loading it does not copy it to the heap.
+ */
+public class FileChannelResourceResolver implements MappedResourceResolver {
+
+    private final File directory;
+
+    public FileChannelResourceResolver(File directory) {
+        this.directory = directory;
+    }
+
+    public FileChannelResourceResolver(String directory) {
+        this(new File(directory));
+    }
+
+    @Override
+    public InputStream resolve(String resourceName) throws IOException {
+        return new BufferedInputStream(new FileInputStream(new File(directory, resourceName)));
+    }
+
+    @Override
+    public ByteBuffer map(String resourceName) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(directory, resourceName).toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FileChannelResourceResolver &&
+            directory.getAbsoluteFile().equals(((FileChannelResourceResolver) other).directory.getAbsoluteFile());
+    }
+
+    @Override
+    public int hashCode() {
+        return directory.getAbsoluteFile().hashCode();
+    }
+}
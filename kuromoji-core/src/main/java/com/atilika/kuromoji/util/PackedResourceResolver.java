@@ -0,0 +1,229 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Resource resolver for a packed dictionary image holding all compiled dictionary resources in one file
+ * <p>
+ * The image starts with a header and a table of contents, followed by the resources aligned to
+ * {@link #ALIGNMENT} bytes. All values are big-endian:
+ * <pre>
+ * int     magic ({@link #MAGIC})
+ * int     version ({@link #VERSION})
+ * int     number of resources
+ * for each resource:
+ *   short   length of the name in bytes
+ *   byte[]  name (UTF-8)
+ *   int     offset of the resource in the image
+ *   int     length of the resource
+ *   long    CRC-32 checksum of the resource
+ * </pre>
+ * The image is memory-mapped once, and resources are handed out as views of the mapped image, so loading a
+ * dictionary only reads the table of contents. Checksums are not verified when loading, use {@link #verify()} for
+ * this.
+ */
+public class PackedResourceResolver implements MappedResourceResolver {
+
+    public static final String PACKED_DICTIONARY_FILENAME = "packedDictionary.bin";
+
+    public static final int MAGIC = 0x4b4d4450; // "KMDP"
+
+    public static final int VERSION = 1;
+
+    public static final int ALIGNMENT = 8;
+
+    private final ByteBuffer image;
+
+    private final Map<String, Resource> resources = new HashMap<>();
+
+    /**
+     * Creates a resolver memory-mapping a packed dictionary image
+     *
+     * @param file  packed dictionary image
+     * @throws IOException if the image can not be mapped or is not a packed dictionary image
+     */
+    public PackedResourceResolver(File file) throws IOException {
+        this(map(file));
+    }
+
+    public PackedResourceResolver(String filename) throws IOException {
+        this(new File(filename));
+    }
+
+    /**
+     * Creates a resolver for a packed dictionary image in a buffer
+     *
+     * @param image  buffer holding the image from index 0
+     * @throws IOException if the buffer does not hold a packed dictionary image
+     */
+    public PackedResourceResolver(ByteBuffer image) throws IOException {
+        this.image = image;
+        readTableOfContents();
+    }
+
+    @Override
+    public InputStream resolve(String resourceName) throws IOException {
+        return new BufferInputStream(map(resourceName));
+    }
+
+    @Override
+    public ByteBuffer map(String resourceName) throws IOException {
+        Resource resource = resources.get(resourceName);
+
+        if (resource == null) {
+            throw new IOException("Packed dictionary resource not found: " + resourceName);
+        }
+
+        return slice(resource);
+    }
+
+    /**
+     * Verifies the checksums of all resources in the image
+     *
+     * @throws IOException if a resource does not match its checksum
+     */
+    public void verify() throws IOException {
+        for (Map.Entry<String, Resource> entry : resources.entrySet()) {
+            Resource resource = entry.getValue();
+
+            if (checksum(slice(resource)) != resource.checksum) {
+                throw new IOException("Checksum mismatch for packed dictionary resource: " + entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Calculates the checksum stored for a resource in a packed dictionary image
+     *
+     * @param buffer  resource contents from the buffer's position to its limit
+     * @return CRC-32 checksum
+     */
+    public static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return crc.getValue();
+    }
+
+    private void readTableOfContents() throws IOException {
+        if (image.limit() < 12 || image.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed dictionary image");
+        }
+
+        int version = image.getInt(4);
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported packed dictionary version: " + version);
+        }
+
+        int count = image.getInt(8);
+        int position = 12;
+
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[image.getShort(position) & 0xffff];
+            position += 2;
+
+            for (int j = 0; j < name.length; j++) {
+                name[j] = image.get(position++);
+            }
+
+            Resource resource = new Resource(image.getInt(position), image.getInt(position + 4), image.getLong(position + 8));
+            position += 16;
+
+            if (resource.offset < position || resource.length < 0 || resource.offset > image.limit() - resource.length) {
+                throw new IOException("Corrupt packed dictionary table of contents");
+            }
+
+            resources.put(new String(name, StandardCharsets.UTF_8), resource);
+        }
+    }
+
+    private ByteBuffer slice(Resource resource) {
+        ByteBuffer buffer = image.duplicate();
+        buffer.limit(resource.offset + resource.length);
+        buffer.position(resource.offset);
+        return buffer.slice();
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static class Resource {
+
+        private final int offset;
+
+        private final int length;
+
+        private final long checksum;
+
+        private Resource(int offset, int length, long checksum) {
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
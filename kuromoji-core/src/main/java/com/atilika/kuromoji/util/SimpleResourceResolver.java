@@ -35,4 +35,14 @@ public class SimpleResourceResolver implements ResourceResolver{
         }
         return input;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SimpleResourceResolver && clazz.equals(((SimpleResourceResolver) other).clazz);
+    }
+
+    @Override
+    public int hashCode() {
+        return clazz.hashCode();
+    }
 }
@@ -0,0 +1,474 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.viterbi;
+
+import com.atilika.kuromoji.dict.Dictionary;
+
+import java.util.Arrays;
+
+/**
+ * Viterbi lattice stored as parallel primitive arrays
+ * <p>
+ * Nodes are identified by their index in the node columns, and nodes starting and ending at a lattice position are
+ * kept as linked lists of node indices in insertion order. The arrays only grow, so a lattice can be reused for many
+ * inputs without allocating, but a lattice must only be used by one thread at the time.
+ * <p>
+ * Lattice positions are offset by one from indices in the text, i.e. a node starting at index i in the text starts at
+ * lattice position i + 1, and position 0 holds the BOS node.
+ */
+public class ArrayViterbiLattice {
+
+    private static final int INITIAL_NODE_CAPACITY = 256;
+
+    private static final int INITIAL_POSITION_CAPACITY = 64;
+
+    private static final ViterbiNode.Type[] TYPES = ViterbiNode.Type.values();
+
+    private CharSequence text;
+    private int offset;
+    private int dimension;
+
+    private int size;
+    private int bos;
+    private int eos;
+
+    // Node columns
+    int[] wordIds;
+    int[] types;
+    int[] startIndices;
+    int[] lengths;
+    int[] leftIds;
+    int[] rightIds;
+    int[] wordCosts;
+    int[] pathCosts;
+    int[] leftNodes;
+    int[] nextStarting;
+    int[] nextEnding;
+
+    // Position columns
+    int[] firstStarting;
+    int[] lastStarting;
+    int[] firstEnding;
+    int[] lastEnding;
+
+    // Nodes ending at one position, gathered by gatherEnding()
+    int[] endingNodes;
+    int[] endingRightIds;
+    int[] endingPathCosts;
+
+    // Best path found by the ViterbiSearcher
+    private int[] bestPath;
+    private int bestPathLength;
+
+    public ArrayViterbiLattice() {
+        wordIds = new int[INITIAL_NODE_CAPACITY];
+        types = new int[INITIAL_NODE_CAPACITY];
+        startIndices = new int[INITIAL_NODE_CAPACITY];
+        lengths = new int[INITIAL_NODE_CAPACITY];
+        leftIds = new int[INITIAL_NODE_CAPACITY];
+        rightIds = new int[INITIAL_NODE_CAPACITY];
+        wordCosts = new int[INITIAL_NODE_CAPACITY];
+        pathCosts = new int[INITIAL_NODE_CAPACITY];
+        leftNodes = new int[INITIAL_NODE_CAPACITY];
+        nextStarting = new int[INITIAL_NODE_CAPACITY];
+        nextEnding = new int[INITIAL_NODE_CAPACITY];
+
+        firstStarting = new int[INITIAL_POSITION_CAPACITY];
+        lastStarting = new int[INITIAL_POSITION_CAPACITY];
+        firstEnding = new int[INITIAL_POSITION_CAPACITY];
+        lastEnding = new int[INITIAL_POSITION_CAPACITY];
+
+        endingNodes = new int[INITIAL_POSITION_CAPACITY];
+        endingRightIds = new int[INITIAL_POSITION_CAPACITY];
+        endingPathCosts = new int[INITIAL_POSITION_CAPACITY];
+
+        bestPath = new int[INITIAL_POSITION_CAPACITY];
+    }
+
+    /**
+     * Clears this lattice and prepares it for a region of a text
+     *
+     * @param text  text containing the region
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     */
+    public void reset(CharSequence text, int offset, int length) {
+        this.text = text;
+        this.offset = offset;
+        this.dimension = length + 2;
+        this.size = 0;
+        this.bos = -1;
+        this.eos = -1;
+        this.bestPathLength = 0;
+
+        if (firstStarting.length < dimension) {
+            int capacity = Math.max(dimension, firstStarting.length * 2);
+            firstStarting = new int[capacity];
+            lastStarting = new int[capacity];
+            firstEnding = new int[capacity];
+            lastEnding = new int[capacity];
+        }
+
+        Arrays.fill(firstStarting, 0, dimension, -1);
+        Arrays.fill(lastStarting, 0, dimension, -1);
+        Arrays.fill(firstEnding, 0, dimension, -1);
+        Arrays.fill(lastEnding, 0, dimension, -1);
+    }
+
+    void addBos() {
+        addBos(0);
+    }
+
+    /**
+     * Adds BOS, connecting to the first words in the region as if they followed a word with the given right id
+     *
+     * @param rightId  right id of the word preceding the region
+     */
+    void addBos(int rightId) {
+        bos = addNode(-1, ViterbiNode.Type.KNOWN, -1, 0, 0, rightId, 0, -1, 1);
+    }
+
+    void addEos() {
+        eos = addNode(-1, ViterbiNode.Type.KNOWN, dimension - 2, 0, 0, 0, 0, dimension - 1, -1);
+    }
+
+    /**
+     * Adds a node for a word in the region
+     *
+     * @param wordId  word id
+     * @param type  node type
+     * @param startIndex  start of the word in the region
+     * @param length  length of the word
+     * @param dictionary  dictionary to get connection ids and word cost from
+     * @return index of the added node
+     */
+    int addNode(int wordId, ViterbiNode.Type type, int startIndex, int length, Dictionary dictionary) {
+        return addNode(
+            wordId,
+            type,
+            startIndex,
+            length,
+            dictionary.getLeftId(wordId),
+            dictionary.getRightId(wordId),
+            dictionary.getWordCost(wordId)
+        );
+    }
+
+    /**
+     * Adds a node for a word in the region
+     *
+     * @param wordId  word id
+     * @param type  node type
+     * @param startIndex  start of the word in the region
+     * @param length  length of the word
+     * @param leftId  left id
+     * @param rightId  right id
+     * @param wordCost  word cost
+     * @return index of the added node
+     */
+    int addNode(int wordId, ViterbiNode.Type type, int startIndex, int length, int leftId, int rightId, int wordCost) {
+        return addNode(wordId, type, startIndex, length, leftId, rightId, wordCost, startIndex + 1, startIndex + 1 + length);
+    }
+
+    /**
+     * Adds a node that is not linked to any lattice position, such as a node that only appears on the best path
+     *
+     * @param wordId  word id
+     * @param type  node type
+     * @param startIndex  start of the word in the region
+     * @param length  length of the word
+     * @param dictionary  dictionary to get connection ids and word cost from
+     * @return index of the added node
+     */
+    int addDetachedNode(int wordId, ViterbiNode.Type type, int startIndex, int length, Dictionary dictionary) {
+        return addNode(
+            wordId,
+            type,
+            startIndex,
+            length,
+            dictionary.getLeftId(wordId),
+            dictionary.getRightId(wordId),
+            dictionary.getWordCost(wordId),
+            -1,
+            -1
+        );
+    }
+
+    private int addNode(int wordId, ViterbiNode.Type type, int startIndex, int length, int leftId, int rightId, int wordCost, int start, int end) {
+        if (size == wordIds.length) {
+            expandNodes();
+        }
+
+        int node = size++;
+
+        wordIds[node] = wordId;
+        types[node] = type.ordinal();
+        startIndices[node] = startIndex;
+        lengths[node] = length;
+        leftIds[node] = leftId;
+        rightIds[node] = rightId;
+        wordCosts[node] = wordCost;
+        pathCosts[node] = 0;
+        leftNodes[node] = -1;
+        nextStarting[node] = -1;
+        nextEnding[node] = -1;
+
+        if (start >= 0) {
+            if (firstStarting[start] == -1) {
+                firstStarting[start] = node;
+            } else {
+                nextStarting[lastStarting[start]] = node;
+            }
+            lastStarting[start] = node;
+        }
+
+        if (end >= 0) {
+            if (firstEnding[end] == -1) {
+                firstEnding[end] = node;
+            } else {
+                nextEnding[lastEnding[end]] = node;
+            }
+            lastEnding[end] = node;
+        }
+
+        return node;
+    }
+
+    private void expandNodes() {
+        int capacity = wordIds.length * 2;
+
+        wordIds = Arrays.copyOf(wordIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        startIndices = Arrays.copyOf(startIndices, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        leftIds = Arrays.copyOf(leftIds, capacity);
+        rightIds = Arrays.copyOf(rightIds, capacity);
+        wordCosts = Arrays.copyOf(wordCosts, capacity);
+        pathCosts = Arrays.copyOf(pathCosts, capacity);
+        leftNodes = Arrays.copyOf(leftNodes, capacity);
+        nextStarting = Arrays.copyOf(nextStarting, capacity);
+        nextEnding = Arrays.copyOf(nextEnding, capacity);
+    }
+
+    boolean tokenEndsWhereCurrentTokenStarts(int startIndex) {
+        return firstEnding[startIndex + 1] != -1;
+    }
+
+    /**
+     * Copies the index, right id and path cost of the nodes ending at a lattice position to the ending columns
+     * <p>
+     * Scanning the gathered columns is much cheaper than following the linked list when every node starting at the
+     * position is compared against every node ending there
+     *
+     * @param position  lattice position
+     * @return number of nodes ending at the position
+     */
+    int gatherEnding(int position) {
+        int count = 0;
+
+        for (int node = firstEnding[position]; node != -1; node = nextEnding[node]) {
+            if (count == endingNodes.length) {
+                int capacity = count * 2;
+                endingNodes = Arrays.copyOf(endingNodes, capacity);
+                endingRightIds = Arrays.copyOf(endingRightIds, capacity);
+                endingPathCosts = Arrays.copyOf(endingPathCosts, capacity);
+            }
+
+            endingNodes[count] = node;
+            endingRightIds[count] = rightIds[node];
+            endingPathCosts[count] = pathCosts[node];
+            count++;
+        }
+
+        return count;
+    }
+
+    void clearBestPath() {
+        bestPathLength = 0;
+    }
+
+    void addToBestPath(int node) {
+        if (bestPathLength == bestPath.length) {
+            bestPath = Arrays.copyOf(bestPath, bestPath.length * 2);
+        }
+        bestPath[bestPathLength++] = node;
+    }
+
+    void reverseBestPath(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int node = bestPath[i];
+            bestPath[i] = bestPath[j];
+            bestPath[j] = node;
+        }
+    }
+
+    /**
+     * Converts this lattice to a {@link ViterbiLattice} with the same nodes in the same order
+     *
+     * @return object lattice, not null
+     */
+    ViterbiLattice toViterbiLattice() {
+        ViterbiLattice lattice = new ViterbiLattice(dimension);
+
+        for (int node = 0; node < size; node++) {
+            if (node == bos) {
+                lattice.addBos();
+            } else if (node == eos) {
+                lattice.addEos();
+            } else {
+                int startIndex = startIndices[node];
+                int length = lengths[node];
+
+                lattice.addNode(
+                    new ViterbiNode(
+                        wordIds[node],
+                        text,
+                        offset + startIndex,
+                        length,
+                        leftIds[node],
+                        rightIds[node],
+                        wordCosts[node],
+                        startIndex,
+                        TYPES[types[node]]
+                    ),
+                    startIndex + 1,
+                    startIndex + 1 + length
+                );
+            }
+        }
+
+        return lattice;
+    }
+
+    /**
+     * @return the text containing the region of this lattice
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * @return the start of the region in the text
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of lattice positions, which is the length of the region plus two
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the number of nodes in this lattice
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the BOS node
+     */
+    public int getBos() {
+        return bos;
+    }
+
+    /**
+     * @return the index of the EOS node
+     */
+    public int getEos() {
+        return eos;
+    }
+
+    public int getWordId(int node) {
+        return wordIds[node];
+    }
+
+    public ViterbiNode.Type getType(int node) {
+        return TYPES[types[node]];
+    }
+
+    /**
+     * Gets the start index of a node, relative to the start of the region
+     *
+     * @param node  node index
+     * @return start index
+     */
+    public int getStartIndex(int node) {
+        return startIndices[node];
+    }
+
+    public int getLength(int node) {
+        return lengths[node];
+    }
+
+    public int getLeftId(int node) {
+        return leftIds[node];
+    }
+
+    public int getRightId(int node) {
+        return rightIds[node];
+    }
+
+    public int getWordCost(int node) {
+        return wordCosts[node];
+    }
+
+    public int getPathCost(int node) {
+        return pathCosts[node];
+    }
+
+    /**
+     * Gets the best left node of a node as found by the {@link ViterbiSearcher}
+     *
+     * @param node  node index
+     * @return left node index, or -1 if there is none
+     */
+    public int getLeftNode(int node) {
+        return leftNodes[node];
+    }
+
+    /**
+     * Materializes the surface of a node
+     *
+     * @param node  node index
+     * @return surface, not null
+     */
+    public String getSurface(int node) {
+        int start = offset + startIndices[node];
+        return text.subSequence(start, start + lengths[node]).toString();
+    }
+
+    /**
+     * @return the number of nodes in the best path, excluding BOS and EOS
+     */
+    public int getBestPathLength() {
+        return bestPathLength;
+    }
+
+    /**
+     * Gets a node on the best path
+     *
+     * @param i  position on the best path
+     * @return node index
+     */
+    public int getBestPathNode(int i) {
+        return bestPath[i];
+    }
+}
@@ -18,20 +18,22 @@ package com.atilika.kuromoji.viterbi;
 
 import com.atilika.kuromoji.TokenizerBase.Mode;
 import com.atilika.kuromoji.dict.CharacterDefinitions;
+import com.atilika.kuromoji.dict.DictionaryOverlay;
 import com.atilika.kuromoji.dict.TokenInfoDictionary;
 import com.atilika.kuromoji.dict.UnknownDictionary;
-import com.atilika.kuromoji.dict.UserDictionary;
+import com.atilika.kuromoji.dict.UserDictionaryBase;
 import com.atilika.kuromoji.fst.FST;
+import com.atilika.kuromoji.fst.PrefixMatchHandler;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class ViterbiBuilder {
 
     private final FST fst;
     private final TokenInfoDictionary dictionary;
+    private final DictionaryOverlay overlay;
     private final UnknownDictionary unknownDictionary;
-    private final UserDictionary userDictionary;
+    private final UserDictionaryBase userDictionary;
     private final CharacterDefinitions characterDefinitions;
     private final boolean useUserDictionary;
     private boolean searchMode;
@@ -48,10 +50,33 @@ public class ViterbiBuilder {
     public ViterbiBuilder(FST fst,
                           TokenInfoDictionary dictionary,
                           UnknownDictionary unknownDictionary,
-                          UserDictionary userDictionary,
+                          UserDictionaryBase userDictionary,
+                          Mode mode) {
+        this(fst, dictionary, null, unknownDictionary, userDictionary, mode);
+    }
+
+    /**
+     * Constructor for a system dictionary with an overlay
+     * <p>
+     * Known words are looked up in the FSTs of both the base dictionary and the overlay
+     *
+     * @param fst  FST with surface forms of the base dictionary
+     * @param dictionary  token info dictionary with the words of the base dictionary and the overlay
+     * @param overlay  dictionary overlay, or null if there is none
+     * @param unknownDictionary  unknown word dictionary
+     * @param userDictionary  user dictionary
+     * @param mode  tokenization {@link Mode mode}
+     * @see com.atilika.kuromoji.dict.SystemDictionary#withOverlay(DictionaryOverlay)
+     */
+    public ViterbiBuilder(FST fst,
+                          TokenInfoDictionary dictionary,
+                          DictionaryOverlay overlay,
+                          UnknownDictionary unknownDictionary,
+                          UserDictionaryBase userDictionary,
                           Mode mode) {
         this.fst = fst;
         this.dictionary = dictionary;
+        this.overlay = overlay;
         this.unknownDictionary = unknownDictionary;
         this.userDictionary = userDictionary;
 
@@ -71,62 +96,168 @@ public class ViterbiBuilder {
      * @return built lattice, not null
      */
     public ViterbiLattice build(String text) {
-        int textLength = text.length();
-        ViterbiLattice lattice = new ViterbiLattice(textLength + 2);
+        return build(text, 0, text.length());
+    }
+
+    /**
+     * Build lattice from a region of the input text
+     * <p>
+     * The region is not copied, and node surfaces refer to the text until they are materialized.
+     * Lattice start indices are relative to the start of the region.
+     *
+     * @param text  source text for the lattice
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     * @return built lattice, not null
+     */
+    public ViterbiLattice build(CharSequence text, int offset, int length) {
+        ArrayViterbiLattice lattice = new ArrayViterbiLattice();
+        build(text, offset, length, lattice);
+        return lattice.toViterbiLattice();
+    }
+
+    /**
+     * Build lattice from a region of the input text into an array lattice
+     * <p>
+     * The lattice is reset before it is built, and it can be reused for further inputs once it is no longer needed
+     *
+     * @param text  source text for the lattice
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     * @param lattice  lattice to build into
+     */
+    public void build(CharSequence text, int offset, int length, ArrayViterbiLattice lattice) {
+        build(text, offset, length, 0, lattice, null);
+    }
 
-        lattice.addBos();
+    /**
+     * Build lattice from a region of the input text into an array lattice and find its best path
+     * <p>
+     * Path costs are calculated in the same sweep that builds the lattice. The nodes starting at an index only
+     * depend on the nodes ending there, and these are all in the lattice once the preceding indices have been
+     * processed. The best path found is the same as when building the lattice and then searching it.
+     * <p>
+     * User dictionary entries and the glue nodes that repair the lattice around them are inserted after all
+     * other nodes, so path costs are calculated in a separate pass once the lattice is complete if a user
+     * dictionary is used.
+     *
+     * @param text  source text for the lattice
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     * @param lattice  lattice to build into
+     * @param searcher  searcher to calculate path costs and the best path with
+     * @see ViterbiSearcher#search(ArrayViterbiLattice)
+     */
+    public void buildAndSearch(CharSequence text, int offset, int length, ArrayViterbiLattice lattice, ViterbiSearcher searcher) {
+        buildAndSearch(text, offset, length, 0, lattice, searcher);
+    }
+
+    /**
+     * Build lattice from a region of the input text that follows a word already tokenized, and find its best path
+     * <p>
+     * The first words in the region connect to the preceding word rather than to the beginning of a sentence
+     *
+     * @param text  source text for the lattice
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     * @param leftContextId  right id of the word preceding the region, or 0 at the beginning of a sentence
+     * @param lattice  lattice to build into
+     * @param searcher  searcher to calculate path costs and the best path with
+     * @see #buildAndSearch(CharSequence, int, int, ArrayViterbiLattice, ViterbiSearcher)
+     */
+    public void buildAndSearch(CharSequence text, int offset, int length, int leftContextId, ArrayViterbiLattice lattice, ViterbiSearcher searcher) {
+        buildWithPathCosts(text, offset, length, leftContextId, lattice, searcher);
+        searcher.backtrackBestPath(lattice);
+    }
+
+    /**
+     * Build lattice from a region at the start of a longer text, and find the part of its best path that is
+     * known to be part of the best path of the longer text
+     * <p>
+     * This is used to tokenize text incrementally. Words starting after the horizon may still change once more
+     * text follows the region, and words starting before it are assumed not to continue past the end of the
+     * region. The returned node ends the stored best path, and the remaining text can be tokenized by continuing
+     * after it with its right id as the left context id.
+     *
+     * @param text  source text for the lattice
+     * @param offset  start of the region in text
+     * @param length  length of the region
+     * @param horizon  index in the region after which words may still change
+     * @param leftContextId  right id of the word preceding the region, or 0 at the beginning of a sentence
+     * @param lattice  lattice to build into
+     * @param searcher  searcher to calculate path costs and the best path with
+     * @return last node of the best path, or -1 if no part of the region could be tokenized
+     */
+    public int buildAndSearchConverged(CharSequence text, int offset, int length, int horizon, int leftContextId, ArrayViterbiLattice lattice, ViterbiSearcher searcher) {
+        buildWithPathCosts(text, offset, length, leftContextId, lattice, searcher);
+        return searcher.backtrackConvergedPath(lattice, horizon);
+    }
+
+    private void buildWithPathCosts(CharSequence text, int offset, int length, int leftContextId, ArrayViterbiLattice lattice, ViterbiSearcher searcher) {
+        if (useUserDictionary) {
+            build(text, offset, length, leftContextId, lattice, null);
+            searcher.calculatePathCosts(lattice);
+        } else {
+            build(text, offset, length, leftContextId, lattice, searcher);
+            searcher.calculatePathCosts(lattice, lattice.getDimension() - 1);
+        }
+    }
+
+    private void build(CharSequence text, int offset, int length, int leftContextId, ArrayViterbiLattice lattice, ViterbiSearcher searcher) {
+        lattice.reset(text, offset, length);
+        lattice.addBos(leftContextId);
 
         int unknownWordEndIndex = -1; // index of the last character of unknown word
 
-        for (int startIndex = 0; startIndex < textLength; startIndex++) {
+        KnownWordMatchHandler knownWordHandler = new KnownWordMatchHandler(lattice);
+        OverlayWordMatchHandler overlayWordHandler = overlay == null ? null : new OverlayWordMatchHandler(lattice);
+
+        for (int startIndex = 0; startIndex < length; startIndex++) {
             // If no token ends where current token starts, skip this index
             if (lattice.tokenEndsWhereCurrentTokenStarts(startIndex)) {
 
-                String suffix = text.substring(startIndex);
-                boolean found = processIndex(lattice, startIndex, suffix);
+                boolean found = processIndex(knownWordHandler, startIndex, text, offset, length);
+
+                if (overlayWordHandler != null) {
+                    found |= processOverlayIndex(overlayWordHandler, startIndex, text, offset, length);
+                }
 
                 // In the case of normal mode, it doesn't process unknown word greedily.
                 if (searchMode || unknownWordEndIndex <= startIndex) {
 
-                    int[] categories = characterDefinitions.lookupCategories(suffix.charAt(0));
+                    int[] categories = characterDefinitions.lookupCategories(text.charAt(offset + startIndex));
 
                     for (int i = 0; i < categories.length; i++) {
                         int category = categories[i];
-                        unknownWordEndIndex = processUnknownWord(category, i, lattice, unknownWordEndIndex, startIndex, suffix, found);
+                        unknownWordEndIndex = processUnknownWord(category, i, lattice, unknownWordEndIndex, startIndex, text, offset, length, found);
                     }
                 }
+
+                // All nodes starting at this index are in the lattice now
+                if (searcher != null) {
+                    searcher.calculatePathCosts(lattice, startIndex + 1);
+                }
             }
         }
 
         if (useUserDictionary) {
-            processUserDictionary(text, lattice);
+            processUserDictionary(text, offset, length, lattice);
         }
 
         lattice.addEos();
+    }
 
-        return lattice;
+    private boolean processIndex(KnownWordMatchHandler handler, int startIndex, CharSequence text, int offset, int length) {
+        handler.startIndex = startIndex;
+        return fst.commonPrefixSearch(text, offset + startIndex, offset + length, handler) > 0;
     }
 
-    private boolean processIndex(ViterbiLattice lattice, int startIndex, String suffix) {
-        boolean found = false;
-        for (int endIndex = 1; endIndex < suffix.length() + 1; endIndex++) {
-            String prefix = suffix.substring(0, endIndex);
-            int result = fst.lookup(prefix);
-
-            if (result > 0) {
-                found = true; // Don't produce unknown word starting from this index
-                for (int wordId : dictionary.lookupWordIds(result)) {
-                    ViterbiNode node = new ViterbiNode(wordId, prefix, dictionary, startIndex, ViterbiNode.Type.KNOWN);
-                    lattice.addNode(node, startIndex + 1, startIndex + 1 + endIndex);
-                }
-            } else if (result < 0) { // If result is less than zero, continue to next position
-                break;
-            }
-        }
-        return found;
+    private boolean processOverlayIndex(OverlayWordMatchHandler handler, int startIndex, CharSequence text, int offset, int length) {
+        handler.startIndex = startIndex;
+        return overlay.getFst().commonPrefixSearch(text, offset + startIndex, offset + length, handler) > 0;
     }
 
-    private int processUnknownWord(int category, int i, ViterbiLattice lattice, int unknownWordEndIndex, int startIndex, String suffix, boolean found) {
+    private int processUnknownWord(int category, int i, ArrayViterbiLattice lattice, int unknownWordEndIndex, int startIndex, CharSequence text, int offset, int length, boolean found) {
         int unknownWordLength = 0;
         int[] definition = characterDefinitions.lookupDefinition(category);
 
@@ -135,8 +266,8 @@ public class ViterbiBuilder {
                 unknownWordLength = 1;
             } else {
                 unknownWordLength = 1;
-                for (int j = 1; j < suffix.length(); j++) {
-                    char c = suffix.charAt(j);
+                for (int j = startIndex + 1; j < length; j++) {
+                    char c = text.charAt(offset + j);
 
                     int[] categories = characterDefinitions.lookupCategories(c);
 
@@ -154,12 +285,10 @@ public class ViterbiBuilder {
         }
 
         if (unknownWordLength > 0) {
-            String unkWord = suffix.substring(0, unknownWordLength);
             int[] wordIds = unknownDictionary.lookupWordIds(category); // characters in input text are supposed to be the same
 
             for (int wordId : wordIds) {
-                ViterbiNode node = new ViterbiNode(wordId, unkWord, unknownDictionary, startIndex, ViterbiNode.Type.UNKNOWN);
-                lattice.addNode(node, startIndex + 1, startIndex + 1 + unknownWordLength);
+                lattice.addNode(wordId, ViterbiNode.Type.UNKNOWN, startIndex, unknownWordLength, unknownDictionary);
             }
             unknownWordEndIndex = startIndex + unknownWordLength;
         }
@@ -171,29 +300,28 @@ public class ViterbiBuilder {
      * Find token(s) in input text and set found token(s) in arrays as normal tokens
      *
      * @param text
+     * @param offset
+     * @param length
      * @param lattice
      */
-    private void processUserDictionary(final String text, ViterbiLattice lattice) {
-        List<UserDictionary.UserDictionaryMatch> matches = userDictionary.findUserDictionaryMatches(text);
+    private void processUserDictionary(final CharSequence text, int offset, int length, ArrayViterbiLattice lattice) {
+        List<UserDictionaryBase.UserDictionaryMatch> matches = userDictionary.findUserDictionaryMatches(text, offset, length);
 
-        for (UserDictionary.UserDictionaryMatch match : matches) {
+        for (UserDictionaryBase.UserDictionaryMatch match : matches) {
             int wordId = match.getWordId();
             int index = match.getMatchStartIndex();
-            int length = match.getMatchLength();
+            int matchLength = match.getMatchLength();
 
-            String word = text.substring(index, index + length);
+            lattice.addNode(wordId, ViterbiNode.Type.USER, index, matchLength, userDictionary);
 
-            ViterbiNode node = new ViterbiNode(wordId, word, userDictionary, index, ViterbiNode.Type.USER);
             int nodeStartIndex = index + 1;
-            int nodeEndIndex = nodeStartIndex + length;
-
-            lattice.addNode(node, nodeStartIndex, nodeEndIndex);
+            int nodeEndIndex = nodeStartIndex + matchLength;
 
             if (isLatticeBrokenBefore(nodeStartIndex, lattice)) {
                 repairBrokenLatticeBefore(lattice, index);
             }
 
-            if (isLatticeBrokenAfter(nodeStartIndex + length, lattice)) {
+            if (isLatticeBrokenAfter(nodeEndIndex, lattice)) {
                 repairBrokenLatticeAfter(lattice, nodeEndIndex);
             }
         }
@@ -207,10 +335,8 @@ public class ViterbiBuilder {
      * @param lattice
      * @return whether the lattice has a node that ends at nodeIndex
      */
-    private boolean isLatticeBrokenBefore(int nodeIndex, ViterbiLattice lattice) {
-        ViterbiNode[][] nodeEndIndices = lattice.getEndIndexArr();
-
-        return nodeEndIndices[nodeIndex] == null;
+    private boolean isLatticeBrokenBefore(int nodeIndex, ArrayViterbiLattice lattice) {
+        return lattice.firstEnding[nodeIndex] == -1;
     }
 
     /**
@@ -221,10 +347,8 @@ public class ViterbiBuilder {
      * @param lattice
      * @return whether the lattice has a node that starts at endIndex
      */
-    private boolean isLatticeBrokenAfter(int endIndex, ViterbiLattice lattice) {
-        ViterbiNode[][] nodeStartIndices = lattice.getStartIndexArr();
-
-        return nodeStartIndices[endIndex] == null;
+    private boolean isLatticeBrokenAfter(int endIndex, ArrayViterbiLattice lattice) {
+        return lattice.firstStarting[endIndex] == -1;
     }
 
     /**
@@ -234,17 +358,15 @@ public class ViterbiBuilder {
      * @param lattice
      * @param index
      */
-    private void repairBrokenLatticeBefore(ViterbiLattice lattice, int index) {
-        ViterbiNode[][] nodeStartIndices = lattice.getStartIndexArr();
-
+    private void repairBrokenLatticeBefore(ArrayViterbiLattice lattice, int index) {
         for (int startIndex = index; startIndex > 0; startIndex--) {
-            if (nodeStartIndices[startIndex] != null) {
-                ViterbiNode glueBase = findGlueNodeCandidate(index, nodeStartIndices[startIndex], startIndex);
-                if (glueBase != null) {
+            int first = lattice.firstStarting[startIndex];
+
+            if (first != -1) {
+                int glueBase = findGlueNodeCandidate(lattice, index, first, lattice.nextStarting, startIndex);
+                if (glueBase != -1) {
                     int length = index + 1 - startIndex;
-                    String surface = glueBase.getSurface().substring(0, length);
-                    ViterbiNode glueNode = makeGlueNode(startIndex, glueBase, surface);
-                    lattice.addNode(glueNode, startIndex, startIndex + glueNode.getSurface().length());
+                    makeGlueNode(lattice, glueBase, startIndex - 1, length);
                     return;
                 }
             }
@@ -257,18 +379,15 @@ public class ViterbiBuilder {
      *  @param lattice
      * @param nodeEndIndex
      */
-    private void repairBrokenLatticeAfter(ViterbiLattice lattice, int nodeEndIndex) {
-        ViterbiNode[][] nodeEndIndices = lattice.getEndIndexArr();
+    private void repairBrokenLatticeAfter(ArrayViterbiLattice lattice, int nodeEndIndex) {
+        for (int endIndex = nodeEndIndex + 1; endIndex < lattice.getDimension(); endIndex++) {
+            int first = lattice.firstEnding[endIndex];
 
-        for (int endIndex = nodeEndIndex + 1; endIndex < nodeEndIndices.length; endIndex++) {
-            if (nodeEndIndices[endIndex] != null) {
-                ViterbiNode glueBase = findGlueNodeCandidate(nodeEndIndex, nodeEndIndices[endIndex], endIndex);
-                if (glueBase != null) {
+            if (first != -1) {
+                int glueBase = findGlueNodeCandidate(lattice, nodeEndIndex, first, lattice.nextEnding, endIndex);
+                if (glueBase != -1) {
                     int delta = endIndex - nodeEndIndex;
-                    String glueBaseSurface = glueBase.getSurface();
-                    String surface = glueBaseSurface.substring(glueBaseSurface.length() - delta);
-                    ViterbiNode glueNode = makeGlueNode(nodeEndIndex, glueBase, surface);
-                    lattice.addNode(glueNode, nodeEndIndex, nodeEndIndex + glueNode.getSurface().length());
+                    makeGlueNode(lattice, glueBase, nodeEndIndex - 1, delta);
                     return;
                 }
             }
@@ -279,67 +398,115 @@ public class ViterbiBuilder {
      * Tries to locate a candidate for a "glue" node that repairs the broken lattice by looking at all nodes at the
      * current index.
      *
+     * @param lattice
      * @param index
-     * @param latticeNodes
+     * @param first  first node at the current index
+     * @param next  links to the next node at the same index
      * @param startIndex
-     * @return new ViterbiNode that can be inserted to glue the graph if such a node exists, else null
+     * @return node in the lattice that can be used as a base to glue the graph if such a node exists, else -1
      */
-    private ViterbiNode findGlueNodeCandidate(int index, ViterbiNode[] latticeNodes, int startIndex) {
-        List<ViterbiNode> candidates = new ArrayList<>();
+    private int findGlueNodeCandidate(ArrayViterbiLattice lattice, int index, int first, int[] next, int startIndex) {
+        int glueBase = -1;
+        int length = index + 1 - startIndex;
 
-        for (ViterbiNode viterbiNode : latticeNodes) {
-            if (viterbiNode != null) {
-                candidates.add(viterbiNode);
+        for (int candidate = first; candidate != -1; candidate = next[candidate]) {
+            if (isAcceptableCandidate(lattice, length, glueBase, candidate)) {
+                glueBase = candidate;
             }
         }
-        if (!candidates.isEmpty()) {
-            ViterbiNode glueBase = null;
-            int length = index + 1 - startIndex;
-            for (ViterbiNode candidate : candidates) {
-                if (isAcceptableCandidate(length, glueBase, candidate)) {
-                    glueBase = candidate;
-                }
-            }
-            if (glueBase != null) {
-                return glueBase;
-            }
-        }
-        return null;
+        return glueBase;
     }
 
     /**
      * Check whether a candidate for a glue node is acceptable.
      * The candidate should be as short as possible, but long enough to overlap with the inserted user entry
      *
+     * @param lattice
      * @param targetLength
      * @param glueBase
      * @param candidate
      * @return whether candidate is acceptable
      */
-    private boolean isAcceptableCandidate(int targetLength, ViterbiNode glueBase, ViterbiNode candidate) {
-        return (glueBase == null || candidate.getSurface().length() < glueBase.getSurface().length()) &&
-            candidate.getSurface().length() >= targetLength;
+    private boolean isAcceptableCandidate(ArrayViterbiLattice lattice, int targetLength, int glueBase, int candidate) {
+        int candidateLength = lattice.lengths[candidate];
+
+        return (glueBase == -1 || candidateLength < lattice.lengths[glueBase]) &&
+            candidateLength >= targetLength;
     }
 
     /**
-     * Create a glue node to be inserted based on ViterbiNode already in the lattice.
+     * Create a glue node to be inserted based on a node already in the lattice.
      * The new node takes the same parameters as the node it is based on, but the word is truncated to match the
      * hole in the lattice caused by the new user entry
      *
-     * @param startIndex
+     * @param lattice
      * @param glueBase
-     * @param surface
-     * @return new ViterbiNode to be inserted as glue into the lattice
+     * @param startIndex  start of the truncated word in the region
+     * @param length  length of the truncated word
      */
-    private ViterbiNode makeGlueNode(int startIndex, ViterbiNode glueBase, String surface) {
-        return new ViterbiNode(
-            glueBase.getWordId(),
-            surface,
-            glueBase.getLeftId(),
-            glueBase.getRightId(),
-            glueBase.getWordCost(),
+    private void makeGlueNode(ArrayViterbiLattice lattice, int glueBase, int startIndex, int length) {
+        lattice.addNode(
+            lattice.wordIds[glueBase],
+            ViterbiNode.Type.INSERTED,
             startIndex,
-            ViterbiNode.Type.INSERTED
+            length,
+            lattice.leftIds[glueBase],
+            lattice.rightIds[glueBase],
+            lattice.wordCosts[glueBase]
         );
     }
+
+    /**
+     * Adds a known word node to the lattice for every dictionary entry matching a prefix of the input
+     */
+    private class KnownWordMatchHandler implements PrefixMatchHandler {
+
+        private final ArrayViterbiLattice lattice;
+        private int startIndex;
+
+        KnownWordMatchHandler(ArrayViterbiLattice lattice) {
+            this.lattice = lattice;
+        }
+
+        @Override
+        public void match(int output, int length) {
+            for (int wordId : dictionary.lookupWordIds(output)) {
+                lattice.addNode(wordId, ViterbiNode.Type.KNOWN, startIndex, length, dictionary);
+            }
+        }
+    }
+
+    /**
+     * Adds a known word node to the lattice for every overlay entry matching a prefix of the input
+     * <p>
+     * Nodes get the word ids of the overlay words in the system dictionary, following the words of the base dictionary
+     */
+    private class OverlayWordMatchHandler implements PrefixMatchHandler {
+
+        private final ArrayViterbiLattice lattice;
+        private final TokenInfoDictionary overlayDictionary;
+        private final int wordIdOffset;
+        private int startIndex;
+
+        OverlayWordMatchHandler(ArrayViterbiLattice lattice) {
+            this.lattice = lattice;
+            this.overlayDictionary = overlay.getTokenInfoDictionary();
+            this.wordIdOffset = overlay.getWordIdOffset();
+        }
+
+        @Override
+        public void match(int output, int length) {
+            for (int wordId : overlayDictionary.lookupWordIds(output)) {
+                lattice.addNode(
+                    wordIdOffset + wordId,
+                    ViterbiNode.Type.KNOWN,
+                    startIndex,
+                    length,
+                    overlayDictionary.getLeftId(wordId),
+                    overlayDictionary.getRightId(wordId),
+                    overlayDictionary.getWordCost(wordId)
+                );
+            }
+        }
+    }
 }
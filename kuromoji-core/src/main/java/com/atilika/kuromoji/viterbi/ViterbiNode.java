@@ -28,7 +28,14 @@ public class ViterbiNode {
     }
 
     private final int wordId;
-    private final String surface;
+
+    /**
+     * text containing the surface of this node, which is only materialized as a String on demand
+     */
+    private final CharSequence text;
+    private final int surfaceStart;
+    private final int surfaceLength;
+
     private final int leftId;
     private final int rightId;
 
@@ -47,8 +54,31 @@ public class ViterbiNode {
 
 
     public ViterbiNode(int wordId, String surface, int leftId, int rightId, int wordCost, int startIndex, Type type) {
+        this(wordId, surface, 0, surface.length(), leftId, rightId, wordCost, startIndex, type);
+    }
+
+    public ViterbiNode(int wordId, String word, Dictionary dictionary, int startIndex, Type type) {
+        this(wordId, word, dictionary.getLeftId(wordId), dictionary.getRightId(wordId), dictionary.getWordCost(wordId), startIndex, type);
+    }
+
+    /**
+     * Constructor for a node whose surface is a region of a larger text
+     *
+     * @param wordId  word id
+     * @param text  text containing the surface
+     * @param surfaceStart  start of the surface in text
+     * @param surfaceLength  length of the surface
+     * @param leftId  left id
+     * @param rightId  right id
+     * @param wordCost  word cost
+     * @param startIndex  start index of this node in the lattice
+     * @param type  node type
+     */
+    public ViterbiNode(int wordId, CharSequence text, int surfaceStart, int surfaceLength, int leftId, int rightId, int wordCost, int startIndex, Type type) {
         this.wordId = wordId;
-        this.surface = surface;
+        this.text = text;
+        this.surfaceStart = surfaceStart;
+        this.surfaceLength = surfaceLength;
         this.leftId = leftId;
         this.rightId = rightId;
         this.wordCost = wordCost;
@@ -56,8 +86,8 @@ public class ViterbiNode {
         this.type = type;
     }
 
-    public ViterbiNode(int wordId, String word, Dictionary dictionary, int startIndex, Type type) {
-        this(wordId, word, dictionary.getLeftId(wordId), dictionary.getRightId(wordId), dictionary.getWordCost(wordId), startIndex, type);
+    public ViterbiNode(int wordId, CharSequence text, int surfaceStart, int surfaceLength, Dictionary dictionary, int startIndex, Type type) {
+        this(wordId, text, surfaceStart, surfaceLength, dictionary.getLeftId(wordId), dictionary.getRightId(wordId), dictionary.getWordCost(wordId), startIndex, type);
     }
 
     /**
@@ -71,7 +101,31 @@ public class ViterbiNode {
      * @return the surface
      */
     public String getSurface() {
-        return surface;
+        if (surfaceStart == 0 && surfaceLength == text.length() && text instanceof String) {
+            return (String) text;
+        }
+        return text.subSequence(surfaceStart, surfaceStart + surfaceLength).toString();
+    }
+
+    /**
+     * @return the surface length
+     */
+    public int getSurfaceLength() {
+        return surfaceLength;
+    }
+
+    /**
+     * @return the text containing the surface
+     */
+    CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * @return the start of the surface in the text
+     */
+    int getSurfaceStart() {
+        return surfaceStart;
     }
 
     /**
@@ -69,6 +69,19 @@ public class ViterbiSearcher {
         return result;
     }
 
+    /**
+     * Find best path from input array lattice
+     * <p>
+     * The path costs and best left nodes are stored in the lattice, and the best path excluding BOS and EOS is
+     * available from {@link ArrayViterbiLattice#getBestPathNode(int)}
+     *
+     * @param lattice the result of build method
+     */
+    public void search(ArrayViterbiLattice lattice) {
+        calculatePathCosts(lattice);
+        backtrackBestPath(lattice);
+    }
+
     /**
      * Find the best paths with cost at most OPT + costSlack, where OPT is the optimal solution. At most maxCount paths will be returned. The paths are ordered by cost in ascending order.
      *
@@ -104,6 +117,73 @@ public class ViterbiSearcher {
         return endIndexArr;
     }
 
+    void calculatePathCosts(ArrayViterbiLattice lattice) {
+        int dimension = lattice.getDimension();
+
+        for (int i = 1; i < dimension; i++) {
+            calculatePathCosts(lattice, i);
+        }
+    }
+
+    /**
+     * Calculates the path costs of the nodes starting at a lattice index
+     * <p>
+     * All nodes ending at the index must be in the lattice, and their path costs must be calculated
+     *
+     * @param lattice  lattice to calculate path costs in
+     * @param index  lattice index
+     */
+    void calculatePathCosts(ArrayViterbiLattice lattice, int index) {
+        int firstNode = lattice.firstStarting[index];
+
+        if (firstNode == -1 || lattice.firstEnding[index] == -1) {    // return since no node or no previous node exists
+            return;
+        }
+
+        int leftNodeCount = lattice.gatherEnding(index);
+        int[] nextStarting = lattice.nextStarting;
+
+        for (int node = firstNode; node != -1; node = nextStarting[node]) {
+            updateNode(lattice, leftNodeCount, node);
+        }
+    }
+
+    private void updateNode(ArrayViterbiLattice lattice, int leftNodeCount, int node) {
+        int[] leftNodes = lattice.endingNodes;
+        int[] leftRightIds = lattice.endingRightIds;
+        int[] leftPathCosts = lattice.endingPathCosts;
+
+        int backwardConnectionId = lattice.leftIds[node];
+        int wordCost = lattice.wordCosts[node];
+        int leastPathCost = DEFAULT_COST;
+        int bestLeftNode = -1;
+
+        // Add extra cost for long nodes in "Search mode".
+        int penaltyCost = 0;
+        if (mode == TokenizerBase.Mode.SEARCH || mode == TokenizerBase.Mode.EXTENDED) {
+            penaltyCost = getPenaltyCost(lattice.getText(), lattice.getOffset() + lattice.startIndices[node], lattice.lengths[node]);
+        }
+
+        for (int i = 0; i < leftNodeCount; i++) {
+            // cost = [total cost from BOS to previous node] + [connection cost between previous node and current node] + [word cost]
+            int pathCost = leftPathCosts[i] +
+                costs.get(leftRightIds[i], backwardConnectionId) +
+                wordCost +
+                penaltyCost;
+
+            // If total cost is lower than before, set current previous node as best left node (previous means left).
+            if (pathCost < leastPathCost) {
+                leastPathCost = pathCost;
+                bestLeftNode = i;
+            }
+        }
+
+        if (bestLeftNode != -1) {
+            lattice.pathCosts[node] = leastPathCost;
+            lattice.leftNodes[node] = leftNodes[bestLeftNode];
+        }
+    }
+
     private void updateNode(ViterbiNode[] viterbiNodes, ViterbiNode node) {
         int backwardConnectionId = node.getLeftId();
         int wordCost = node.getWordCost();
@@ -135,12 +215,14 @@ public class ViterbiSearcher {
     }
 
     int getPenaltyCost(ViterbiNode node) {
+        return getPenaltyCost(node.getText(), node.getSurfaceStart(), node.getSurfaceLength());
+    }
+
+    private int getPenaltyCost(CharSequence text, int start, int length) {
         int pathCost = 0;
-        String surface = node.getSurface();
-        int length = surface.length();
 
         if (length > kanjiPenaltyLengthThreshold) {
-            if (isKanjiOnly(surface)) {    // Process only Kanji keywords
+            if (isKanjiOnly(text, start, length)) {    // Process only Kanji keywords
                 pathCost += (length - kanjiPenaltyLengthThreshold) * kanjiPenalty;
             } else if (length > otherPenaltyLengthThreshold) {
                 pathCost += (length - otherPenaltyLengthThreshold) * otherPenalty;
@@ -149,9 +231,9 @@ public class ViterbiSearcher {
         return pathCost;
     }
 
-    private boolean isKanjiOnly(String surface) {
-        for (int i = 0; i < surface.length(); i++) {
-            char c = surface.charAt(i);
+    private boolean isKanjiOnly(CharSequence text, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            char c = text.charAt(i);
 
             if (Character.UnicodeBlock.of(c) != Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS) {
                 return false;
@@ -185,16 +267,167 @@ public class ViterbiSearcher {
         return result;
     }
 
+    void backtrackBestPath(ArrayViterbiLattice lattice) {
+        backtrackBestPath(lattice, lattice.leftNodes[lattice.getEos()]);
+    }
+
+    /**
+     * Finds the part of the best path that stays the same when more text is appended to the lattice
+     * <p>
+     * The best paths to all nodes ending after the horizon are traced back to the last node they have in common.
+     * Assuming no word starting at or before the horizon continues past the end of the lattice, the best path of
+     * any longer text passes through this node. The path is then stepped back to the last node whose end no other
+     * node spans, so that the text after it is tokenized the same way without the text before it. Nodes spanning
+     * the end, such as user dictionary words and the glue nodes inserted around them, would otherwise be missing
+     * from the lattice of the remaining text. The path up to and including the node found is stored as the best
+     * path. If there is no such node, the cheapest node ending closest to the horizon is used instead.
+     *
+     * @param lattice  lattice with path costs calculated, but without EOS connected
+     * @param horizon  index in the region after which words may still change
+     * @return last node of the best path found, or -1 if there is none
+     */
+    int backtrackConvergedPath(ArrayViterbiLattice lattice, int horizon) {
+        int[] firstEnding = lattice.firstEnding;
+        int[] nextEnding = lattice.nextEnding;
+        int[] leftNodes = lattice.leftNodes;
+        int bos = lattice.getBos();
+        int common = -1;
+
+        // Lattice indices of nodes ending after the horizon, up to the end of the region
+        for (int i = horizon + 2; i < lattice.getDimension() && common != bos; i++) {
+            for (int node = firstEnding[i]; node != -1 && common != bos; node = nextEnding[node]) {
+                if (leftNodes[node] == -1) {    // node cannot be reached from BOS
+                    continue;
+                }
+                common = common == -1 ? node : findCommonAncestor(lattice, common, node);
+            }
+        }
+
+        if (common != -1 && common != bos) {
+            common = findUnspannedAncestor(lattice, common);
+        }
+
+        if (common == -1 || common == bos) {
+            common = findCheapestNodeEndingBefore(lattice, horizon);
+        }
+
+        if (common != -1) {
+            backtrackBestPath(lattice, common);
+        }
+        return common;
+    }
+
+    private int findCommonAncestor(ArrayViterbiLattice lattice, int a, int b) {
+        int[] leftNodes = lattice.leftNodes;
+
+        // Step back along both paths, always moving the one ending furthest to the right
+        while (a != b) {
+            if (a == -1 || b == -1) {    // one of the paths does not reach BOS
+                return lattice.getBos();
+            }
+
+            int endA = lattice.startIndices[a] + lattice.lengths[a];
+            int endB = lattice.startIndices[b] + lattice.lengths[b];
+
+            if (endA >= endB) {
+                a = leftNodes[a];
+            }
+            if (endB >= endA) {
+                b = leftNodes[b];
+            }
+        }
+        return a;
+    }
+
+    private int findUnspannedAncestor(ArrayViterbiLattice lattice, int node) {
+        int[] startIndices = lattice.startIndices;
+        int[] lengths = lattice.lengths;
+        int[] spans = new int[lattice.getDimension() + 1];
+
+        // Number of nodes spanning each index in the region, as differences from the preceding index
+        for (int other = 0; other < lattice.size(); other++) {
+            if (lengths[other] > 1) {
+                spans[startIndices[other] + 1]++;
+                spans[startIndices[other] + lengths[other]]--;
+            }
+        }
+
+        for (int i = 1; i < spans.length; i++) {
+            spans[i] += spans[i - 1];
+        }
+
+        int[] leftNodes = lattice.leftNodes;
+        int bos = lattice.getBos();
+
+        while (node != -1 && node != bos && spans[startIndices[node] + lengths[node]] > 0) {
+            node = leftNodes[node];
+        }
+        return node;
+    }
+
+    private int findCheapestNodeEndingBefore(ArrayViterbiLattice lattice, int horizon) {
+        for (int i = horizon + 1; i > 1; i--) {
+            int cheapest = -1;
+
+            for (int node = lattice.firstEnding[i]; node != -1; node = lattice.nextEnding[node]) {
+                if (lattice.leftNodes[node] != -1 &&
+                    (cheapest == -1 || lattice.pathCosts[node] < lattice.pathCosts[cheapest])) {
+                    cheapest = node;
+                }
+            }
+
+            if (cheapest != -1) {
+                return cheapest;
+            }
+        }
+        return -1;
+    }
+
+    private void backtrackBestPath(ArrayViterbiLattice lattice, int last) {
+        int[] leftNodes = lattice.leftNodes;
+        int bos = lattice.getBos();
+
+        lattice.clearBestPath();
+
+        // Nodes are added from right to left and reversed, except for unigram nodes for unknown words in extended
+        // mode, which go at the end just like when backtracking a ViterbiLattice
+        for (int node = last; node != -1 && node != bos; node = leftNodes[node]) {
+            if (mode != TokenizerBase.Mode.EXTENDED || lattice.types[node] != ViterbiNode.Type.UNKNOWN.ordinal()) {
+                lattice.addToBestPath(node);
+            }
+        }
+
+        int pathLength = lattice.getBestPathLength();
+
+        lattice.reverseBestPath(0, pathLength);
+
+        if (mode == TokenizerBase.Mode.EXTENDED) {
+            for (int node = last; node != -1 && node != bos; node = leftNodes[node]) {
+                if (lattice.types[node] == ViterbiNode.Type.UNKNOWN.ordinal()) {
+                    convertUnknownWordToUnigramNode(lattice, node);
+                }
+            }
+        }
+    }
+
+    private void convertUnknownWordToUnigramNode(ArrayViterbiLattice lattice, int node) {
+        int unigramWordId = 0;
+        int startIndex = lattice.startIndices[node];
+
+        for (int i = 0; i < lattice.lengths[node]; i++) {
+            int uniGramNode = lattice.addDetachedNode(unigramWordId, ViterbiNode.Type.UNKNOWN, startIndex + i, 1, unknownDictionary);
+            lattice.addToBestPath(uniGramNode);
+        }
+    }
+
     private LinkedList<ViterbiNode> convertUnknownWordToUnigramNode(ViterbiNode node) {
         LinkedList<ViterbiNode> uniGramNodes = new LinkedList<>();
         int unigramWordId = 0;
-        String surface = node.getSurface();
 
-        for (int i = surface.length(); i > 0; i--) {
-            String word = surface.substring(i - 1, i);
+        for (int i = node.getSurfaceLength(); i > 0; i--) {
             int startIndex = node.getStartIndex() + i - 1;
 
-            ViterbiNode uniGramNode = new ViterbiNode(unigramWordId, word, unknownDictionary, startIndex, ViterbiNode.Type.UNKNOWN);
+            ViterbiNode uniGramNode = new ViterbiNode(unigramWordId, node.getText(), node.getSurfaceStart() + i - 1, 1, unknownDictionary, startIndex, ViterbiNode.Type.UNKNOWN);
             uniGramNodes.addFirst(uniGramNode);
         }
 
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji;
+
+import com.atilika.kuromoji.viterbi.ViterbiNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenArrayTest {
+
+    @Test
+    public void testColumns() {
+        TokenArray<TokenBase> tokens = createTokens();
+
+        assertEquals(40, tokens.size());
+        assertEquals(ViterbiNode.Type.KNOWN, tokens.getType(0));
+        assertEquals(ViterbiNode.Type.UNKNOWN, tokens.getType(1));
+        assertEquals(2, tokens.getWordId(2));
+        assertEquals(3, tokens.getPosition(2));
+        assertEquals(2, tokens.getLength(2));
+        assertEquals("寿司", tokens.getSurface(0));
+        assertEquals("が", tokens.getSurface(39));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        createTokens().getWordId(40);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testReadWithoutTokenizer() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        createTokens().write(output);
+
+        TokenArray.read(new ByteArrayInputStream(output.toByteArray()), null);
+    }
+
+    private TokenArray<TokenBase> createTokens() {
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 20; i++) {
+            text.append("寿司が");
+        }
+
+        TokenArray<TokenBase> tokens = new TokenArray<>(null, null, text.toString());
+
+        for (int i = 0; i < 20; i++) {
+            tokens.add(2 * i, ViterbiNode.Type.KNOWN, 3 * i, 2);
+            tokens.add(2 * i + 1, ViterbiNode.Type.UNKNOWN, 3 * i + 2, 1);
+        }
+        tokens.trimToSize();
+
+        return tokens;
+    }
+}
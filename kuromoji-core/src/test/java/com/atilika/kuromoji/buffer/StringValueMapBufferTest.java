@@ -16,11 +16,15 @@
  */
 package com.atilika.kuromoji.buffer;
 
+import com.atilika.kuromoji.io.ByteBufferIO;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.TreeMap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class StringValueMapBufferTest {
 
@@ -40,4 +44,118 @@ public class StringValueMapBufferTest {
         assertEquals("日本", values.get(2));
         assertEquals("カタカナ", values.get(3));
     }
+
+    @Test
+    public void testAppend() throws Exception {
+        TreeMap<Integer, String> input = new TreeMap<>();
+
+        input.put(0, "カタカナ");
+        input.put(1, "日本");
+        input.put(2, "a,b");
+        input.put(3, "\"quoted\"");
+
+        StringValueMapBuffer values = new StringValueMapBuffer(input);
+        StringBuilder builder = new StringBuilder();
+
+        for (int key = 0; key < 4; key++) {
+            builder.setLength(0);
+            values.append(key, builder);
+            assertEquals(values.get(key), builder.toString());
+        }
+
+        builder.setLength(0);
+        values.appendEscaped(0, builder);
+        assertEquals("カタカナ", builder.toString());
+
+        builder.setLength(0);
+        values.appendEscaped(2, builder);
+        assertEquals("\"a,b\"", builder.toString());
+
+        builder.setLength(0);
+        values.appendEscaped(3, builder);
+        assertEquals("\"\"quoted\"\"", builder.toString());
+    }
+
+    @Test
+    public void testMaterialize() throws Exception {
+        StringValueMapBuffer values = new StringValueMapBuffer(createValues());
+        values.materialize();
+
+        assertEquals("Bye", values.get(0));
+        assertEquals("カタカナ", values.get(3));
+        assertSame(values.get(2), values.get(2));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        StringValueMapBuffer values = new StringValueMapBuffer(createValues());
+        values.cache(2);
+
+        String value = values.get(1);
+        assertEquals("hello", value);
+        assertSame(value, values.get(1));
+        assertEquals(1, values.getCacheHits());
+        assertEquals(1, values.getCacheMisses());
+
+        // Key 3 replaces key 1 in the cache
+        assertEquals("カタカナ", values.get(3));
+        assertEquals("hello", values.get(1));
+        assertEquals(1, values.getCacheHits());
+        assertEquals(3, values.getCacheMisses());
+
+        values.cache(0);
+        assertEquals("日本", values.get(2));
+        assertEquals(3, values.getCacheMisses());
+    }
+
+    @Test
+    public void testKeyOf() throws Exception {
+        StringValueMapBuffer values = new StringValueMapBuffer(createValues());
+
+        assertEquals(0, values.keyOf("Bye"));
+        assertEquals(2, values.keyOf("日本"));
+        assertEquals(3, values.keyOf("カタカナ"));
+        assertEquals(-1, values.keyOf("missing"));
+    }
+
+    @Test
+    public void testExtend() throws Exception {
+        StringValueMapBuffer base = new StringValueMapBuffer(createValues());
+
+        TreeMap<Integer, String> input = new TreeMap<>();
+        input.put(4, "東京");
+        input.put(5, "a,b");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new StringValueMapBuffer(input).write(output);
+
+        StringValueMapBuffer values = new StringValueMapBuffer(
+            base, ByteBufferIO.read(new ByteArrayInputStream(output.toByteArray()))
+        );
+
+        assertEquals(6, values.size());
+        assertEquals("hello", values.get(1));
+        assertEquals("東京", values.get(4));
+        assertEquals("a,b", values.get(5));
+
+        assertEquals(2, values.keyOf("日本"));
+        assertEquals(4, values.keyOf("東京"));
+        assertEquals(-1, values.keyOf("missing"));
+
+        StringBuilder builder = new StringBuilder();
+        values.appendEscaped(5, builder);
+        values.append(3, builder);
+        assertEquals("\"a,b\"カタカナ", builder.toString());
+    }
+
+    private TreeMap<Integer, String> createValues() {
+        TreeMap<Integer, String> input = new TreeMap<>();
+
+        input.put(0, "Bye");
+        input.put(1, "hello");
+        input.put(2, "日本");
+        input.put(3, "カタカナ");
+
+        return input;
+    }
 }
@@ -111,6 +111,11 @@ public class TokenInfoBufferCompilerTest {
 
         assertEquals(99, tokenInfoBuffer2.lookupFeature(0, 1));
         assertEquals(73, tokenInfoBuffer2.lookupFeature(0, 0));
+
+        assertEquals(1, tokenInfoBuffer2.lookupLeftId(0));
+        assertEquals(2, tokenInfoBuffer2.lookupRightId(0));
+        assertEquals(3, tokenInfoBuffer2.lookupWordCost(0));
+        assertEquals(3, tokenInfoBuffer2.lookupTokenInfo(0, 2));
     }
 
     @Test
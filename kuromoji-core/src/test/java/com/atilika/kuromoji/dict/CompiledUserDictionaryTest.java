@@ -0,0 +1,145 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.compile.UserDictionaryCompiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CompiledUserDictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameAsUserDictionary() throws IOException {
+        UserDictionary expected = new UserDictionary(getResource("userdict.txt"), 9, 7, 0);
+        CompiledUserDictionary actual = compile(9, 7, 0);
+
+        assertEquals(9, actual.getTotalFeatures());
+        assertEquals(7, actual.getReadingFeature());
+        assertEquals(0, actual.getPartOfSpeechFeature());
+
+        assertSameDictionary(expected, actual, "関西国際空港と関西国際空港に行った。朝青龍");
+    }
+
+    @Test
+    public void testWriteLayered() throws IOException {
+        LayeredUserDictionary expected = new LayeredUserDictionary(Arrays.asList(
+            new UserDictionary(getResource("userdict.txt"), 9, 7, 0),
+            newDictionary("関西国際空港,関西国際空港,カンサイコクサイクウコウ,カスタム名詞\n朝青龍が,朝青龍 が,アサショウリュウ ガ,カスタム人名")
+        ));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        CompiledUserDictionary.write(expected, output);
+
+        CompiledUserDictionary actual = new CompiledUserDictionary(ByteBuffer.wrap(output.toByteArray()));
+
+        assertEquals(expected.getWordCount(), actual.getWordCount());
+        assertSameDictionary(expected, actual, "関西国際空港と関西国際空港に行った。朝青龍が");
+
+        // The surface in the second layer replaces the segmented surface in the first
+        assertEquals(1, actual.findUserDictionaryMatches("関西国際空港").size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotCompiled() throws IOException {
+        new CompiledUserDictionary(ByteBuffer.wrap(new byte[64]));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotCompiledFile() throws IOException {
+        File file = folder.newFile("userdict.txt");
+        Files.write(file.toPath(), "関西国際空港,関西 国際 空港,カンサイ コクサイ クウコウ,テスト名詞\n".getBytes(StandardCharsets.UTF_8));
+
+        CompiledUserDictionary.newInstance(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (InputStream input = getResource("userdict.txt")) {
+            new UserDictionaryCompiler(input, output, 9, 7, 0).compile();
+        }
+
+        byte[] image = output.toByteArray();
+        new CompiledUserDictionary(ByteBuffer.wrap(Arrays.copyOf(image, image.length / 2)));
+    }
+
+    private void assertSameDictionary(UserDictionaryBase expected, UserDictionaryBase actual, String text) throws IOException {
+        List<UserDictionaryBase.UserDictionaryMatch> expectedMatches = expected.findUserDictionaryMatches(text);
+        List<UserDictionaryBase.UserDictionaryMatch> actualMatches = actual.findUserDictionaryMatches(text);
+
+        assertEquals(expectedMatches.size(), actualMatches.size());
+
+        for (int i = 0; i < expectedMatches.size(); i++) {
+            UserDictionaryBase.UserDictionaryMatch expectedMatch = expectedMatches.get(i);
+            UserDictionaryBase.UserDictionaryMatch actualMatch = actualMatches.get(i);
+
+            assertEquals(expectedMatch.getWordId(), actualMatch.getWordId());
+            assertEquals(expectedMatch.getMatchStartIndex(), actualMatch.getMatchStartIndex());
+            assertEquals(expectedMatch.getMatchLength(), actualMatch.getMatchLength());
+        }
+
+        for (int wordId = 0; wordId < expected.getWordCount(); wordId++) {
+            assertEquals(expected.getLeftId(wordId), actual.getLeftId(wordId));
+            assertEquals(expected.getRightId(wordId), actual.getRightId(wordId));
+            assertEquals(expected.getWordCost(wordId), actual.getWordCost(wordId));
+            assertEquals(expected.getAllFeatures(wordId), actual.getAllFeatures(wordId));
+            assertArrayEquals(expected.getAllFeaturesArray(wordId), actual.getAllFeaturesArray(wordId));
+            assertEquals(expected.getFeature(wordId, 0, 7), actual.getFeature(wordId, 0, 7));
+
+            StringBuilder builder = new StringBuilder();
+            actual.appendAllFeatures(wordId, builder);
+            assertEquals(expected.getAllFeatures(wordId), builder.toString());
+        }
+    }
+
+    private CompiledUserDictionary compile(int totalFeatures, int readingFeature, int partOfSpeechFeature) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (InputStream input = getResource("userdict.txt")) {
+            new UserDictionaryCompiler(input, output, totalFeatures, readingFeature, partOfSpeechFeature).compile();
+        }
+
+        return new CompiledUserDictionary(ByteBuffer.wrap(output.toByteArray()));
+    }
+
+    private static UserDictionary newDictionary(String entries) throws IOException {
+        return new UserDictionary(new ByteArrayInputStream(entries.getBytes(StandardCharsets.UTF_8)), 9, 7, 0);
+    }
+
+    private InputStream getResource(String resource) {
+        return this.getClass().getClassLoader().getResourceAsStream(resource);
+    }
+}
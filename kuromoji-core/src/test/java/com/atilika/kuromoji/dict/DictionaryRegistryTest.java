@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.TokenizerBase;
+import com.atilika.kuromoji.util.SimpleResourceResolver;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DictionaryRegistryTest {
+
+    private final DictionaryRegistry registry = DictionaryRegistry.getInstance();
+
+    @After
+    public void tearDown() {
+        registry.clear();
+    }
+
+    @Test
+    public void testSharedForEqualKeys() throws IOException {
+        CountingLoader loader = new CountingLoader();
+
+        SystemDictionary first = registry.get(key(), loader);
+        SystemDictionary second = registry.get(key(), loader);
+
+        assertSame(first, second);
+        assertEquals(1, loader.loads);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testLoadedForDifferentKeys() throws IOException {
+        CountingLoader loader = new CountingLoader();
+
+        SystemDictionary first = registry.get(key(), loader);
+        SystemDictionary second = registry.get(Arrays.asList(key(), true), loader);
+
+        assertNotSame(first, second);
+        assertEquals(2, loader.loads);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testReloadedAfterClear() throws IOException {
+        CountingLoader loader = new CountingLoader();
+
+        SystemDictionary first = registry.get(key(), loader);
+        registry.clear();
+        SystemDictionary second = registry.get(key(), loader);
+
+        assertNotSame(first, second);
+        assertEquals(2, loader.loads);
+    }
+
+    @Test
+    public void testKeptWhileTokenizerIsReachable() {
+        CountingLoader loader = new CountingLoader();
+
+        TestTokenizer first = new CountingBuilder(loader).build();
+        collectGarbage();
+        TestTokenizer second = new CountingBuilder(loader).build();
+
+        assertEquals(1, loader.loads);
+        assertEquals(1, registry.size());
+        assertSame(first.getDictionaryLoadTimes(), second.getDictionaryLoadTimes());
+    }
+
+    private void collectGarbage() {
+        WeakReference<Object> sentinel = new WeakReference<>(new Object());
+
+        for (int i = 0; i < 100 && sentinel.get() != null; i++) {
+            System.gc();
+        }
+
+        assertNull(sentinel.get());
+    }
+
+    private Object key() {
+        return Arrays.asList(new SimpleResourceResolver(DictionaryRegistryTest.class), 9);
+    }
+
+    private static class CountingLoader implements DictionaryRegistry.Loader {
+
+        private int loads;
+
+        @Override
+        public SystemDictionary load() {
+            loads++;
+            UnknownDictionary unknownDictionary = new UnknownDictionary(null, null, null, null, 0);
+
+            return new SystemDictionary(null, null, null, null, unknownDictionary, new HashMap<String, Long>());
+        }
+    }
+
+    private static class TestTokenizer extends TokenizerBase {
+
+        private TestTokenizer(CountingBuilder builder) {
+            configure(builder);
+        }
+    }
+
+    private static class CountingBuilder extends TokenizerBase.Builder {
+
+        private final CountingLoader loader;
+
+        private CountingBuilder(CountingLoader loader) {
+            this.loader = loader;
+            resolver = new SimpleResourceResolver(DictionaryRegistryTest.class);
+            totalFeatures = 9;
+        }
+
+        @Override
+        protected SystemDictionary loadSystemDictionary() {
+            return loader.load();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public TestTokenizer build() {
+            return new TestTokenizer(this);
+        }
+    }
+}
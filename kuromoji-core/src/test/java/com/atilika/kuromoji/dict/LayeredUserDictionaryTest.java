@@ -0,0 +1,117 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LayeredUserDictionaryTest {
+
+    @Test
+    public void testLongestMatchWins() throws IOException {
+        UserDictionary base = newDictionary("関西国際空港,関西 国際 空港,カンサイ コクサイ クウコウ,テスト名詞");
+        UserDictionary overlay = newDictionary("関西,関西,カンサイ,カスタム名詞");
+
+        LayeredUserDictionary dictionary = new LayeredUserDictionary(Arrays.asList(base, overlay));
+        List<UserDictionary.UserDictionaryMatch> matches = dictionary.findUserDictionaryMatches("関西国際空港に行った");
+
+        assertEquals(3, matches.size());
+        assertEquals(0, matches.get(0).getMatchStartIndex());
+        assertEquals(2, matches.get(0).getMatchLength());
+        assertEquals("テスト名詞,*,*,*,*,*,*,カンサイ,*", dictionary.getAllFeatures(matches.get(0).getWordId()));
+    }
+
+    @Test
+    public void testHigherLayerWinsTie() throws IOException {
+        UserDictionary base = newDictionary("朝青龍,朝青 龍,アサショウ リュウ,カスタム名詞");
+        UserDictionary overlay = newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+
+        LayeredUserDictionary dictionary = new LayeredUserDictionary(Arrays.asList(base, overlay));
+        List<UserDictionary.UserDictionaryMatch> matches = dictionary.findUserDictionaryMatches("朝青龍が");
+
+        assertEquals(1, matches.size());
+        assertEquals(3, matches.get(0).getMatchLength());
+        assertEquals("カスタム人名", dictionary.getFeature(matches.get(0).getWordId(), 0));
+
+        // Reversing the layers reverses the winner, which is segmented in two
+        dictionary = new LayeredUserDictionary(Arrays.asList(overlay, base));
+        matches = dictionary.findUserDictionaryMatches("朝青龍が");
+
+        assertEquals(2, matches.size());
+        assertEquals(2, matches.get(0).getMatchLength());
+        assertEquals("カスタム名詞", dictionary.getFeature(matches.get(0).getWordId(), 0));
+    }
+
+    @Test
+    public void testWordIds() throws IOException {
+        UserDictionary first = newDictionary("関西国際空港,関西 国際 空港,カンサイ コクサイ クウコウ,テスト名詞");
+        UserDictionary empty = newDictionary("");
+        UserDictionary last = newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+
+        LayeredUserDictionary dictionary = new LayeredUserDictionary(Arrays.asList(first, empty, last));
+
+        assertEquals(4, dictionary.getWordCount());
+        assertEquals("テスト名詞,*,*,*,*,*,*,クウコウ,*", dictionary.getAllFeatures(2));
+        assertEquals("カスタム人名,*,*,*,*,*,*,アサショウリュウ,*", dictionary.getAllFeatures(3));
+        assertEquals(last.getWordCost(0), dictionary.getWordCost(3));
+
+        List<UserDictionary.UserDictionaryMatch> matches = dictionary.findUserDictionaryMatches("朝青龍と関西国際空港");
+
+        assertEquals(4, matches.size());
+        assertEquals(3, matches.get(0).getWordId());
+        assertEquals(0, matches.get(1).getWordId());
+    }
+
+    @Test
+    public void testNestedLayers() throws IOException {
+        UserDictionary first = newDictionary("関西,関西,カンサイ,カスタム名詞");
+        UserDictionary second = newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+        UserDictionary third = newDictionary("日本経済新聞,日本 経済 新聞,ニホン ケイザイ シンブン,カスタム名詞");
+
+        LayeredUserDictionary nested = new LayeredUserDictionary(Arrays.asList(first, second));
+        LayeredUserDictionary dictionary = new LayeredUserDictionary(Arrays.<UserDictionaryBase>asList(nested, third));
+
+        assertEquals(Arrays.asList(first, second, third), dictionary.getLayers());
+        assertEquals(5, dictionary.getWordCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoLayers() {
+        new LayeredUserDictionary(Collections.<UserDictionary>emptyList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFeatureMismatch() throws IOException {
+        UserDictionary jumanDic = new UserDictionary(
+            new ByteArrayInputStream("朝青龍,朝青龍,アサショウリュウ,カスタム人名".getBytes(StandardCharsets.UTF_8)), 7, 5, 0
+        );
+
+        new LayeredUserDictionary(Arrays.asList(newDictionary("関西,関西,カンサイ,カスタム名詞"), jumanDic));
+    }
+
+    private static UserDictionary newDictionary(String entries) throws IOException {
+        return new UserDictionary(new ByteArrayInputStream(entries.getBytes(StandardCharsets.UTF_8)), 9, 7, 0);
+    }
+}
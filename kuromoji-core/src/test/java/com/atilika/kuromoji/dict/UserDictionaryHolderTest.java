@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UserDictionaryHolderTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void testSet() throws IOException {
+        UserDictionaryHolder holder = new UserDictionaryHolder(9, 7, 0);
+        UserDictionary dictionary = newDictionary("関西国際空港,関西 国際 空港,カンサイ コクサイ クウコウ,テスト名詞");
+
+        assertNull(holder.get());
+
+        holder.set(dictionary);
+        assertSame(dictionary, holder.get());
+
+        holder.set(null);
+        assertNull(holder.get());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        UserDictionaryHolder holder = new UserDictionaryHolder(9, 7, 0);
+
+        Future<UserDictionaryBase> future = holder.load(new UserDictionaryHolder.Loader() {
+            @Override
+            public UserDictionary load() throws IOException {
+                return newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+            }
+        }, DIRECT_EXECUTOR);
+
+        assertSame(future.get(), holder.get());
+        assertEquals(1, holder.get().findUserDictionaryMatches("朝青龍が").size());
+    }
+
+    @Test
+    public void testSlowLoadDoesNotReplaceLaterDictionary() throws Exception {
+        final UserDictionaryHolder holder = new UserDictionaryHolder(9, 7, 0);
+        final CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<UserDictionaryBase> slow = holder.load(new UserDictionaryHolder.Loader() {
+                @Override
+                public UserDictionary load() throws IOException {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+                }
+            }, executor);
+
+            UserDictionary later = newDictionary("日本経済新聞,日本 経済 新聞,ニホン ケイザイ シンブン,カスタム名詞");
+
+            holder.set(later);
+            latch.countDown();
+            slow.get();
+
+            assertSame(later, holder.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetFeatureMismatch() throws IOException {
+        new UserDictionaryHolder(7, 5, 0).set(newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名"));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testLoadFeatureMismatch() throws Exception {
+        new UserDictionaryHolder(7, 5, 0).load(new UserDictionaryHolder.Loader() {
+            @Override
+            public UserDictionary load() throws IOException {
+                return newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+            }
+        }, DIRECT_EXECUTOR).get();
+    }
+
+    private static UserDictionary newDictionary(String entries) throws IOException {
+        return new UserDictionary(new ByteArrayInputStream(entries.getBytes(StandardCharsets.UTF_8)), 9, 7, 0);
+    }
+}
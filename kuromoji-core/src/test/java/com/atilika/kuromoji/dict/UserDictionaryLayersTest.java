@@ -0,0 +1,120 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UserDictionaryLayersTest {
+
+    @Test
+    public void testSetAndRemove() throws IOException {
+        UserDictionaryHolder holder = new UserDictionaryHolder(9, 7, 0);
+        UserDictionaryLayers layers = new UserDictionaryLayers(holder);
+
+        UserDictionary base = newDictionary("関西,関西,カンサイ,カスタム名詞");
+        UserDictionary tenant = newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+        UserDictionary hot = newDictionary("日本経済新聞,日本 経済 新聞,ニホン ケイザイ シンブン,カスタム名詞");
+
+        layers.set("hot", 20, hot);
+        layers.set("tenant", 10, tenant);
+        layers.set("base", 0, base);
+
+        assertEquals(Arrays.asList("base", "tenant", "hot"), layers.getNames());
+        assertEquals(Arrays.asList(base, tenant, hot), ((LayeredUserDictionary) holder.get()).getLayers());
+        assertSame(tenant, layers.get("tenant"));
+
+        layers.remove("tenant");
+
+        assertEquals(Arrays.asList("base", "hot"), layers.getNames());
+        assertEquals(Arrays.asList(base, hot), ((LayeredUserDictionary) holder.get()).getLayers());
+        assertNull(layers.get("tenant"));
+
+        layers.remove("base");
+        layers.remove("hot");
+
+        assertEquals(Collections.<String>emptyList(), layers.getNames());
+        assertNull(holder.get());
+    }
+
+    @Test
+    public void testSamePriorityOrderedByName() throws IOException {
+        UserDictionaryLayers layers = new UserDictionaryLayers(new UserDictionaryHolder(9, 7, 0));
+
+        layers.set("b", 0, newDictionary("関西,関西,カンサイ,カスタム名詞"));
+        layers.set("a", 0, newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名"));
+
+        assertEquals(Arrays.asList("a", "b"), layers.getNames());
+    }
+
+    @Test
+    public void testSlowLoadDoesNotReplaceLaterLayer() throws Exception {
+        UserDictionaryHolder holder = new UserDictionaryHolder(9, 7, 0);
+        final UserDictionaryLayers layers = new UserDictionaryLayers(holder);
+        final CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<UserDictionaryBase> slow = layers.load("tenant", 10, new UserDictionaryHolder.Loader() {
+                @Override
+                public UserDictionary load() throws IOException {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return newDictionary("朝青龍,朝青龍,アサショウリュウ,カスタム人名");
+                }
+            }, executor);
+
+            UserDictionary base = newDictionary("関西,関西,カンサイ,カスタム名詞");
+
+            layers.set("base", 0, base);
+            layers.remove("tenant");
+            latch.countDown();
+            slow.get();
+
+            assertEquals(Arrays.asList("base"), layers.getNames());
+            assertEquals(Arrays.asList(base), ((LayeredUserDictionary) holder.get()).getLayers());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFeatureMismatch() throws IOException {
+        new UserDictionaryLayers(new UserDictionaryHolder(7, 5, 0))
+            .set("base", 0, newDictionary("関西,関西,カンサイ,カスタム名詞"));
+    }
+
+    private static UserDictionary newDictionary(String entries) throws IOException {
+        return new UserDictionary(new ByteArrayInputStream(entries.getBytes(StandardCharsets.UTF_8)), 9, 7, 0);
+    }
+}
@@ -25,6 +25,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class UserDictionaryTest {
 
@@ -134,6 +136,88 @@ public class UserDictionaryTest {
         assertEquals(2, positions.size());
     }
 
+    @Test
+    public void testLookupInRegion() throws IOException {
+        UserDictionary dictionary = new UserDictionary(
+            getResource("userdict.txt"),
+            9, 7, 0
+        );
+
+        String text = "関西国際空港と関西国際空港に行った";
+
+        List<UserDictionary.UserDictionaryMatch> matches = dictionary.findUserDictionaryMatches(text, 7, 10);
+
+        assertEquals(3, matches.size());
+
+        // Positions are relative to the region
+        assertEquals(0, matches.get(0).getMatchStartIndex()); // index of 関西
+        assertEquals(2, matches.get(1).getMatchStartIndex()); // index of 国際
+        assertEquals(4, matches.get(2).getMatchStartIndex()); // index of 空港
+
+        // Matches do not extend beyond the region
+        assertEquals(0, dictionary.findUserDictionaryMatches(text, 7, 5).size());
+    }
+
+    @Test
+    public void testReplacedSurface() throws IOException {
+        String userDictionaryEntries = "" +
+            "クロ,クロ,クロ,カスタム名詞\n" +
+            "クロ,ク ロ,ク ロ,テスト名詞";
+        UserDictionary dictionary = new UserDictionary(
+            new ByteArrayInputStream(userDictionaryEntries.getBytes(StandardCharsets.UTF_8)),
+            9, 7, 0
+        );
+        List<UserDictionary.UserDictionaryMatch> matches = dictionary.findUserDictionaryMatches("アクロポリス");
+
+        // The surface added last is used
+        assertEquals(2, matches.size());
+        assertEquals("テスト名詞", dictionary.getFeature(matches.get(0).getWordId(), 0));
+        assertEquals(3, dictionary.getWordCount());
+    }
+
+    @Test
+    public void testFullEntry() throws IOException {
+        String userDictionaryEntry = "朝青龍,1285,1285,-1000,名詞,固有名詞,人名,*,*,*,朝青龍,アサショウリュウ,アサショーリュー";
+        UserDictionary dictionary = new UserDictionary(
+            new ByteArrayInputStream(userDictionaryEntry.getBytes(StandardCharsets.UTF_8)),
+            9, 7, 0
+        );
+
+        assertEquals(1285, dictionary.getLeftId(0));
+        assertEquals(1285, dictionary.getRightId(0));
+        assertEquals(-1000, dictionary.getWordCost(0));
+        assertEquals("名詞,固有名詞,人名,*,*,*,朝青龍,アサショウリュウ,アサショーリュー", dictionary.getAllFeatures(0));
+        assertEquals("人名,アサショウリュウ", dictionary.getFeature(0, 2, 7));
+        assertEquals(1, dictionary.findUserDictionaryMatches("朝青龍").size());
+    }
+
+    @Test
+    public void testSharedFeatureValues() throws IOException {
+        UserDictionary dictionary = new UserDictionary(
+            getResource("userdict.txt"),
+            9, 7, 0
+        );
+
+        // 日本, 経済 and 新聞 have the same part of speech
+        assertSame(dictionary.getFeature(0, 0), dictionary.getFeature(2, 0));
+        assertSame(dictionary.getFeature(0, 1), dictionary.getFeature(2, 8));
+    }
+
+    @Test
+    public void testMemoryUsage() throws IOException {
+        UserDictionary dictionary = new UserDictionary(
+            getResource("userdict.txt"),
+            9, 7, 0
+        );
+        long usage = dictionary.getMemoryUsage();
+
+        assertTrue(usage > 0);
+
+        // Building the index takes memory too
+        dictionary.findUserDictionaryMatches("関西国際空港");
+        assertTrue(dictionary.getMemoryUsage() > usage);
+    }
+
     private InputStream getResource(String resource) {
         return this.getClass().getClassLoader().getResourceAsStream(resource);
     }
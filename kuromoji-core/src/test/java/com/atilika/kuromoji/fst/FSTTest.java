@@ -19,6 +19,9 @@ package com.atilika.kuromoji.fst;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
@@ -52,4 +55,44 @@ public class FSTTest {
         assertEquals(11, fst.lookup("rat"));
         assertEquals(-1, fst.lookup("rats")); // No match
     }
+
+    @Test
+    public void testCommonPrefixSearch() throws IOException {
+        String inputValues[] = {
+            "brats", "cat", "dog", "dogs", "rat",
+        };
+
+        int outputValues[] = {
+            1, 3, 5, 7, 11
+        };
+
+        Builder builder = new Builder();
+        builder.build(inputValues, outputValues);
+
+        FST fst = new FST(builder.getCompiler().getBytes());
+
+        final List<Integer> outputs = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+
+        PrefixMatchHandler handler = new PrefixMatchHandler() {
+            @Override
+            public void match(int output, int length) {
+                outputs.add(output);
+                lengths.add(length);
+            }
+        };
+
+        assertEquals(2, fst.commonPrefixSearch("the dogsled", 4, handler));
+        assertEquals(Arrays.asList(5, 7), outputs);
+        assertEquals(Arrays.asList(3, 4), lengths);
+
+        outputs.clear();
+        lengths.clear();
+
+        assertEquals(0, fst.commonPrefixSearch("brat", 0, handler)); // Prefix match only
+        assertEquals(0, fst.commonPrefixSearch("rats", 1, handler)); // No match
+        assertEquals(1, fst.commonPrefixSearch("rats", 0, handler));
+        assertEquals(Arrays.asList(11), outputs);
+        assertEquals(Arrays.asList(3), lengths);
+    }
 }
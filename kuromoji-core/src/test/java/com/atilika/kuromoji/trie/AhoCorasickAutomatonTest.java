@@ -0,0 +1,158 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.trie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class AhoCorasickAutomatonTest {
+
+    @Test
+    public void testOverlappingKeys() {
+        List<String> keys = Arrays.asList("he", "she", "his", "hers");
+
+        assertEquals(
+            Arrays.asList("1-4:she", "2-4:he", "2-6:hers"),
+            match(new AhoCorasickAutomaton(keys), keys, "ushers", 0, 6)
+        );
+    }
+
+    @Test
+    public void testJapanese() {
+        List<String> keys = Arrays.asList("関西", "関西国際空港", "空港", "");
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(keys);
+
+        assertEquals(4, automaton.size());
+        assertEquals(
+            Arrays.asList("1-3:関西", "1-7:関西国際空港", "5-7:空港"),
+            match(automaton, keys, "に関西国際空港へ", 0, 8)
+        );
+        assertEquals(
+            Arrays.asList("1-3:関西"),
+            match(automaton, keys, "に関西国際空港へ", 1, 6)
+        );
+    }
+
+    @Test
+    public void testRandomKeys() {
+        Random random = new Random(42);
+        Set<String> keySet = new LinkedHashSet<>();
+
+        for (int i = 0; i < 200; i++) {
+            keySet.add(randomString(random, 1 + random.nextInt(5)));
+        }
+
+        List<String> keys = new ArrayList<>(keySet);
+
+        String text = randomString(random, 2000);
+        List<String> expected = new ArrayList<>();
+
+        for (int end = 1; end <= text.length(); end++) {
+            for (int start = 0; start < end; start++) {
+                String key = text.substring(start, end);
+
+                if (keySet.contains(key)) {
+                    expected.add(start + "-" + end + ":" + key);
+                }
+            }
+        }
+
+        assertEquals(expected, match(new AhoCorasickAutomaton(keys), keys, text, 0, text.length()));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        List<String> keys = Arrays.asList("he", "she", "his", "hers");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new AhoCorasickAutomaton(keys).write(output);
+
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(ByteBuffer.wrap(output.toByteArray()));
+
+        assertEquals(4, automaton.size());
+        assertEquals(
+            Arrays.asList("1-4:she", "2-4:he", "2-6:hers"),
+            match(automaton, keys, "ushers", 0, 6)
+        );
+    }
+
+    @Test
+    public void testGetKeys() throws IOException {
+        List<String> keys = Arrays.asList("関西", "関西国際空港", "空港", "", "国");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new AhoCorasickAutomaton(keys).write(output);
+
+        assertEquals(keys, Arrays.asList(new AhoCorasickAutomaton(ByteBuffer.wrap(output.toByteArray())).getKeys()));
+    }
+
+    @Test
+    public void testStep() {
+        final List<String> keys = Arrays.asList("he", "she", "his", "hers");
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(keys);
+        String text = "ushers";
+
+        final List<String> matches = new ArrayList<>();
+        int state = AhoCorasickAutomaton.START;
+
+        for (int i = 0; i < text.length(); i++) {
+            state = automaton.step(state, text.charAt(i));
+            automaton.matchAt(state, i + 1, new AhoCorasickAutomaton.MatchHandler() {
+                @Override
+                public void match(int start, int end, int key) {
+                    matches.add(start + "-" + end + ":" + keys.get(key));
+                }
+            });
+        }
+
+        assertEquals(match(automaton, keys, text, 0, text.length()), matches);
+    }
+
+    private List<String> match(AhoCorasickAutomaton automaton, final List<String> keys, String text, int start, int end) {
+        final List<String> matches = new ArrayList<>();
+
+        automaton.match(text, start, end, new AhoCorasickAutomaton.MatchHandler() {
+            @Override
+            public void match(int start, int end, int key) {
+                matches.add(start + "-" + end + ":" + keys.get(key));
+            }
+        });
+
+        return matches;
+    }
+
+    private String randomString(Random random, int length) {
+        char[] chars = new char[length];
+
+        for (int i = 0; i < length; i++) {
+            chars[i] = "あいうえお".charAt(random.nextInt(5));
+        }
+
+        return new String(chars);
+    }
+}
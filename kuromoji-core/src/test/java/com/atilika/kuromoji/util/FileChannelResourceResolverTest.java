@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.util;
+
+import com.atilika.kuromoji.buffer.StringValueMapBuffer;
+import com.atilika.kuromoji.buffer.WordIdMap;
+import com.atilika.kuromoji.compile.ConnectionCostsCompiler;
+import com.atilika.kuromoji.compile.FSTCompiler;
+import com.atilika.kuromoji.compile.WordIdMapCompiler;
+import com.atilika.kuromoji.dict.ConnectionCosts;
+import com.atilika.kuromoji.dict.TokenInfoDictionary;
+import com.atilika.kuromoji.fst.FST;
+import com.atilika.kuromoji.io.ByteBufferIO;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FileChannelResourceResolverTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static FileChannelResourceResolver resolver;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        File directory = folder.getRoot();
+
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(new File(directory, FST.FST_FILENAME)));
+        new FSTCompiler(output, Arrays.asList("cat", "dog", "dogs")).compile();
+        output.close();
+
+        ConnectionCostsCompiler costsCompiler = new ConnectionCostsCompiler(
+            new FileOutputStream(new File(directory, ConnectionCosts.CONNECTION_COSTS_FILENAME))
+        );
+        costsCompiler.readCosts(
+            new ByteArrayInputStream("2 2\n0 0 1\n0 1 2\n1 0 3\n1 1 4\n".getBytes(StandardCharsets.UTF_8))
+        );
+        costsCompiler.compile();
+
+        WordIdMapCompiler wordIdMapCompiler = new WordIdMapCompiler();
+        wordIdMapCompiler.addMapping(3, 1);
+        wordIdMapCompiler.addMapping(3, 2);
+        wordIdMapCompiler.addMapping(10, 0);
+
+        output = new BufferedOutputStream(new FileOutputStream(new File(directory, TokenInfoDictionary.TARGETMAP_FILENAME)));
+        wordIdMapCompiler.write(output);
+        output.close();
+
+        TreeMap<Integer, String> features = new TreeMap<>();
+        features.put(0, "名詞");
+        features.put(1, "カタカナ");
+
+        output = new BufferedOutputStream(new FileOutputStream(new File(directory, TokenInfoDictionary.FEATURE_MAP_FILENAME)));
+        new StringValueMapBuffer(features).write(output);
+        output.close();
+
+        resolver = new FileChannelResourceResolver(directory);
+    }
+
+    @Test
+    public void testMappedBuffersAreNotCopiedToHeap() throws IOException {
+        ByteBuffer buffer = ByteBufferIO.read(resolver, FST.FST_FILENAME);
+
+        assertFalse(buffer.hasArray());
+    }
+
+    @Test
+    public void testMappedFST() throws IOException {
+        FST mapped = FST.newInstance(resolver);
+        FST streamed = new FST(resolver.resolve(FST.FST_FILENAME));
+
+        for (String surface : new String[]{"cat", "dog", "dogs", "do", "cow"}) {
+            assertEquals(streamed.lookup(surface), mapped.lookup(surface));
+        }
+    }
+
+    @Test
+    public void testMappedConnectionCosts() throws IOException {
+        ConnectionCosts costs = ConnectionCosts.newInstance(resolver);
+
+        assertEquals(1, costs.get(0, 0));
+        assertEquals(2, costs.get(0, 1));
+        assertEquals(3, costs.get(1, 0));
+        assertEquals(4, costs.get(1, 1));
+    }
+
+    @Test
+    public void testMappedWordIdMap() throws IOException {
+        WordIdMap wordIds = new WordIdMap(resolver.map(TokenInfoDictionary.TARGETMAP_FILENAME));
+
+        assertEquals("[1, 2]", Arrays.toString(wordIds.lookUp(3)));
+        assertEquals("[0]", Arrays.toString(wordIds.lookUp(10)));
+        assertEquals("[]", Arrays.toString(wordIds.lookUp(1)));
+    }
+
+    @Test
+    public void testMappedStringValues() throws IOException {
+        StringValueMapBuffer values = new StringValueMapBuffer(
+            ByteBufferIO.read(resolver, TokenInfoDictionary.FEATURE_MAP_FILENAME)
+        );
+
+        assertEquals("名詞", values.get(0));
+        assertEquals("カタカナ", values.get(1));
+    }
+}
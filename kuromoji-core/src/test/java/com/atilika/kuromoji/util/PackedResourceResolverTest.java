@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.util;
+
+import com.atilika.kuromoji.compile.PackedDictionaryCompiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PackedResourceResolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPackAndResolve() throws IOException {
+        byte[] first = {1, 2, 3};
+        byte[] second = {4, 5, 6, 7, 8, 9, 10, 11, 12};
+
+        PackedResourceResolver resolver = new PackedResourceResolver(pack(first, second));
+        resolver.verify();
+
+        ByteBuffer buffer = resolver.map("second.bin");
+        assertEquals(second.length, buffer.remaining());
+
+        byte[] mapped = new byte[buffer.remaining()];
+        buffer.get(mapped);
+        assertArrayEquals(second, mapped);
+
+        assertArrayEquals(first, read(resolver.resolve("first.bin")));
+    }
+
+    @Test
+    public void testResourcesAreAligned() throws IOException {
+        File packed = pack(new byte[]{1, 2, 3}, new byte[]{4});
+        ByteBuffer image = ByteBuffer.wrap(read(new FileInputStream(packed)));
+
+        // The second table of contents entry starts after the header and the first entry
+        int secondOffset = image.getInt(12 + 2 + "first.bin".length() + 16 + 2 + "second.bin".length());
+
+        assertEquals(0, secondOffset % PackedResourceResolver.ALIGNMENT);
+        assertEquals(4, image.get(secondOffset));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingResource() throws IOException {
+        new PackedResourceResolver(pack(new byte[]{1}, new byte[]{2})).map("third.bin");
+    }
+
+    @Test(expected = IOException.class)
+    public void testChecksumMismatch() throws IOException {
+        File packed = pack(new byte[]{1, 2, 3}, new byte[]{4, 5, 6});
+        ByteBuffer image = ByteBuffer.wrap(read(new FileInputStream(packed)));
+
+        image.put(image.limit() - 1, (byte) 0);
+
+        new PackedResourceResolver(image).verify();
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotPacked() throws IOException {
+        new PackedResourceResolver(ByteBuffer.wrap(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11}));
+    }
+
+    private File pack(byte[] first, byte[] second) throws IOException {
+        File directory = folder.newFolder();
+
+        write(new File(directory, "first.bin"), first);
+        write(new File(directory, "second.bin"), second);
+
+        File packed = new File(folder.getRoot(), PackedResourceResolver.PACKED_DICTIONARY_FILENAME);
+        OutputStream output = new FileOutputStream(packed);
+
+        new PackedDictionaryCompiler(output, directory, Arrays.asList("first.bin", "second.bin")).compile();
+        output.close();
+
+        return packed;
+    }
+
+    private void write(File file, byte[] bytes) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        output.write(bytes);
+        output.close();
+    }
+
+    private byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int b;
+
+        while ((b = input.read()) != -1) {
+            output.write(b);
+        }
+
+        input.close();
+        return output.toByteArray();
+    }
+}
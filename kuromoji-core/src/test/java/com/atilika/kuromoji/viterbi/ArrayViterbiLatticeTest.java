@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.viterbi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArrayViterbiLatticeTest {
+
+    @Test
+    public void testNodesInRegion() {
+        ArrayViterbiLattice lattice = new ArrayViterbiLattice();
+        lattice.reset("xx東京都yy", 2, 3);
+        lattice.addBos();
+
+        assertEquals(5, lattice.getDimension());
+        assertTrue(lattice.tokenEndsWhereCurrentTokenStarts(0));
+        assertFalse(lattice.tokenEndsWhereCurrentTokenStarts(1));
+
+        int tokyo = lattice.addNode(1, ViterbiNode.Type.KNOWN, 0, 2, 10, 11, 100);
+        int to = lattice.addNode(2, ViterbiNode.Type.KNOWN, 2, 1, 12, 13, 200);
+        lattice.addEos();
+
+        assertTrue(lattice.tokenEndsWhereCurrentTokenStarts(2));
+        assertEquals("東京", lattice.getSurface(tokyo));
+        assertEquals("都", lattice.getSurface(to));
+        assertEquals(2, lattice.getStartIndex(to));
+        assertEquals(12, lattice.getLeftId(to));
+        assertEquals(13, lattice.getRightId(to));
+        assertEquals(200, lattice.getWordCost(to));
+        assertEquals(-1, lattice.getLeftNode(to));
+        assertEquals(4, lattice.size());
+    }
+
+    @Test
+    public void testResetAndGrowth() {
+        ArrayViterbiLattice lattice = new ArrayViterbiLattice();
+
+        for (int round = 0; round < 2; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                text.append('a');
+            }
+            lattice.reset(text, 0, text.length());
+            lattice.addBos();
+            for (int i = 0; i < text.length(); i++) {
+                int node = lattice.addNode(i, ViterbiNode.Type.UNKNOWN, i, 1, 0, 0, i);
+                assertEquals(i, lattice.getWordId(node));
+                assertEquals(ViterbiNode.Type.UNKNOWN, lattice.getType(node));
+            }
+            lattice.addEos();
+
+            assertEquals(1002, lattice.size());
+            assertEquals(1002, lattice.getDimension());
+        }
+    }
+}
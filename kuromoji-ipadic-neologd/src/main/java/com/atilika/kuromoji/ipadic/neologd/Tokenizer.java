@@ -17,19 +17,16 @@
 package com.atilika.kuromoji.ipadic.neologd;
 
 import com.atilika.kuromoji.TokenizerBase;
-import com.atilika.kuromoji.dict.CharacterDefinitions;
-import com.atilika.kuromoji.dict.ConnectionCosts;
 import com.atilika.kuromoji.dict.Dictionary;
-import com.atilika.kuromoji.dict.InsertedDictionary;
-import com.atilika.kuromoji.dict.TokenInfoDictionary;
-import com.atilika.kuromoji.dict.UnknownDictionary;
-import com.atilika.kuromoji.fst.FST;
+import com.atilika.kuromoji.dict.SystemDictionary;
 import com.atilika.kuromoji.ipadic.neologd.compile.DictionaryEntry;
 import com.atilika.kuromoji.util.SimpleResourceResolver;
 import com.atilika.kuromoji.viterbi.TokenFactory;
 import com.atilika.kuromoji.viterbi.ViterbiNode;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -112,6 +109,8 @@ public class Tokenizer extends TokenizerBase {
             readingFeature = DictionaryEntry.READING_FEATURE;
             partOfSpeechFeature = DictionaryEntry.PART_OF_SPEECH_FEATURE;
 
+            resolver = new SimpleResourceResolver(this.getClass());
+
             tokenFactory = new TokenFactory<Token>() {
                 @Override
                 public Token createToken(int wordId,
@@ -211,25 +210,23 @@ public class Tokenizer extends TokenizerBase {
             penalties.add(otherPenaltyLengthThreshold);
             penalties.add(otherPenalty);
 
-            resolver = new SimpleResourceResolver(this.getClass());
-
-            try {
-                fst = FST.newInstance(resolver);
-                connectionCosts = ConnectionCosts.newInstance(resolver);
-                tokenInfoDictionary = TokenInfoDictionary.newInstance(resolver);
-                characterDefinitions = CharacterDefinitions.newInstance(resolver);
+            super.loadDictionaries();
+        }
 
-                if (nakaguroSplit) {
-                    characterDefinitions.setCategories('・', new String[]{"SYMBOL"});
-                }
+        @Override
+        protected SystemDictionary loadSystemDictionary() throws IOException {
+            SystemDictionary dictionary = super.loadSystemDictionary();
 
-                unknownDictionary = UnknownDictionary.newInstance(
-                    resolver, characterDefinitions, totalFeatures
-                );
-                insertedDictionary = new InsertedDictionary(totalFeatures);
-            } catch (Exception ouch) {
-                throw new RuntimeException("Could not load dictionaries.", ouch);
+            if (nakaguroSplit) {
+                dictionary.getCharacterDefinitions().setCategories('・', new String[]{"SYMBOL"});
             }
+
+            return dictionary;
+        }
+
+        @Override
+        protected Object dictionaryKey() {
+            return Arrays.asList(super.dictionaryKey(), nakaguroSplit);
         }
     }
 }
@@ -20,9 +20,13 @@ import com.atilika.kuromoji.compile.TokenInfoDictionaryCompilerBase;
 import com.atilika.kuromoji.compile.DictionaryCompilerBase;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class DictionaryCompiler extends DictionaryCompilerBase {
 
+    // First argument compiling a dictionary overlay rather than a dictionary
+    private static final String OVERLAY_OPTION = "--overlay";
+
     @Override
     protected TokenInfoDictionaryCompilerBase getTokenInfoDictionaryCompiler(String encoding) {
         return new TokenInfoDictionaryCompiler(encoding);
@@ -30,6 +34,11 @@ public class DictionaryCompiler extends DictionaryCompilerBase {
 
     public static void main(String[] args) throws IOException {
         DictionaryCompiler dictionaryBuilder = new DictionaryCompiler();
-        dictionaryBuilder.build(args);
+
+        if (args.length > 0 && OVERLAY_OPTION.equals(args[0])) {
+            dictionaryBuilder.buildOverlay(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            dictionaryBuilder.build(args);
+        }
     }
 }
@@ -0,0 +1,218 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.ipadic;
+
+import com.atilika.kuromoji.dict.UserDictionary;
+import com.atilika.kuromoji.dict.UserDictionaryHolder;
+import com.atilika.kuromoji.ipadic.compile.DictionaryCompiler;
+import com.atilika.kuromoji.util.FileChannelResourceResolver;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryOverlayTest {
+
+    private static final String[] BASE_ENTRIES = {
+        "東京,1,1,3000,名詞,固有名詞,地域,一般,*,*,東京,トウキョウ,トーキョー",
+        "都,1,1,4000,名詞,接尾,地域,*,*,*,都,ト,ト",
+        "に,2,2,1000,助詞,格助詞,一般,*,*,*,に,ニ,ニ",
+        "行く,0,0,3500,動詞,自立,*,*,五段・カ行促音便,基本形,行く,イク,イク",
+        "スカイ,1,1,4500,名詞,一般,*,*,*,*,スカイ,スカイ,スカイ",
+        "ツリー,1,1,4600,名詞,一般,*,*,*,*,ツリー,ツリー,ツリー"
+    };
+
+    private static final String[] OVERLAY_ENTRIES = {
+        "東京スカイツリー,1,1,2000,名詞,固有名詞,一般,*,*,*,東京スカイツリー,トウキョウスカイツリー,トーキョースカイツリー",
+        "スカイツリー,1,1,2500,名詞,固有名詞,一般,*,*,*,スカイツリー,スカイツリー,スカイツリー",
+        "東京都,1,1,2600,名詞,固有名詞,地域,一般,*,*,東京都,トウキョウト,トーキョート"
+    };
+
+    private static final String[] CHARACTER_DEFINITIONS = {
+        "DEFAULT 0 1 0",
+        "HIRAGANA 0 1 2",
+        "KATAKANA 1 1 2",
+        "KANJI 0 0 2",
+        "0x3041..0x309F HIRAGANA",
+        "0x30A1..0x30FF KATAKANA",
+        "0x4E00..0x9FA5 KANJI"
+    };
+
+    private static final String[] UNKNOWN_DEFINITIONS = {
+        "DEFAULT,1,1,5000,記号,一般,*,*,*,*,*",
+        "HIRAGANA,1,1,6000,名詞,一般,*,*,*,*,*",
+        "KATAKANA,1,1,6000,名詞,一般,*,*,*,*,*",
+        "KANJI,1,1,6000,名詞,一般,*,*,*,*,*"
+    };
+
+    private static final String[] INPUTS = {
+        "東京スカイツリーに行く",
+        "東京都に行く",
+        "スカイツリーに行く",
+        "スカイに行く",
+        "東京に行く"
+    };
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static File baseDir;
+
+    private static File overlayDir;
+
+    private static File fullDir;
+
+    @BeforeClass
+    public static void compileDictionaries() throws IOException {
+        DictionaryCompiler compiler = new DictionaryCompiler();
+
+        File baseSources = writeSources("base-sources", Arrays.asList(BASE_ENTRIES), true);
+        File overlaySources = writeSources("overlay-sources", Arrays.asList(OVERLAY_ENTRIES), false);
+
+        List<String> allEntries = new ArrayList<>(Arrays.asList(BASE_ENTRIES));
+        allEntries.addAll(Arrays.asList(OVERLAY_ENTRIES));
+        File fullSources = writeSources("full-sources", allEntries, true);
+
+        baseDir = folder.newFolder("base");
+        overlayDir = folder.newFolder("overlay");
+        fullDir = folder.newFolder("full");
+
+        compiler.build(baseSources.getPath(), baseDir.getPath(), "UTF-8");
+        compiler.buildOverlay(overlaySources.getPath(), baseDir.getPath(), overlayDir.getPath(), "UTF-8");
+        compiler.build(fullSources.getPath(), fullDir.getPath(), "UTF-8");
+    }
+
+    @Test
+    public void testOverlayTokenizesLikeFullDictionary() {
+        Tokenizer overlayTokenizer = newTokenizer(baseDir, overlayDir);
+        Tokenizer fullTokenizer = newTokenizer(fullDir, null);
+
+        for (String input : INPUTS) {
+            List<Token> expected = fullTokenizer.tokenize(input);
+            List<Token> actual = overlayTokenizer.tokenize(input);
+
+            assertEquals(input, expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(input, expected.get(i).getSurface(), actual.get(i).getSurface());
+                assertEquals(input, expected.get(i).getAllFeatures(), actual.get(i).getAllFeatures());
+                assertEquals(input, expected.get(i).isKnown(), actual.get(i).isKnown());
+            }
+        }
+
+        List<Token> tokens = overlayTokenizer.tokenize("東京スカイツリーに行く");
+
+        assertEquals("東京スカイツリー", tokens.get(0).getSurface());
+        assertEquals("トウキョウスカイツリー", tokens.get(0).getReading());
+        assertTrue(tokens.get(0).isKnown());
+
+        assertEquals("東京", newTokenizer(baseDir, null).tokenize("東京スカイツリーに行く").get(0).getSurface());
+    }
+
+    @Test
+    public void testOverlaySharesFeatureIds() {
+        Tokenizer baseTokenizer = newTokenizer(baseDir, null);
+        Tokenizer overlayTokenizer = newTokenizer(baseDir, overlayDir);
+
+        Token token = overlayTokenizer.tokenize("スカイツリー").get(0);
+
+        assertEquals(baseTokenizer.featureId(1, "固有名詞"), token.getFeatureId(1));
+        assertEquals(baseTokenizer.featureId(0, "名詞"), overlayTokenizer.featureId(0, "名詞"));
+
+        // Values only in the overlay follow the values of the base dictionary
+        assertEquals(-1, baseTokenizer.featureId(7, "スカイツリー"));
+        assertEquals(overlayTokenizer.featureId(7, "スカイツリー"), token.getFeatureId(7));
+    }
+
+    @Test
+    public void testSharedUserDictionaryFeatureIds() throws IOException {
+        UserDictionaryHolder holder = new UserDictionaryHolder(9, 7, 0);
+        Tokenizer baseTokenizer = newTokenizer(baseDir, null, holder);
+        Tokenizer overlayTokenizer = newTokenizer(baseDir, overlayDir, holder);
+
+        String entry = "東京スカイツリー,1,1,-10000,名詞,固有名詞,一般,*,*,*,東京スカイツリー,スカイツリー,スカイツリー";
+
+        holder.set(new UserDictionary(new ByteArrayInputStream(entry.getBytes(StandardCharsets.UTF_8)), 9, 7, 0));
+
+        // Each tokenizer looks up the features of user words in its own system dictionary, in any order
+        for (Tokenizer tokenizer : Arrays.asList(overlayTokenizer, baseTokenizer, overlayTokenizer, baseTokenizer)) {
+            Token token = tokenizer.tokenize("東京スカイツリーに行く").get(0);
+
+            assertTrue(token.isUser());
+            assertEquals(tokenizer.featureId(0, "名詞"), token.getFeatureId(0));
+            assertEquals(tokenizer.featureId(7, "スカイツリー"), token.getFeatureId(7));
+        }
+
+        assertEquals(-1, baseTokenizer.tokenize("東京スカイツリー").get(0).getFeatureId(7));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testOverlayForDifferentDictionary() {
+        newTokenizer(fullDir, overlayDir);
+    }
+
+    private static Tokenizer newTokenizer(File dictionaryDir, File overlayDir) {
+        return newTokenizer(dictionaryDir, overlayDir, null);
+    }
+
+    private static Tokenizer newTokenizer(File dictionaryDir, File overlayDir, UserDictionaryHolder holder) {
+        Tokenizer.Builder builder = new Tokenizer.Builder();
+
+        if (holder != null) {
+            builder.userDictionary(holder);
+        }
+
+        builder.resourceResolver(new FileChannelResourceResolver(dictionaryDir));
+
+        if (overlayDir != null) {
+            builder.dictionaryOverlay(new FileChannelResourceResolver(overlayDir));
+        }
+
+        return builder.build();
+    }
+
+    private static File writeSources(String name, List<String> entries, boolean definitions) throws IOException {
+        File dir = folder.newFolder(name);
+
+        Files.write(new File(dir, "entries.csv").toPath(), entries, StandardCharsets.UTF_8);
+
+        if (definitions) {
+            Files.write(new File(dir, "char.def").toPath(), Arrays.asList(CHARACTER_DEFINITIONS), StandardCharsets.UTF_8);
+            Files.write(new File(dir, "unk.def").toPath(), Arrays.asList(UNKNOWN_DEFINITIONS), StandardCharsets.UTF_8);
+            Files.write(new File(dir, "matrix.def").toPath(), Arrays.asList(
+                "3 3",
+                "0 0 100", "0 1 -200", "0 2 300",
+                "1 0 -100", "1 1 200", "1 2 -300",
+                "2 0 400", "2 1 -400", "2 2 500"
+            ), StandardCharsets.UTF_8);
+        }
+
+        return dir;
+    }
+}
@@ -18,9 +18,15 @@ package com.atilika.kuromoji.ipadic;
 
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.atilika.kuromoji.TestUtils.assertMultiThreadedTokenizedStreamEquals;
+import static org.junit.Assert.assertEquals;
 
 public class MultiThreadedTokenizerTest {
 
@@ -49,4 +55,35 @@ public class MultiThreadedTokenizerTest {
                 .build()
         );
     }
+
+    @Test
+    public void testTokenizeAll() throws IOException {
+        Tokenizer tokenizer = new Tokenizer();
+        List<String> texts = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(getClass().getResourceAsStream("/jawikisentences.txt"), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                texts.add(line);
+            }
+        }
+
+        List<List<Token>> results = tokenizer.tokenizeAll(texts);
+
+        assertEquals(texts.size(), results.size());
+
+        for (int i = 0; i < texts.size(); i++) {
+            List<Token> expected = tokenizer.tokenize(texts.get(i));
+            List<Token> actual = results.get(i);
+
+            assertEquals(expected.size(), actual.size());
+
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getSurface(), actual.get(j).getSurface());
+                assertEquals(expected.get(j).getPosition(), actual.get(j).getPosition());
+            }
+        }
+    }
 }
@@ -17,14 +17,36 @@
 package com.atilika.kuromoji.ipadic;
 
 import com.atilika.kuromoji.CommonCornerCasesTest;
+import com.atilika.kuromoji.TokenArray;
+import com.atilika.kuromoji.TokenConsumer;
+import com.atilika.kuromoji.TokenVisitor;
+import com.atilika.kuromoji.TokenizerSession;
+import com.atilika.kuromoji.dict.Dictionary;
+import com.atilika.kuromoji.dict.SystemDictionaryLoader;
+import com.atilika.kuromoji.dict.UserDictionary;
+import com.atilika.kuromoji.dict.UserDictionaryHolder;
+import com.atilika.kuromoji.dict.UserDictionaryLayers;
+import com.atilika.kuromoji.viterbi.ViterbiNode;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.atilika.kuromoji.TestUtils.assertEqualTokenFeatureLengths;
 import static com.atilika.kuromoji.TestUtils.assertTokenSurfacesEquals;
@@ -312,4 +334,374 @@ public class TokenizerTest {
     public void testPunctuation() {
         CommonCornerCasesTest.testPunctuation(new Tokenizer());
     }
+
+    @Test
+    public void testSession() {
+        TokenizerSession<Token> session = tokenizer.newSession();
+
+        String[] inputs = {
+            "スペースステーションに行きます。うたがわしい。",
+            "",
+            "この丘はアクロポリスと呼ばれている。",
+            "スペースステーションに行きます。うたがわしい。"
+        };
+
+        for (String input : inputs) {
+            List<Token> expected = tokenizer.tokenize(input);
+            List<Token> actual = session.tokenize(input);
+
+            assertEquals(expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getSurface(), actual.get(i).getSurface());
+                assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+                assertEquals(expected.get(i).getAllFeatures(), actual.get(i).getAllFeatures());
+            }
+        }
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        StringBuilder sentences = new StringBuilder();
+        StringBuilder run = new StringBuilder();
+
+        for (int i = 0; i < 3000; i++) {
+            sentences.append("スペースステーションに行きます。");
+            run.append("寿司が食べたい");
+        }
+
+        for (String input : new String[]{"", "うたがわしい", sentences.toString(), run.toString()}) {
+            assertStreamedEquals(tokenizer, input);
+        }
+    }
+
+    @Test
+    public void testStreamingWithUserDictionary() throws IOException {
+        StringBuilder text = new StringBuilder();
+
+        for (String resource : new String[]{"/bocchan.txt", "/jawikisentences.txt"}) {
+            try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(getClass().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    text.append(line.replace("。", "").replace("、", ""));
+                }
+            }
+        }
+
+        for (Tokenizer.Mode mode : new Tokenizer.Mode[]{Tokenizer.Mode.NORMAL, Tokenizer.Mode.SEARCH}) {
+            Tokenizer userTokenizer = new Tokenizer.Builder()
+                .mode(mode)
+                .userDictionary(getClass().getResourceAsStream("/userdict.txt"))
+                .build();
+
+            assertStreamedEquals(userTokenizer, text.toString());
+        }
+    }
+
+    @Test
+    public void testVisitor() {
+        final String input = "スペースステーションに行きます。うたがわしい。";
+        final List<Token> expected = tokenizer.tokenize(input);
+        final int[] count = new int[1];
+
+        tokenizer.tokenize(input, new TokenVisitor() {
+            @Override
+            public void visit(int wordId, ViterbiNode.Type type, int start, int length, Dictionary dictionary) {
+                Token token = expected.get(count[0]++);
+
+                assertEquals(token.getSurface(), input.substring(start, start + length));
+                assertEquals(token.getPosition(), start);
+                assertEquals(token.getAllFeatures(), dictionary.getAllFeatures(wordId));
+            }
+        });
+
+        assertEquals(expected.size(), count[0]);
+    }
+
+    @Test
+    public void testTokenArray() {
+        String input = "スペースステーションに行きます。うたがわしい。";
+        List<Token> expected = tokenizer.tokenize(input);
+        TokenArray<Token> actual = tokenizer.tokenizeToArray(input);
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSurface(), actual.get(i).getSurface());
+            assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+            assertEquals(expected.get(i).getReading(), actual.get(i).getReading());
+        }
+    }
+
+    @Test
+    public void testTokenArrayWriteRead() throws IOException {
+        TokenArray<Token> tokens = tokenizer.tokenizeToArray("スペースステーションに行きます。うたがわしい。");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        tokens.write(output);
+
+        TokenArray<Token> read = TokenArray.read(new ByteArrayInputStream(output.toByteArray()), tokenizer);
+
+        assertEquals(tokens.getText(), read.getText());
+        assertEquals(tokens.size(), read.size());
+
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.getWordId(i), read.getWordId(i));
+            assertEquals(tokens.getType(i), read.getType(i));
+            assertEquals(tokens.getPosition(i), read.getPosition(i));
+            assertEquals(tokens.getLength(i), read.getLength(i));
+            assertEquals(tokens.get(i).getAllFeatures(), read.get(i).getAllFeatures());
+        }
+    }
+
+    @Test
+    public void testParallel() throws InterruptedException {
+        StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 5000; i++) {
+            input.append("スペースステーションに行きます。うたがわしい、");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Token> expected = tokenizer.tokenize(input.toString());
+            List<Token> actual = tokenizer.tokenize(input.toString(), executor);
+
+            assertEquals(expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getSurface(), actual.get(i).getSurface());
+                assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAppendAllFeatures() throws IOException {
+        Tokenizer userTokenizer = new Tokenizer.Builder()
+            .userDictionary(getClass().getResourceAsStream("/userdict.txt"))
+            .build();
+
+        StringBuilder builder = new StringBuilder();
+
+        for (Token token : userTokenizer.tokenize("関西国際空港にスペースステーションがあります。ﾒﾛﾝパン")) {
+            builder.setLength(0);
+            token.appendAllFeatures(builder);
+            assertEquals(token.getAllFeatures(), builder.toString());
+        }
+    }
+
+    @Test
+    public void testFeatureIds() throws IOException {
+        Tokenizer userTokenizer = new Tokenizer.Builder()
+            .userDictionary(getClass().getResourceAsStream("/userdict.txt"))
+            .build();
+
+        int noun = userTokenizer.featureId(0, "名詞");
+        BitSet particlesAndAuxiliaryVerbs = userTokenizer.featureIds(0, "助詞", "助動詞", "存在しない品詞");
+
+        assertTrue(noun >= 0);
+        assertEquals(2, particlesAndAuxiliaryVerbs.cardinality());
+
+        for (Token token : userTokenizer.tokenize("関西国際空港にスペースステーションがあります。ﾒﾛﾝパン")) {
+            String partOfSpeech = token.getPartOfSpeechLevel1();
+
+            assertEquals(partOfSpeech.equals("名詞"), token.hasFeatureId(0, noun));
+            assertEquals(
+                partOfSpeech.equals("助詞") || partOfSpeech.equals("助動詞"),
+                token.hasFeatureIdIn(0, particlesAndAuxiliaryVerbs)
+            );
+            assertEquals(userTokenizer.featureId(0, partOfSpeech), token.getFeatureId(0));
+        }
+    }
+
+    @Test
+    public void testTokenFilter() throws IOException {
+        Tokenizer filteringTokenizer = new Tokenizer.Builder()
+            .userDictionary(getClass().getResourceAsStream("/userdict.txt"))
+            .tokenFilter(PartOfSpeechFilters.dropFunctionWords())
+            .build();
+        Tokenizer userTokenizer = new Tokenizer.Builder()
+            .userDictionary(getClass().getResourceAsStream("/userdict.txt"))
+            .build();
+
+        String input = "関西国際空港にスペースステーションがあります。ﾒﾛﾝパン";
+        List<String> expected = new ArrayList<>();
+
+        for (Token token : userTokenizer.tokenize(input)) {
+            if (!PartOfSpeechFilters.dropFunctionWords().getPartsOfSpeech().contains(token.getPartOfSpeechLevel1())) {
+                expected.add(token.getSurface());
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+
+        for (Token token : filteringTokenizer.tokenize(input)) {
+            actual.add(token.getSurface());
+        }
+
+        assertTrue(expected.size() < userTokenizer.tokenize(input).size());
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), filteringTokenizer.tokenizeToArray(input).size());
+        assertEquals(expected.size(), filteringTokenizer.multiTokenizeNBest(input, 1).get(0).size());
+    }
+
+    @Test
+    public void testCompiledUserDictionary() throws IOException {
+        File compiled = File.createTempFile("kuromoji-userdict-", ".bin");
+        compiled.deleteOnExit();
+
+        try (InputStream input = getClass().getResourceAsStream("/userdict.txt");
+             OutputStream output = new FileOutputStream(compiled)) {
+            new Tokenizer.Builder().compileUserDictionary(input, output);
+        }
+
+        Tokenizer userTokenizer = new Tokenizer.Builder()
+            .userDictionary(getClass().getResourceAsStream("/userdict.txt"))
+            .build();
+        Tokenizer compiledTokenizer = new Tokenizer.Builder()
+            .compiledUserDictionary(compiled.getPath())
+            .build();
+
+        String input = "関西国際空港にスペースステーションがあります。朝青龍";
+        List<Token> expected = userTokenizer.tokenize(input);
+        List<Token> actual = compiledTokenizer.tokenize(input);
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSurface(), actual.get(i).getSurface());
+            assertEquals(expected.get(i).isUser(), actual.get(i).isUser());
+            assertEquals(expected.get(i).getAllFeatures(), actual.get(i).getAllFeatures());
+        }
+    }
+
+    @Test
+    public void testUserDictionaryHolder() throws Exception {
+        Tokenizer.Builder builder = new Tokenizer.Builder();
+        UserDictionaryHolder holder = builder.newUserDictionaryHolder();
+        Tokenizer holderTokenizer = builder.userDictionary(holder).build();
+
+        String input = "関西国際空港に行った";
+        TokenArray<Token> before = holderTokenizer.tokenizeToArray(input);
+
+        assertFalse(before.get(0).isUser());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            holder.load(new UserDictionaryHolder.Loader() {
+                @Override
+                public UserDictionary load() throws IOException {
+                    try (InputStream input = getClass().getResourceAsStream("/userdict.txt")) {
+                        return new UserDictionary(input, 9, 7, 0);
+                    }
+                }
+            }, executor).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Token> tokens = holderTokenizer.tokenize(input);
+
+        assertEquals("関西", tokens.get(0).getSurface());
+        assertTrue(tokens.get(0).isUser());
+        assertEquals("テスト名詞", tokens.get(0).getPartOfSpeechLevel1());
+
+        // Tokens created before the replacement keep using the dictionaries they were found with
+        assertFalse(before.get(0).isUser());
+        assertEquals(before.get(0).getAllFeatures(), tokenizer.tokenize(input).get(0).getAllFeatures());
+
+        holder.set(null);
+        assertFalse(holderTokenizer.tokenize(input).get(0).isUser());
+    }
+
+    @Test
+    public void testUserDictionaryLayers() throws IOException {
+        Tokenizer.Builder builder = new Tokenizer.Builder();
+        UserDictionaryLayers layers = new UserDictionaryLayers(builder.newUserDictionaryHolder());
+        Tokenizer layersTokenizer = builder.userDictionary(layers.getHolder()).build();
+
+        try (InputStream input = getClass().getResourceAsStream("/userdict.txt")) {
+            layers.set("base", 0, new UserDictionary(input, 9, 7, 0));
+        }
+
+        String input = "関西国際空港に行った";
+
+        assertEquals("関西", layersTokenizer.tokenize(input).get(0).getSurface());
+
+        String overlay = "関西国際空港,関西国際空港,カンサイコクサイクウコウ,カスタム名詞";
+        layers.set("tenant", 10, new UserDictionary(
+            new ByteArrayInputStream(overlay.getBytes(StandardCharsets.UTF_8)), 9, 7, 0
+        ));
+
+        List<Token> tokens = layersTokenizer.tokenize(input);
+
+        assertEquals("関西国際空港", tokens.get(0).getSurface());
+        assertTrue(tokens.get(0).isUser());
+        assertEquals("カスタム名詞", tokens.get(0).getPartOfSpeechLevel1());
+
+        layers.remove("tenant");
+
+        tokens = layersTokenizer.tokenize(input);
+
+        assertEquals("関西", tokens.get(0).getSurface());
+        assertEquals("テスト名詞", tokens.get(0).getPartOfSpeechLevel1());
+    }
+
+    @Test
+    public void testParallelDictionaryLoading() {
+        Tokenizer parallelTokenizer = new Tokenizer.Builder()
+            .shareDictionaries(false)
+            .loadDictionariesInParallel(true)
+            .build();
+
+        String input = "スペースステーションに行きます。うたがわしい。";
+        List<Token> expected = tokenizer.tokenize(input);
+        List<Token> actual = parallelTokenizer.tokenize(input);
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSurface(), actual.get(i).getSurface());
+            assertEquals(expected.get(i).getAllFeatures(), actual.get(i).getAllFeatures());
+        }
+
+        assertEquals(
+            Arrays.asList(
+                SystemDictionaryLoader.FST_COMPONENT,
+                SystemDictionaryLoader.CONNECTION_COSTS_COMPONENT,
+                SystemDictionaryLoader.TOKEN_INFO_DICTIONARY_COMPONENT,
+                SystemDictionaryLoader.CHARACTER_DEFINITIONS_COMPONENT,
+                SystemDictionaryLoader.UNKNOWN_DICTIONARY_COMPONENT,
+                SystemDictionaryLoader.TOTAL
+            ),
+            new ArrayList<>(parallelTokenizer.getDictionaryLoadTimes().keySet())
+        );
+    }
+
+    private void assertStreamedEquals(Tokenizer tokenizer, String input) throws IOException {
+        final List<Token> actual = new ArrayList<>();
+
+        tokenizer.tokenize(new StringReader(input), new TokenConsumer<Token>() {
+            @Override
+            public void accept(Token token) {
+                actual.add(token);
+            }
+        });
+
+        List<Token> expected = tokenizer.tokenize(input);
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSurface(), actual.get(i).getSurface());
+            assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+        }
+    }
 }
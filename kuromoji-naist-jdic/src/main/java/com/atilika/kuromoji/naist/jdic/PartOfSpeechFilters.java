@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2010-2018 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.naist.jdic;
+
+import com.atilika.kuromoji.PartOfSpeechFilter;
+import com.atilika.kuromoji.PartOfSpeechFilterPresets;
+
+/**
+ * Ready-made token filters for the NAIST-jdic parts of speech
+ * <p>
+ * Function words are particles (助詞), auxiliary verbs (助動詞) and symbols (記号)
+ *
+ * @see Tokenizer.Builder#tokenFilter(com.atilika.kuromoji.TokenFilter)
+ */
+public final class PartOfSpeechFilters {
+
+    private static final PartOfSpeechFilterPresets PRESETS = new PartOfSpeechFilterPresets("助詞", "助動詞", "記号");
+
+    private PartOfSpeechFilters() {
+    }
+
+    /**
+     * @return filter dropping function words, see {@link PartOfSpeechFilterPresets#dropFunctionWords()}
+     */
+    public static PartOfSpeechFilter dropFunctionWords() {
+        return PRESETS.dropFunctionWords();
+    }
+
+    /**
+     * @return filter keeping only nouns, see {@link PartOfSpeechFilterPresets#keepNouns()}
+     */
+    public static PartOfSpeechFilter keepNouns() {
+        return PRESETS.keepNouns();
+    }
+}